@@ -0,0 +1,81 @@
+package com.github.jordanpottruff.neural;
+
+import com.github.jordanpottruff.neural.data.DataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading MNIST files with {@link MNISTReader}. Random images are written to temporary files in the MNIST
+ * format beforehand, so the real database is not needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MNISTReaderBenchmark {
+
+    @Param({"1000", "10000"})
+    public int images;
+
+    private Path imageFile;
+    private Path labelFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        int imageLength = MNISTReader.IMAGE_SIZE * MNISTReader.IMAGE_SIZE;
+        Random random = new Random(1);
+        byte[] pixels = new byte[images * imageLength];
+        random.nextBytes(pixels);
+        byte[] classes = new byte[images];
+        for (int i = 0; i < images; i++) {
+            classes[i] = (byte) random.nextInt(10);
+        }
+
+        ByteBuffer imageData = ByteBuffer.allocate(16 + pixels.length);
+        imageData.putInt(0x00000803).putInt(images).putInt(MNISTReader.IMAGE_SIZE).putInt(MNISTReader.IMAGE_SIZE);
+        imageData.put(pixels);
+        ByteBuffer labelData = ByteBuffer.allocate(8 + classes.length);
+        labelData.putInt(0x00000801).putInt(images).put(classes);
+
+        imageFile = Files.createTempFile("images", ".idx3-ubyte");
+        labelFile = Files.createTempFile("labels", ".idx1-ubyte");
+        Files.write(imageFile, imageData.array());
+        Files.write(labelFile, labelData.array());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(imageFile);
+        Files.deleteIfExists(labelFile);
+    }
+
+    @Benchmark
+    public List<MNISTReader.MNISTImage> getImages() {
+        return new MNISTReader(imageFile.toString(), labelFile.toString()).getImages();
+    }
+
+    @Benchmark
+    public DataSet getImageDataSet() {
+        return new MNISTReader(imageFile.toString(), labelFile.toString()).getImageDataSet();
+    }
+}
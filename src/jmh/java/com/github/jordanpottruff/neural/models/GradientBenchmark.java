@@ -0,0 +1,75 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the gradient of a single mini-batch, the step that dominates training, in both double and single
+ * precision. Unlike {@link TrainingBenchmark}, this leaves out shuffling, batch packing and the optimizer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradientBenchmark {
+
+    @Param({"784,32,10", "784,128,10", "784,256,128,10"})
+    public String layers;
+
+    @Param({"16", "64"})
+    public int batchSize;
+
+    private BackPropNetwork network;
+    private FloatNetwork floatNetwork;
+    private TrainingWorkspace workspace;
+    private FloatTrainingWorkspace floatWorkspace;
+
+    @Setup
+    public void setUp() {
+        network = SyntheticData.createNetwork(layers);
+        floatNetwork = new FloatNetwork(network);
+        workspace = new TrainingWorkspace(network.layerSizes, batchSize);
+        floatWorkspace = new FloatTrainingWorkspace(floatNetwork.layerSizes, batchSize);
+
+        DataSet batch = SyntheticData.createDataSet(network.layerSizes.get(0), batchSize, 1);
+        float[] floatInput = floatWorkspace.batchActivations[0].data();
+        int cols = network.layerSizes.get(0);
+        for (int o = 0; o < batchSize; o++) {
+            Observation obs = batch.getObservation(o);
+            int classIndex = network.getClassIndex(obs.getClassification());
+            workspace.setBatchInput(o, obs.getAttributes());
+            workspace.batchClasses[o] = classIndex;
+            for (int i = 0; i < cols; i++) {
+                floatInput[o * cols + i] = (float) obs.getAttributes().get(i);
+            }
+            floatWorkspace.batchClasses[o] = classIndex;
+        }
+    }
+
+    @Benchmark
+    public void accumulateBatchGradient() {
+        network.accumulateBatchGradient(batchSize, workspace);
+        workspace.clearGradient();
+    }
+
+    @Benchmark
+    public void floatAccumulateBatchGradient() {
+        floatNetwork.accumulateBatchGradient(batchSize, floatWorkspace);
+        floatWorkspace.clearGradient();
+    }
+}
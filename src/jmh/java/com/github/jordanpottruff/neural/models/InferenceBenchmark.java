@@ -0,0 +1,88 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.data.DataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures classification with each of the inference paths: a {@link Predictor} one observation at a time and in
+ * batches, a {@link FloatNetwork} and a {@link QuantizedNetwork}. All of them are built from the same network, and
+ * every benchmark classifies the same observations, so the results are per batch and directly comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InferenceBenchmark {
+
+    private static final int BATCH_SIZE = 64;
+    private static final int CALIBRATION_SIZE = 256;
+
+    @Param({"784,32,10", "784,128,10", "784,256,128,10"})
+    public String layers;
+
+    private Predictor predictor;
+    private FloatNetwork floatNetwork;
+    private QuantizedNetwork quantizedNetwork;
+    private VecN[] vectors;
+    private double[][] attributes;
+
+    @Setup
+    public void setUp() {
+        BackPropNetwork network = SyntheticData.createNetwork(layers);
+        int inputSize = network.layerSizes.get(0);
+        predictor = new Predictor(network);
+        floatNetwork = new FloatNetwork(network);
+        quantizedNetwork = QuantizedNetwork.quantize(network,
+                SyntheticData.createDataSet(inputSize, CALIBRATION_SIZE, 2));
+
+        DataSet batch = SyntheticData.createDataSet(inputSize, BATCH_SIZE, 1);
+        vectors = new VecN[BATCH_SIZE];
+        attributes = new double[BATCH_SIZE][];
+        for (int o = 0; o < BATCH_SIZE; o++) {
+            vectors[o] = batch.getObservation(o).getAttributes();
+            attributes[o] = vectors[o].toArray();
+        }
+    }
+
+    @Benchmark
+    public void classify(Blackhole blackhole) {
+        for (double[] observation : attributes) {
+            blackhole.consume(predictor.classify(observation));
+        }
+    }
+
+    @Benchmark
+    public int[] classifyBatch() {
+        return predictor.classifyBatch(attributes);
+    }
+
+    @Benchmark
+    public void floatClassify(Blackhole blackhole) {
+        for (VecN observation : vectors) {
+            blackhole.consume(floatNetwork.classify(observation));
+        }
+    }
+
+    @Benchmark
+    public void quantizedClassify(Blackhole blackhole) {
+        for (double[] observation : attributes) {
+            blackhole.consume(quantizedNetwork.classify(observation));
+        }
+    }
+}
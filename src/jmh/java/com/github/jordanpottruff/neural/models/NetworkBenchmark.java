@@ -0,0 +1,52 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.data.DataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures testing a data set with {@link BackPropNetwork} and serializing the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+
+    private static final int TEST_SIZE = 1000;
+
+    @Param({"784,32,10", "784,128,10", "784,256,128,10"})
+    public String layers;
+
+    private BackPropNetwork network;
+    private DataSet testSet;
+
+    @Setup
+    public void setUp() {
+        network = SyntheticData.createNetwork(layers);
+        testSet = SyntheticData.createDataSet(SyntheticData.parseLayers(layers)[0], TEST_SIZE, 1);
+    }
+
+    @Benchmark
+    public BackPropNetwork.Result test() {
+        return network.test(testSet, false);
+    }
+
+    @Benchmark
+    public String toJSON() {
+        return network.toJSON();
+    }
+}
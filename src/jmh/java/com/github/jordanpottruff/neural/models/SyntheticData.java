@@ -0,0 +1,91 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.activations.ReLU;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import com.github.jordanpottruff.neural.initializers.HeInitializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the networks and data sets used by the benchmarks. The data is random but resembles MNIST, so that the
+ * benchmarks can run without downloading it.
+ */
+final class SyntheticData {
+
+    static final String[] CLASSES = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+
+    // The fraction of attributes that are non-zero, roughly the fraction of inked pixels in an MNIST image.
+    private static final double DENSITY = 0.2;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Parses a comma-separated list of layer sizes, such as "784,128,10". The first size is the input layer and the
+     * last size is the output layer, which must have one node per class.
+     *
+     * @param layers the layer sizes.
+     * @return the layer sizes as an array.
+     */
+    static int[] parseLayers(String layers) {
+        String[] parts = layers.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        if (sizes.length < 2 || sizes[sizes.length - 1] != CLASSES.length) {
+            throw new IllegalArgumentException("Expected at least two layers ending in " + CLASSES.length + " nodes");
+        }
+        return sizes;
+    }
+
+    /**
+     * Creates a network with the given layer sizes, a ReLU hidden layer activation and a logistic output activation.
+     *
+     * @param layers the layer sizes, as accepted by {@link #parseLayers(String)}.
+     * @return the network.
+     */
+    static BackPropNetwork createNetwork(String layers) {
+        int[] sizes = parseLayers(layers);
+        int[] hiddenSizes = new int[sizes.length - 2];
+        System.arraycopy(sizes, 1, hiddenSizes, 0, hiddenSizes.length);
+        return new BackPropNetwork(sizes[0], hiddenSizes, CLASSES, new ReLU(), new Logistic(), new HeInitializer());
+    }
+
+    /**
+     * Creates a data set of random observations.
+     *
+     * @param inputSize the number of attributes of each observation.
+     * @param size      the number of observations.
+     * @param seed      the seed of the random values.
+     * @return the data set.
+     */
+    static DataSet createDataSet(int inputSize, int size, long seed) {
+        Random random = new Random(seed);
+        List<Observation> observations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            observations.add(new Observation(createVector(random, inputSize), CLASSES[random.nextInt(CLASSES.length)]));
+        }
+        return new DataSet(observations, CLASSES);
+    }
+
+    /**
+     * Creates a vector of random values in the range 0-1, most of which are zero.
+     *
+     * @param random the source of the random values.
+     * @param size   the size of the vector.
+     * @return the vector.
+     */
+    static VecN createVector(Random random, int size) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextDouble() < DENSITY ? random.nextDouble() : 0;
+        }
+        return new VecN(values);
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.data.DataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single training epoch of {@link BackPropNetwork}, both on the calling thread and split across several
+ * threads, and of the single-precision {@link FloatNetwork}. The networks keep training from one iteration to the
+ * next, which does not change the cost of an epoch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainingBenchmark {
+
+    private static final int TRAINING_SIZE = 2048;
+    private static final double LEARNING_RATE = 0.01;
+
+    /**
+     * The network being trained and the data it is trained on.
+     */
+    @State(Scope.Benchmark)
+    public static class Training {
+
+        @Param({"784,32,10", "784,128,10", "784,256,128,10"})
+        public String layers;
+
+        @Param({"16", "64"})
+        public int batchSize;
+
+        BackPropNetwork network;
+        FloatNetwork floatNetwork;
+        DataSet trainingSet;
+
+        @Setup
+        public void setUp() {
+            network = SyntheticData.createNetwork(layers);
+            floatNetwork = new FloatNetwork(network);
+            trainingSet = SyntheticData.createDataSet(SyntheticData.parseLayers(layers)[0], TRAINING_SIZE, 1);
+        }
+
+        @TearDown
+        public void tearDown() {
+            network.shutdown();
+        }
+    }
+
+    /**
+     * The number of threads used by concurrent training. This is kept apart from the training state so that the
+     * sequential benchmark is not repeated for every thread count.
+     */
+    @State(Scope.Benchmark)
+    public static class Threads {
+
+        @Param({"1", "2", "4"})
+        public int threads;
+    }
+
+    @Benchmark
+    public void train(Training training) {
+        training.network.train(training.trainingSet, training.batchSize, LEARNING_RATE);
+    }
+
+    @Benchmark
+    public void trainConcurrent(Training training, Threads threads) {
+        training.network.trainConcurrent(training.trainingSet, training.batchSize, LEARNING_RATE, threads.threads);
+    }
+
+    @Benchmark
+    public void trainFloat(Training training) {
+        training.floatNetwork.train(training.trainingSet, training.batchSize, LEARNING_RATE);
+    }
+}
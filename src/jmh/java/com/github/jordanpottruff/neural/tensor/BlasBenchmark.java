@@ -0,0 +1,195 @@
+package com.github.jordanpottruff.neural.tensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link Blas} kernels on the shapes they see during training and inference. The operand A of each
+ * kernel is a weight matrix of one layer, and the batched kernels multiply it with a batch of activations or deltas
+ * exactly as the forward and backward passes do. Batches large enough to pass the parallel threshold are split across
+ * the common pool, as they are when training.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlasBenchmark {
+
+    /**
+     * A weight matrix with the vectors it is multiplied with by a single observation.
+     */
+    @State(Scope.Benchmark)
+    public static class Layer {
+
+        // The rows and columns of the weight matrix: the size of a layer and the size of the layer before it.
+        @Param({"32,784", "128,784", "10,128"})
+        public String shape;
+
+        int rows;
+        int cols;
+        Matrix weights;
+        FloatMatrix floatWeights;
+        double[] input;
+        double[] output;
+        double[] delta;
+        double[] inputDelta;
+        Matrix gradient;
+        float[] floatInput;
+        float[] floatOutput;
+
+        @Setup
+        public void setUp() {
+            String[] parts = shape.split(",");
+            rows = Integer.parseInt(parts[0].trim());
+            cols = Integer.parseInt(parts[1].trim());
+            Random random = new Random(1);
+            weights = createMatrix(random, rows, cols);
+            floatWeights = toFloats(weights);
+            input = createVector(random, cols);
+            output = new double[rows];
+            delta = createVector(random, rows);
+            inputDelta = new double[cols];
+            gradient = new Matrix(rows, cols);
+            floatInput = toFloats(input);
+            floatOutput = new float[rows];
+        }
+    }
+
+    /**
+     * A batch of activations and deltas for the layer. This is kept apart from the layer so that the single
+     * observation kernels are not repeated for every batch size.
+     */
+    @State(Scope.Benchmark)
+    public static class Batch {
+
+        @Param({"16", "64"})
+        public int batchSize;
+
+        Matrix input;
+        Matrix output;
+        Matrix delta;
+        Matrix inputDelta;
+        Matrix gradient;
+        FloatMatrix floatInput;
+        FloatMatrix floatOutput;
+        FloatMatrix floatDelta;
+        FloatMatrix floatInputDelta;
+        FloatMatrix floatGradient;
+
+        @Setup
+        public void setUp(Layer layer) {
+            Random random = new Random(2);
+            input = createMatrix(random, batchSize, layer.cols);
+            output = new Matrix(batchSize, layer.rows);
+            delta = createMatrix(random, batchSize, layer.rows);
+            inputDelta = new Matrix(batchSize, layer.cols);
+            gradient = new Matrix(layer.rows, layer.cols);
+            floatInput = toFloats(input);
+            floatOutput = new FloatMatrix(batchSize, layer.rows);
+            floatDelta = toFloats(delta);
+            floatInputDelta = new FloatMatrix(batchSize, layer.cols);
+            floatGradient = new FloatMatrix(layer.rows, layer.cols);
+        }
+    }
+
+    // Returns a matrix of random values in the range -1 to 1.
+    private static Matrix createMatrix(Random random, int rows, int cols) {
+        return new Matrix(rows, cols, createVector(random, rows * cols));
+    }
+
+    // Returns an array of random values in the range -1 to 1.
+    private static double[] createVector(Random random, int size) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 2 * random.nextDouble() - 1;
+        }
+        return values;
+    }
+
+    // Returns a single-precision copy of a matrix.
+    private static FloatMatrix toFloats(Matrix matrix) {
+        return new FloatMatrix(matrix.rows(), matrix.cols(), toFloats(matrix.data()));
+    }
+
+    // Returns a single-precision copy of an array.
+    private static float[] toFloats(double[] values) {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
+
+    @Benchmark
+    public double[] gemv(Layer layer) {
+        Blas.gemv(layer.weights, layer.input, layer.output);
+        return layer.output;
+    }
+
+    @Benchmark
+    public double[] gemvTransposed(Layer layer) {
+        Blas.gemvTransposed(layer.weights, layer.delta, layer.inputDelta);
+        return layer.inputDelta;
+    }
+
+    @Benchmark
+    public Matrix ger(Layer layer) {
+        Blas.ger(1.0, layer.delta, layer.input, layer.gradient);
+        return layer.gradient;
+    }
+
+    @Benchmark
+    public Matrix gemmNT(Layer layer, Batch batch) {
+        Blas.gemmNT(batch.batchSize, batch.input, layer.weights, batch.output);
+        return batch.output;
+    }
+
+    @Benchmark
+    public Matrix gemm(Layer layer, Batch batch) {
+        Blas.gemm(batch.batchSize, batch.delta, layer.weights, batch.inputDelta);
+        return batch.inputDelta;
+    }
+
+    @Benchmark
+    public Matrix gemmTN(Batch batch) {
+        Blas.gemmTN(batch.batchSize, 1.0, batch.delta, batch.input, batch.gradient);
+        return batch.gradient;
+    }
+
+    @Benchmark
+    public float[] floatGemv(Layer layer) {
+        Blas.gemv(layer.floatWeights, layer.floatInput, layer.floatOutput);
+        return layer.floatOutput;
+    }
+
+    @Benchmark
+    public FloatMatrix floatGemmNT(Layer layer, Batch batch) {
+        Blas.gemmNT(batch.batchSize, batch.floatInput, layer.floatWeights, batch.floatOutput);
+        return batch.floatOutput;
+    }
+
+    @Benchmark
+    public FloatMatrix floatGemm(Layer layer, Batch batch) {
+        Blas.gemm(batch.batchSize, batch.floatDelta, layer.floatWeights, batch.floatInputDelta);
+        return batch.floatInputDelta;
+    }
+
+    @Benchmark
+    public FloatMatrix floatGemmTN(Batch batch) {
+        Blas.gemmTN(batch.batchSize, 1.0f, batch.floatDelta, batch.floatInput, batch.floatGradient);
+        return batch.floatGradient;
+    }
+}
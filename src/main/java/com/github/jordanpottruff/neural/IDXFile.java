@@ -0,0 +1,245 @@
+package com.github.jordanpottruff.neural;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Provides read-only access to a file in the IDX format used by the MNIST database. The file is memory-mapped rather
+ * than read, so opening it is cheap and values are only loaded by the operating system as they are accessed. The first
+ * dimension of the file indexes its records, and the remaining dimensions make up the values of each record.
+ */
+public class IDXFile {
+
+    private static final int UNSIGNED_BYTE = 0x08;
+    private static final int SIGNED_BYTE = 0x09;
+    private static final int SHORT = 0x0B;
+    private static final int INT = 0x0C;
+    private static final int FLOAT = 0x0D;
+    private static final int DOUBLE = 0x0E;
+
+    private final ByteBuffer buffer;
+    private final int type;
+    private final int elementSize;
+    private final int[] dimensions;
+    private final int recordLength;
+    private final int dataOffset;
+
+    // Reads the header of the mapped file.
+    private IDXFile(ByteBuffer buffer, String filename) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.limit() < 4 || buffer.get(0) != 0 || buffer.get(1) != 0) {
+            throw new IOException(filename + " is not an IDX file");
+        }
+        this.type = buffer.get(2) & 0xFF;
+        this.elementSize = getElementSize(type, filename);
+
+        this.dimensions = new int[buffer.get(3) & 0xFF];
+        if (dimensions.length == 0 || buffer.limit() < 4 + 4 * dimensions.length) {
+            throw new IOException(filename + " has an invalid IDX header");
+        }
+        // The sizes are multiplied as longs with overflow checks, so a corrupt header cannot wrap around to a size that
+        // passes the truncation check below.
+        long length = 1;
+        long expectedSize;
+        try {
+            for (int d = 0; d < dimensions.length; d++) {
+                dimensions[d] = buffer.getInt(4 + 4 * d);
+                if (dimensions[d] < 0) {
+                    throw new IOException(filename + " has a negative IDX dimension: " + dimensions[d]);
+                }
+                if (d > 0) {
+                    length = Math.multiplyExact(length, dimensions[d]);
+                }
+            }
+            expectedSize = Math.multiplyExact(Math.multiplyExact(length, dimensions[0]), elementSize);
+        } catch (ArithmeticException e) {
+            throw new IOException(filename + " has IDX dimensions that are too large", e);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException(filename + " has records that are too large: " + length + " values");
+        }
+        this.recordLength = (int) length;
+        this.dataOffset = 4 + 4 * dimensions.length;
+
+        expectedSize += dataOffset;
+        if (buffer.limit() < expectedSize) {
+            throw new IOException(filename + " is truncated: expected " + expectedSize + " bytes");
+        }
+    }
+
+    /**
+     * Memory-maps an IDX file. Files larger than 2 GB are not supported.
+     *
+     * @param filename the name of the file.
+     * @return the mapped file.
+     * @throws IOException if the file cannot be read, is too large or is not a valid IDX file.
+     */
+    public static IDXFile open(String filename) throws IOException {
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(filename + " is too large: IDX files are limited to " + Integer.MAX_VALUE
+                        + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IDXFile(buffer, filename);
+        }
+    }
+
+    // Returns the number of bytes used by each value of the given data type.
+    private static int getElementSize(int type, String filename) throws IOException {
+        switch (type) {
+            case UNSIGNED_BYTE:
+            case SIGNED_BYTE:
+                return 1;
+            case SHORT:
+                return 2;
+            case INT:
+            case FLOAT:
+                return 4;
+            case DOUBLE:
+                return 8;
+            default:
+                throw new IOException(filename + " has an unknown IDX data type: " + type);
+        }
+    }
+
+    /**
+     * Returns the size of each dimension of the file.
+     *
+     * @return the dimensions, beginning with the number of records.
+     */
+    public int[] getDimensions() {
+        return dimensions.clone();
+    }
+
+    /**
+     * Returns the number of records in the file.
+     *
+     * @return the size of the first dimension.
+     */
+    public int size() {
+        return dimensions[0];
+    }
+
+    /**
+     * Returns the number of values in each record.
+     *
+     * @return the product of every dimension after the first.
+     */
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * Returns a value of a record.
+     *
+     * @param record the index of the record.
+     * @param index  the index of the value within the record.
+     * @return the value, converted to a double.
+     * @throws IndexOutOfBoundsException if the record or index is out of range.
+     */
+    public double get(int record, int index) {
+        checkRecord(record);
+        if (index < 0 || index >= recordLength) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range for records of length "
+                    + recordLength);
+        }
+        int position = dataOffset + (record * recordLength + index) * elementSize;
+        switch (type) {
+            case UNSIGNED_BYTE:
+                return buffer.get(position) & 0xFF;
+            case SIGNED_BYTE:
+                return buffer.get(position);
+            case SHORT:
+                return buffer.getShort(position);
+            case INT:
+                return buffer.getInt(position);
+            case FLOAT:
+                return buffer.getFloat(position);
+            default:
+                return buffer.getDouble(position);
+        }
+    }
+
+    /**
+     * Returns a value of a record scaled into [0, 1] for unsigned bytes and [-1, 1] for other integer types. Floating
+     * point values are returned unchanged.
+     *
+     * @param record the index of the record.
+     * @param index  the index of the value within the record.
+     * @return the normalized value.
+     */
+    public double getNormalized(int record, int index) {
+        return get(record, index) / getNormalizationScale();
+    }
+
+    /**
+     * Copies the normalized values of a record into an array. For unsigned bytes, the common case of image data, the
+     * bytes are read directly from the mapped file.
+     *
+     * @param record      the index of the record.
+     * @param destination the array to copy the values to.
+     * @param offset      the index in the array to copy the first value to.
+     * @throws IndexOutOfBoundsException if the record is out of range.
+     */
+    public void readNormalized(int record, double[] destination, int offset) {
+        checkRecord(record);
+        if (type == UNSIGNED_BYTE) {
+            int position = dataOffset + record * recordLength;
+            for (int i = 0; i < recordLength; i++) {
+                destination[offset + i] = (buffer.get(position + i) & 0xFF) / 255.0;
+            }
+            return;
+        }
+        double scale = getNormalizationScale();
+        for (int i = 0; i < recordLength; i++) {
+            destination[offset + i] = get(record, i) / scale;
+        }
+    }
+
+    /**
+     * Returns a read-only view of the raw, big-endian bytes of a record. No values are copied.
+     *
+     * @param record the index of the record.
+     * @return a buffer positioned over the record.
+     * @throws IndexOutOfBoundsException if the record is out of range.
+     */
+    public ByteBuffer getRecordBuffer(int record) {
+        checkRecord(record);
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.position(dataOffset + record * recordLength * elementSize);
+        view.limit(view.position() + recordLength * elementSize);
+        return view.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    // Throws an exception if the record is out of range. Once it is in range, every position within the record lies in
+    // the file, which the constructor checked holds every record, so positions cannot overflow.
+    private void checkRecord(int record) {
+        if (record < 0 || record >= dimensions[0]) {
+            throw new IndexOutOfBoundsException("Record " + record + " is out of range for a file of " + dimensions[0]
+                    + " records");
+        }
+    }
+
+    // Returns the largest magnitude representable by the file's integer type, or 1 for floating point types.
+    private double getNormalizationScale() {
+        switch (type) {
+            case UNSIGNED_BYTE:
+                return 255.0;
+            case SIGNED_BYTE:
+                return 128.0;
+            case SHORT:
+                return 32768.0;
+            case INT:
+                return 2147483648.0;
+            default:
+                return 1.0;
+        }
+    }
+}
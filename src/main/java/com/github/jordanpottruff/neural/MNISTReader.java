@@ -4,11 +4,9 @@ import com.github.jordanpottruff.jgml.VecN;
 import com.github.jordanpottruff.neural.data.DataSet;
 import com.github.jordanpottruff.neural.data.Observation;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Provides functionality for reading the Modified National Institute of Standards and Technology (MNIST) database of
@@ -33,46 +31,30 @@ public class MNISTReader {
     }
 
     /**
-     * Reads the MNIST files and returns a list of the image/label combinations as an MNISTImage.
+     * Reads the MNIST files and returns a list of the image/label combinations as an MNISTImage. The files are
+     * memory-mapped, and each image is a view over its pixels in the mapped file rather than a copy.
      *
      * @return the list of MNIST image/label combinations.
      */
     public List<MNISTImage> getImages() {
-        ArrayList<MNISTImage> images = new ArrayList<>();
         try {
-            FileInputStream imageStream = new FileInputStream(imageFilename);
-            FileInputStream labelStream = new FileInputStream(labelFilename);
-
-            // Read image stream headers.
-            readNextInt(imageStream); // Magic number
-            int numberOfImages = readNextInt(imageStream);
-            readNextInt(imageStream); // Number of rows
-            readNextInt(imageStream); // Number of columns
-
-            // Read label stream headers.
-            readNextInt(labelStream); // Magic number
-            readNextInt(labelStream); // Number of labels
-
-            for (int i = 0; i < numberOfImages; i++) {
-                int label = labelStream.read();
-                ArrayList<Double> image = new ArrayList<>();
-                for (int p = 0; p < IMAGE_SIZE * IMAGE_SIZE; p++) {
-                    image.add(imageStream.read() / 255.0);
-                }
-                images.add(new MNISTImage(image, label));
+            IDXFile images = IDXFile.open(imageFilename);
+            IDXFile labels = IDXFile.open(labelFilename);
+            if (images.size() != labels.size()) {
+                throw new IOException("Found " + images.size() + " images but " + labels.size() + " labels");
+            }
+
+            List<MNISTImage> result = new ArrayList<>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                result.add(new MNISTImage(images, i, (int) labels.get(i, 0)));
             }
-            return images;
+            return result;
         } catch (IOException e) {
             e.printStackTrace();
         }
         return null;
     }
 
-    // Reads and returns 32 bits of the input stream.
-    private int readNextInt(FileInputStream input) throws IOException {
-        return (input.read() << 24) | (input.read() << 16) | (input.read() << 8) | (input.read());
-    }
-
     /**
      * Reads the MNIST files and returns a list of the image/label combinations as a DataSet.
      *
@@ -80,39 +62,64 @@ public class MNISTReader {
      */
     public DataSet getImageDataSet() {
         String[] classes = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
-        List<Observation> obs = getImages().stream().map(MNISTImage::toObservation).collect(Collectors.toList());
+        List<MNISTImage> images = getImages();
+        List<Observation> obs = new ArrayList<>(images.size());
+        for (MNISTImage image : images) {
+            obs.add(image.toObservation());
+        }
         return new DataSet(obs, classes);
     }
 
     /**
-     * Defines single images in the MNIST database.
+     * Defines single images in the MNIST database. Pixel values are read from the mapped image file and normalized to
+     * the range 0-1 as they are accessed.
      */
     public static class MNISTImage {
 
-        private final List<Double> image;
+        private final IDXFile images;
+        private final int index;
         private final int label;
 
         /**
-         * Creates an MNIST image object out of pixel data and a label.
+         * Creates an MNIST image object that views an image of a mapped file.
          *
-         * @param image the values of the pixels (each between 0-1), going top-down, left-right.
-         * @param label the label of the image (i.e. the digit).
+         * @param images the mapped image file.
+         * @param index  the index of the image within the file.
+         * @param label  the label of the image (i.e. the digit).
          */
-        public MNISTImage(List<Double> image, int label) {
-            this.image = image;
+        public MNISTImage(IDXFile images, int index, int label) {
+            this.images = images;
+            this.index = index;
             this.label = label;
         }
 
+        /**
+         * Returns the value of a pixel, between 0-1.
+         *
+         * @param p the index of the pixel, going top-down, left-right.
+         * @return the value of the pixel.
+         */
+        public double getPixel(int p) {
+            return images.getNormalized(index, p);
+        }
+
+        /**
+         * Returns the label of the image.
+         *
+         * @return the digit shown by the image.
+         */
+        public int getLabel() {
+            return label;
+        }
+
         /**
          * Converts the MNIST image object to a vector representation.
          *
          * @return a VecN storing the pixel information of the image, going top-down, left-right.
          */
         public VecN toVecN() {
-            double[] imageArray = new double[image.size()];
-            for (int i = 0; i < imageArray.length; i++) {
-                imageArray[i] = image.get(i);
-            }
+            double[] imageArray = new double[images.getRecordLength()];
+            images.readNormalized(index, imageArray, 0);
             return new VecN(imageArray);
         }
 
@@ -136,7 +143,7 @@ public class MNISTReader {
                 if (p % IMAGE_SIZE == 0) {
                     str.append("\n");
                 }
-                char symbol = image.get(p) >= 0.25 ? 'X' : '.';
+                char symbol = getPixel(p) >= 0.25 ? 'X' : '.';
                 str.append(symbol).append("  ");
             }
             str.append("\nLABEL: ").append(label);
@@ -2,17 +2,27 @@ package com.github.jordanpottruff.neural;
 
 import com.github.jordanpottruff.neural.activations.Logistic;
 import com.github.jordanpottruff.neural.activations.ReLU;
-import com.github.jordanpottruff.neural.data.DataSet;
-import com.github.jordanpottruff.neural.data.Observation;
+import com.github.jordanpottruff.neural.common.Pair;
+import com.github.jordanpottruff.neural.data.ColumnarDataSet;
 import com.github.jordanpottruff.neural.initializers.HeInitializer;
 import com.github.jordanpottruff.neural.models.BackPropNetwork;
+import com.github.jordanpottruff.neural.models.Checkpointer;
+import com.github.jordanpottruff.neural.models.QuantizedNetwork;
+import com.github.jordanpottruff.neural.training.CosineSchedule;
+import com.github.jordanpottruff.neural.training.Trainer;
+import com.github.jordanpottruff.neural.training.WarmupSchedule;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Main {
 
+    private static final String NETWORK_FILENAME = "mnist-network.bin";
+    private static final String CHECKPOINT_FILENAME = "mnist-checkpoint.bin";
+
     public static void main(String[] args) {
         String trainImageFilename = "src/main/resources/train-images.idx3-ubyte";
         String trainLabelFilename = "src/main/resources/train-labels.idx1-ubyte";
@@ -21,8 +31,14 @@ public class Main {
         MNISTReader trainDataReader = new MNISTReader(trainImageFilename, trainLabelFilename);
         MNISTReader testDataReader = new MNISTReader(testImageFilename, testLabelFilename);
 
-        DataSet trainData = trainDataReader.getImageDataSet();
-        DataSet testData = testDataReader.getImageDataSet();
+        ColumnarDataSet allTrainData = new ColumnarDataSet(trainDataReader.getImageDataSet());
+        // Hold back part of the training data to decide when to stop. The split is shuffled with a fixed seed so that
+        // a resumed run validates on the same observations.
+        allTrainData.shuffle(new Random(0));
+        Pair<ColumnarDataSet, ColumnarDataSet> split = allTrainData.split(0.9);
+        ColumnarDataSet trainData = split.getKey();
+        ColumnarDataSet validationData = split.getValue();
+        ColumnarDataSet testData = new ColumnarDataSet(testDataReader.getImageDataSet());
 
         int inputSize = 784;
         int[] hiddenSizes = {64, 32};
@@ -30,44 +46,76 @@ public class Main {
         BackPropNetwork network = new BackPropNetwork(inputSize, hiddenSizes, classes, new ReLU(), new Logistic(), new HeInitializer());
 
         int n = testData.size();
-        double startLearningRate = 0.03;
-        double endLearningRate = 0.01;
         int epochs = 50;
-        for (int i = 0; i < epochs; i++) {
-            double learningRate = startLearningRate - ((startLearningRate - endLearningRate) / epochs) * i;
-            System.out.println(learningRate);
-
-
-            network.trainConcurrent(trainData, 128, learningRate, 4);
-
-
-            BackPropNetwork.Result testResult = network.test(testData);
-            int numCorrect = testResult.correct().size();
-            double accuracy = testResult.getAccuracy() * 100;
+        // Resume from the last completed epoch if an earlier run was stopped.
+        int firstEpoch = 0;
+        if (Files.exists(Paths.get(CHECKPOINT_FILENAME))) {
+            try {
+                firstEpoch = Checkpointer.restore(network, CHECKPOINT_FILENAME) + 1;
+                System.out.println("Resuming from epoch " + firstEpoch);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Checkpointer checkpointer = new Checkpointer(network, CHECKPOINT_FILENAME);
 
-            System.out.println(String.format("Epoch %d: %d/%d = %.2f%%", i, numCorrect, n, accuracy));
-            System.out.println(getClassCount(testResult.incorrect()));
-            System.out.println(getClassCount(testResult.correct()));
-            System.out.println(network.toJSON());
+        // Warm up over the first 200 batches, then anneal from 0.03 to 0.01. Training stops once five evaluations on
+        // a sample of the validation set, made every 100 batches, fail to improve on the best. The early stopping
+        // state is not part of the checkpoint, so a resumed run starts counting evaluations without improvement afresh.
+        Trainer trainer = new Trainer(network, 128, new WarmupSchedule(200, new CosineSchedule(0.03, 0.01)));
+        trainer.setThreads(4);
+        trainer.setValidation(validationData, 100, 2000);
+        trainer.setEarlyStopping(5, 1e-4);
+        // Progress is reported from the sampled validation evaluations; the test set is only used once training ends.
+        AtomicReference<Trainer.Evaluation> lastEvaluation = new AtomicReference<>();
+        trainer.setEvaluationHook(evaluation -> {
+            lastEvaluation.set(evaluation);
+            BackPropNetwork.Result result = evaluation.getResult();
+            System.out.println(String.format("Epoch %d, batch %d: validation accuracy %.2f%%, error %.4f",
+                    evaluation.getEpoch(), evaluation.getBatch(), result.getAccuracy() * 100, result.getError()));
+        });
+        trainer.setEpochHook(epoch -> {
+            Trainer.Evaluation evaluation = lastEvaluation.get();
+            if (evaluation != null) {
+                System.out.println(String.format("Epoch %d: validation accuracy %.2f%%, best error %.4f", epoch,
+                        evaluation.getResult().getAccuracy() * 100, trainer.getBestError()));
+            }
+            try {
+                checkpointer.checkpoint(epoch);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        trainer.train(trainData, firstEpoch, epochs);
+        if (trainer.hasStoppedEarly()) {
+            System.out.println("Stopped early: the validation error is no longer improving");
+        }
+        try {
+            checkpointer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        BackPropNetwork.Result testResult = network.test(testData);
-        int numCorrect = testResult.correct().size();
+        network.shutdown();
+        BackPropNetwork.Result testResult = network.test(testData, false);
+        int numCorrect = testResult.getCorrectCount();
         double accuracy = testResult.getAccuracy() * 100;
         System.out.println(String.format("Final:  %d/%d = %.2f%%", numCorrect, n, accuracy));
+        System.out.println(testResult.getIncorrectCounts());
+        System.out.println(testResult.getCorrectCounts());
+
+        // Calibrate the 8-bit copy for serving on the validation set, so the test set is only used to measure it.
+        QuantizedNetwork quantized = QuantizedNetwork.quantize(network, validationData);
+        System.out.println("Quantized: " + quantized.compare(network, testData));
 
         System.out.println(network);
-        System.out.println(network.toJSON());
+        saveNetwork(network);
     }
 
-    public static Map<String, Integer> getClassCount(List<Observation> incorrect) {
-        Map<String, Integer> counts = new HashMap<>();
-        for (int i = 0; i < 10; i++) {
-            counts.put(Integer.toString(i), 0);
-        }
-
-        for (Observation obs : incorrect) {
-            counts.put(obs.getClassification(), counts.get(obs.getClassification()) + 1);
+    private static void saveNetwork(BackPropNetwork network) {
+        try {
+            network.save(NETWORK_FILENAME);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return counts;
     }
 }
@@ -2,6 +2,8 @@ package com.github.jordanpottruff.neural.activations;
 
 import com.github.jordanpottruff.jgml.VecN;
 
+import java.util.Arrays;
+
 /**
  * Defines an activation function.
  */
@@ -20,4 +22,118 @@ public interface ActivationFunc {
      * @return the output of the derivative function.
      */
     VecN applyPrime(VecN input);
+
+    /**
+     * Applies the activation function to the first length values of the input array, writing the results to the output
+     * array. The two arrays may be the same, in which case the function is applied in place. Implementations should
+     * override this to avoid the copies made by the default implementation.
+     * @param input the input to the function.
+     * @param output the array to write the output of the function to.
+     * @param length the number of values to apply the function to.
+     */
+    default void applyFunc(double[] input, double[] output, int length) {
+        double[] result = applyFunc(new VecN(Arrays.copyOf(input, length))).toArray();
+        System.arraycopy(result, 0, output, 0, length);
+    }
+
+    /**
+     * Applies the derivative of the activation function to the first length values of the input array, writing the
+     * results to the output array. The two arrays may be the same, in which case the derivative is applied in place.
+     * Implementations should override this to avoid the copies made by the default implementation.
+     * @param input the input to the function's derivative.
+     * @param output the array to write the output of the derivative to.
+     * @param length the number of values to apply the derivative to.
+     */
+    default void applyPrime(double[] input, double[] output, int length) {
+        double[] result = applyPrime(new VecN(Arrays.copyOf(input, length))).toArray();
+        System.arraycopy(result, 0, output, 0, length);
+    }
+
+    /**
+     * Applies the activation function to the first length values of a single-precision input array, writing the
+     * results to the output array. The two arrays may be the same. The default implementation computes the function in
+     * double precision through a temporary array; implementations should override this to avoid the copies.
+     * @param input the input to the function.
+     * @param output the array to write the output of the function to.
+     * @param length the number of values to apply the function to.
+     */
+    default void applyFunc(float[] input, float[] output, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input[i];
+        }
+        applyFunc(values, values, length);
+        for (int i = 0; i < length; i++) {
+            output[i] = (float) values[i];
+        }
+    }
+
+    /**
+     * Applies the derivative of the activation function to the first length values of a single-precision input array,
+     * writing the results to the output array. The two arrays may be the same. The default implementation computes the
+     * derivative in double precision through a temporary array; implementations should override this to avoid the
+     * copies.
+     * @param input the input to the function's derivative.
+     * @param output the array to write the output of the derivative to.
+     * @param length the number of values to apply the derivative to.
+     */
+    default void applyPrime(float[] input, float[] output, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input[i];
+        }
+        applyPrime(values, values, length);
+        for (int i = 0; i < length; i++) {
+            output[i] = (float) values[i];
+        }
+    }
+
+    /**
+     * Adds a bias to each row of a row-major block of weighted inputs and applies the activation function in place,
+     * optionally writing the derivative of the function at each value to a second array. This is the epilogue of the
+     * matrix product that computes a layer's weighted inputs: implementations should do all three steps in a single
+     * loop, so that each value is read and written once. The default implementation makes a pass for each step.
+     * @param values the weighted inputs of the rows, which are replaced by the activations.
+     * @param bias the bias of each column, added to every row.
+     * @param rows the number of rows.
+     * @param cols the number of values in each row.
+     * @param derivatives the array to write the derivative of the activation with respect to its weighted input to,
+     *                    in the same layout as the values, or null if the derivatives are not needed.
+     */
+    default void applyBiasAndFunc(double[] values, double[] bias, int rows, int cols, double[] derivatives) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            for (int c = 0; c < cols; c++) {
+                values[offset + c] += bias[c];
+            }
+        }
+        applyFunc(values, values, rows * cols);
+        if (derivatives != null) {
+            applyPrime(values, derivatives, rows * cols);
+        }
+    }
+
+    /**
+     * Adds a bias to each row of a row-major block of single-precision weighted inputs and applies the activation
+     * function in place, optionally writing its derivatives, as {@link #applyBiasAndFunc(double[], double[], int, int,
+     * double[])} does.
+     * @param values the weighted inputs of the rows, which are replaced by the activations.
+     * @param bias the bias of each column, added to every row.
+     * @param rows the number of rows.
+     * @param cols the number of values in each row.
+     * @param derivatives the array to write the derivatives to, in the same layout as the values, or null if the
+     *                    derivatives are not needed.
+     */
+    default void applyBiasAndFunc(float[] values, float[] bias, int rows, int cols, float[] derivatives) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            for (int c = 0; c < cols; c++) {
+                values[offset + c] += bias[c];
+            }
+        }
+        applyFunc(values, values, rows * cols);
+        if (derivatives != null) {
+            applyPrime(values, derivatives, rows * cols);
+        }
+    }
 }
@@ -15,9 +15,7 @@ public class Logistic implements ActivationFunc {
     @Override
     public VecN applyFunc(VecN vec) {
         double[] values = vec.toArray();
-        for (int i = 0; i < values.length; i++) {
-            values[i] = 1.0 / (1.0 + Math.exp(-values[i]));
-        }
+        applyFunc(values, values, values.length);
         return new VecN(values);
     }
 
@@ -28,9 +26,89 @@ public class Logistic implements ActivationFunc {
      */
     public VecN applyPrime(VecN vec) {
         double[] values = vec.toArray();
-        for (int i = 0; i < values.length; i++) {
-            values[i] = values[i] * (1 - values[i]);
-        }
+        applyPrime(values, values, values.length);
         return new VecN(values);
     }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyFunc(double[] input, double[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = 1.0 / (1.0 + Math.exp(-input[i]));
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyPrime(double[] input, double[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = input[i] * (1 - input[i]);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyFunc(float[] input, float[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = (float) (1.0 / (1.0 + Math.exp(-input[i])));
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyPrime(float[] input, float[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = input[i] * (1 - input[i]);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyBiasAndFunc(double[] values, double[] bias, int rows, int cols, double[] derivatives) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            if (derivatives == null) {
+                for (int c = 0; c < cols; c++) {
+                    values[offset + c] = 1.0 / (1.0 + Math.exp(-(values[offset + c] + bias[c])));
+                }
+            } else {
+                for (int c = 0; c < cols; c++) {
+                    double activation = 1.0 / (1.0 + Math.exp(-(values[offset + c] + bias[c])));
+                    values[offset + c] = activation;
+                    derivatives[offset + c] = activation * (1 - activation);
+                }
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyBiasAndFunc(float[] values, float[] bias, int rows, int cols, float[] derivatives) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            if (derivatives == null) {
+                for (int c = 0; c < cols; c++) {
+                    values[offset + c] = (float) (1.0 / (1.0 + Math.exp(-(values[offset + c] + bias[c]))));
+                }
+            } else {
+                for (int c = 0; c < cols; c++) {
+                    float activation = (float) (1.0 / (1.0 + Math.exp(-(values[offset + c] + bias[c]))));
+                    values[offset + c] = activation;
+                    derivatives[offset + c] = activation * (1 - activation);
+                }
+            }
+        }
+    }
 }
@@ -15,9 +15,7 @@ public class ReLU implements ActivationFunc {
     @Override
     public VecN applyFunc(VecN vec) {
         double[] values = vec.toArray();
-        for (int i = 0; i < values.length; i++) {
-            values[i] = Math.max(0.0, values[i]);
-        }
+        applyFunc(values, values, values.length);
         return new VecN(values);
     }
 
@@ -29,10 +27,94 @@ public class ReLU implements ActivationFunc {
     @Override
     public VecN applyPrime(VecN vec) {
         double[] values = vec.toArray();
-        for (int i = 0; i < values.length; i++) {
-            values[i] = values[i] > 0 ? 1 : 0;
+        applyPrime(values, values, values.length);
+        return new VecN(values);
+    }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyFunc(double[] input, double[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = Math.max(0.0, input[i]);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyPrime(double[] input, double[] output, int length) {
+        // The comparison is false for NaN, so a NaN input masks the unit instead of spreading through the backward
+        // pass. The loop body has no other control flow, which lets the JIT compile the select to a conditional move
+        // rather than a branch that would be mispredicted about half the time.
+        for (int i = 0; i < length; i++) {
+            output[i] = input[i] > 0.0 ? 1.0 : 0.0;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyFunc(float[] input, float[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = Math.max(0.0f, input[i]);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyPrime(float[] input, float[] output, int length) {
+        // The same select as the double-precision derivative.
+        for (int i = 0; i < length; i++) {
+            output[i] = input[i] > 0.0f ? 1.0f : 0.0f;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyBiasAndFunc(double[] values, double[] bias, int rows, int cols, double[] derivatives) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            if (derivatives == null) {
+                for (int c = 0; c < cols; c++) {
+                    values[offset + c] = Math.max(0.0, values[offset + c] + bias[c]);
+                }
+            } else {
+                // The derivative is computed from the activation with the same select as applyPrime.
+                for (int c = 0; c < cols; c++) {
+                    double activation = Math.max(0.0, values[offset + c] + bias[c]);
+                    values[offset + c] = activation;
+                    derivatives[offset + c] = activation > 0.0 ? 1.0 : 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void applyBiasAndFunc(float[] values, float[] bias, int rows, int cols, float[] derivatives) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            if (derivatives == null) {
+                for (int c = 0; c < cols; c++) {
+                    values[offset + c] = Math.max(0.0f, values[offset + c] + bias[c]);
+                }
+            } else {
+                for (int c = 0; c < cols; c++) {
+                    float activation = Math.max(0.0f, values[offset + c] + bias[c]);
+                    values[offset + c] = activation;
+                    derivatives[offset + c] = activation > 0.0f ? 1.0f : 0.0f;
+                }
+            }
         }
-        return new VecN(values);
     }
 }
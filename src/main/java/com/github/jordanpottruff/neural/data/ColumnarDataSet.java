@@ -0,0 +1,208 @@
+package com.github.jordanpottruff.neural.data;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.common.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A data set that stores every attribute value in a single contiguous array and every classification as a class index.
+ * Compared to {@link DataSet}, which keeps one vector and one string per observation, this greatly reduces the memory
+ * footprint and lets batches be copied straight out of the array. Attribute values are stored as floats.
+ * <p>
+ * Shuffling permutes an array of indices rather than the data itself. Observations returned by
+ * {@link #getObservation(int)} are created on demand, so training should read through
+ * {@link #copyAttributes(int, double[], int)} and {@link #getClassIndex(int)} instead.
+ */
+public class ColumnarDataSet implements NetworkDataSet {
+
+    private final Random random = new Random();
+    private final float[] attributes;
+    private final int[] labels;
+    private final int attributeCount;
+    private final String[] classes;
+    // The position of each observation in the stored arrays, in the current order of the data set.
+    private final int[] order;
+
+    /**
+     * Creates a columnar data set from primitive arrays. The arrays are not copied.
+     *
+     * @param attributes     the attribute values of every observation, one observation after another.
+     * @param labels         the index of each observation's class.
+     * @param attributeCount the number of attributes of each observation.
+     * @param classes        the classes that the observations can belong to.
+     */
+    public ColumnarDataSet(float[] attributes, int[] labels, int attributeCount, String[] classes) {
+        if (attributes.length != labels.length * attributeCount) {
+            throw new IllegalArgumentException("Expected " + labels.length * attributeCount + " attribute values but "
+                    + "received " + attributes.length);
+        }
+        this.attributes = attributes;
+        this.labels = labels;
+        this.attributeCount = attributeCount;
+        this.classes = classes.clone();
+        this.order = new int[labels.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+    }
+
+    /**
+     * Creates a columnar copy of another data set, in its current order.
+     *
+     * @param dataSet the data set to copy.
+     * @throws IllegalArgumentException if an observation's classification is not one of the data set's classes.
+     */
+    public ColumnarDataSet(NetworkDataSet dataSet) {
+        this(copyAttributes(dataSet), copyLabels(dataSet), getAttributeCount(dataSet), dataSet.getClasses());
+    }
+
+    // Returns the number of attributes of the data set's observations, or 0 if it is empty.
+    private static int getAttributeCount(NetworkDataSet dataSet) {
+        return dataSet.size() == 0 ? 0 : dataSet.getObservation(0).getAttributes().size();
+    }
+
+    private static float[] copyAttributes(NetworkDataSet dataSet) {
+        int attributeCount = getAttributeCount(dataSet);
+        float[] values = new float[dataSet.size() * attributeCount];
+        double[] row = new double[attributeCount];
+        for (int i = 0; i < dataSet.size(); i++) {
+            dataSet.copyAttributes(i, row, 0);
+            for (int a = 0; a < attributeCount; a++) {
+                values[i * attributeCount + a] = (float) row[a];
+            }
+        }
+        return values;
+    }
+
+    private static int[] copyLabels(NetworkDataSet dataSet) {
+        int[] labels = new int[dataSet.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = dataSet.getClassIndex(i);
+            if (labels[i] < 0) {
+                throw new IllegalArgumentException("Observation " + i + " does not belong to any of the classes");
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Returns the number of attributes of each observation.
+     *
+     * @return the number of attributes.
+     */
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String[] getClasses() {
+        return classes.clone();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Observation getObservation(int i) {
+        double[] values = new double[attributeCount];
+        copyAttributes(i, values, 0);
+        return new Observation(new VecN(values), classes[getClassIndex(i)]);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<Observation> getAllObservations() {
+        List<Observation> observations = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            observations.add(getObservation(i));
+        }
+        return observations;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Pair<ColumnarDataSet, ColumnarDataSet> split(double percentage) {
+        int cutoff = (int) Math.ceil(size() * percentage - 1);
+        int leftSize = Math.max(0, Math.min(size(), cutoff + 1));
+        return new Pair<>(copyRange(0, leftSize), copyRange(leftSize, size()));
+    }
+
+    // Returns a new data set holding the observations in the range [from, to), in the current order.
+    private ColumnarDataSet copyRange(int from, int to) {
+        float[] rangeAttributes = new float[(to - from) * attributeCount];
+        int[] rangeLabels = new int[to - from];
+        for (int i = from; i < to; i++) {
+            int position = order[i];
+            System.arraycopy(attributes, position * attributeCount, rangeAttributes, (i - from) * attributeCount,
+                    attributeCount);
+            rangeLabels[i - from] = labels[position];
+        }
+        return new ColumnarDataSet(rangeAttributes, rangeLabels, attributeCount, classes);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle() {
+        shuffle(random);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle(Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void copyAttributes(int i, double[] destination, int offset) {
+        int position = order[i] * attributeCount;
+        for (int a = 0; a < attributeCount; a++) {
+            destination[offset + a] = attributes[position + a];
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void copyAttributes(int i, float[] destination, int offset) {
+        System.arraycopy(attributes, order[i] * attributeCount, destination, offset, attributeCount);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int getClassIndex(int i) {
+        return labels[order[i]];
+    }
+}
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Data sets are composed of a collection of observations and additional information about the classification of these
@@ -86,4 +87,26 @@ public class DataSet implements NetworkDataSet {
     public void shuffle() {
         Collections.shuffle(observations);
     }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle(Random random) {
+        Collections.shuffle(observations, random);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int getClassIndex(int i) {
+        String classification = observations.get(i).getClassification();
+        for (int c = 0; c < classes.length; c++) {
+            if (classification.equals(classes[c])) {
+                return c;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,427 @@
+package com.github.jordanpottruff.neural.data;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.common.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A data set stored in a memory-mapped file rather than on the heap, so that its size is limited by the disk instead of
+ * the heap. The operating system pages observations in as they are read and can evict them under memory pressure, and
+ * the garbage collector never sees the data, so pauses do not grow with the size of the data set.
+ * <p>
+ * The file is mapped in segments of whole observations, each smaller than 2 GB, so files of any size can be opened.
+ * Training reads observations through {@link #copyAttributes(int, double[], int)} and {@link #getClassIndex(int)},
+ * which decode values straight from the mapping into the caller's buffer. {@link #getObservation(int)} and
+ * {@link #getAllObservations()} create heap copies and should be avoided for large data sets.
+ * <p>
+ * Files are written with {@link Writer} or {@link #write(String, NetworkDataSet, Encoding)}. The format is a
+ * little-endian header holding the encoding, the attribute count, the observation count and the class names, followed
+ * by one record per observation: its class index as an int, then its attribute values in the file's encoding.
+ */
+public class MappedDataSet implements NetworkDataSet {
+
+    private static final int MAGIC = 0x4E445331;
+    // The largest number of bytes mapped by a single segment.
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    /**
+     * The representations that attribute values can be stored with.
+     */
+    public enum Encoding {
+        /**
+         * Values in [0, 1] stored as a single unsigned byte each, as is common for image data. Values are rounded to
+         * the nearest multiple of 1/255 and clamped into [0, 1] when written.
+         */
+        UNSIGNED_BYTE(1),
+        /**
+         * Values stored as 32-bit floats.
+         */
+        FLOAT(4);
+
+        private final int size;
+
+        Encoding(int size) {
+            this.size = size;
+        }
+    }
+
+    private final Random random = new Random();
+    private final ByteBuffer[] segments;
+    private final int recordsPerSegment;
+    private final Encoding encoding;
+    private final int attributeCount;
+    private final String[] classes;
+    // The index of each observation in the file, in the current order of the data set.
+    private final int[] order;
+
+    // Creates a view of the given observations of a mapped file.
+    private MappedDataSet(ByteBuffer[] segments, int recordsPerSegment, Encoding encoding, int attributeCount,
+                          String[] classes, int[] order) {
+        this.segments = segments;
+        this.recordsPerSegment = recordsPerSegment;
+        this.encoding = encoding;
+        this.attributeCount = attributeCount;
+        this.classes = classes;
+        this.order = order;
+    }
+
+    /**
+     * Memory-maps a data set file.
+     *
+     * @param filename the name of the file.
+     * @return the mapped data set.
+     * @throws IOException if the file cannot be read or is not a valid data set file.
+     */
+    public static MappedDataSet open(String filename) throws IOException {
+        return open(filename, MAX_SEGMENT_BYTES);
+    }
+
+    // Memory-maps a data set file with segments of at most the given number of bytes.
+    static MappedDataSet open(String filename, long maxSegmentBytes) throws IOException {
+        // The mappings stay valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(filename + " is not a data set file");
+            }
+            int encodingOrdinal = header.getInt(4);
+            int attributeCount = header.getInt(8);
+            int classCount = header.getInt(12);
+            int size = header.getInt(16);
+            if (encodingOrdinal < 0 || encodingOrdinal >= Encoding.values().length || attributeCount < 0
+                    || classCount < 0 || size < 0) {
+                throw new IOException(filename + " has an invalid data set header");
+            }
+            Encoding encoding = Encoding.values()[encodingOrdinal];
+
+            // Read the class names, each stored as a short length followed by UTF-8 bytes.
+            String[] classes = new String[classCount];
+            long position = header.capacity();
+            ByteBuffer length = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int c = 0; c < classCount; c++) {
+                readFully(channel, length, position);
+                ByteBuffer name = ByteBuffer.allocate(length.getShort(0) & 0xFFFF);
+                readFully(channel, name, position + 2);
+                classes[c] = new String(name.array(), StandardCharsets.UTF_8);
+                position += 2 + name.capacity();
+            }
+
+            int recordBytes = 4 + attributeCount * encoding.size;
+            long expectedSize = position + (long) size * recordBytes;
+            if (channel.size() < expectedSize) {
+                throw new IOException(filename + " is truncated: expected " + expectedSize + " bytes");
+            }
+
+            // Map the records in segments of whole records.
+            int recordsPerSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxSegmentBytes / recordBytes));
+            ByteBuffer[] segments = new ByteBuffer[(size + recordsPerSegment - 1) / recordsPerSegment];
+            for (int s = 0; s < segments.length; s++) {
+                int records = Math.min(recordsPerSegment, size - s * recordsPerSegment);
+                long offset = position + (long) s * recordsPerSegment * recordBytes;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) records * recordBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            return new MappedDataSet(segments, recordsPerSegment, encoding, attributeCount, classes, order);
+        }
+    }
+
+    // Fills the buffer with bytes from the channel, starting at the given position.
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of data set file");
+            }
+        }
+    }
+
+    /**
+     * Writes a data set to a file that can be opened with {@link #open(String)}. Observations are copied one at a
+     * time, in the data set's current order.
+     *
+     * @param filename the name of the file to write.
+     * @param dataSet  the data set to write.
+     * @param encoding the representation of the attribute values.
+     * @throws IOException              if the file cannot be written.
+     * @throws IllegalArgumentException if an observation's classification is not one of the data set's classes.
+     */
+    public static void write(String filename, NetworkDataSet dataSet, Encoding encoding) throws IOException {
+        int attributeCount = dataSet.size() == 0 ? 0 : dataSet.getObservation(0).getAttributes().size();
+        double[] attributes = new double[attributeCount];
+        try (Writer writer = new Writer(filename, encoding, attributeCount, dataSet.getClasses())) {
+            for (int i = 0; i < dataSet.size(); i++) {
+                dataSet.copyAttributes(i, attributes, 0);
+                writer.add(attributes, dataSet.getClassIndex(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of attributes of each observation.
+     *
+     * @return the number of attributes.
+     */
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    /**
+     * Returns the representation of the attribute values in the file.
+     *
+     * @return the encoding.
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String[] getClasses() {
+        return classes.clone();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Observation getObservation(int i) {
+        double[] values = new double[attributeCount];
+        copyAttributes(i, values, 0);
+        return new Observation(new VecN(values), classes[getClassIndex(i)]);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<Observation> getAllObservations() {
+        List<Observation> observations = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            observations.add(getObservation(i));
+        }
+        return observations;
+    }
+
+    /**
+     * Splits the data set into two views of the same mapped file. No observations are copied.
+     *
+     * @param percentage the percentage of data in the first returned data set (key of returned pair).
+     * @return a pair of data sets.
+     */
+    @Override
+    public Pair<MappedDataSet, MappedDataSet> split(double percentage) {
+        int cutoff = (int) Math.ceil(size() * percentage - 1);
+        int leftSize = Math.max(0, Math.min(size(), cutoff + 1));
+        return new Pair<>(view(0, leftSize), view(leftSize, size()));
+    }
+
+    // Returns a data set of the observations in the range [from, to), in the current order.
+    private MappedDataSet view(int from, int to) {
+        return new MappedDataSet(segments, recordsPerSegment, encoding, attributeCount, classes,
+                Arrays.copyOfRange(order, from, to));
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle() {
+        shuffle(random);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle(Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void copyAttributes(int i, double[] destination, int offset) {
+        int record = order[i];
+        ByteBuffer segment = segments[record / recordsPerSegment];
+        // Skip the class index at the start of the record.
+        int position = (record % recordsPerSegment) * (4 + attributeCount * encoding.size) + 4;
+        if (encoding == Encoding.UNSIGNED_BYTE) {
+            for (int a = 0; a < attributeCount; a++) {
+                destination[offset + a] = (segment.get(position + a) & 0xFF) / 255.0;
+            }
+        } else {
+            for (int a = 0; a < attributeCount; a++) {
+                destination[offset + a] = segment.getFloat(position + 4 * a);
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void copyAttributes(int i, float[] destination, int offset) {
+        int record = order[i];
+        ByteBuffer segment = segments[record / recordsPerSegment];
+        // Skip the class index at the start of the record.
+        int position = (record % recordsPerSegment) * (4 + attributeCount * encoding.size) + 4;
+        if (encoding == Encoding.UNSIGNED_BYTE) {
+            for (int a = 0; a < attributeCount; a++) {
+                destination[offset + a] = (segment.get(position + a) & 0xFF) / 255.0f;
+            }
+        } else {
+            for (int a = 0; a < attributeCount; a++) {
+                destination[offset + a] = segment.getFloat(position + 4 * a);
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int getClassIndex(int i) {
+        int record = order[i];
+        ByteBuffer segment = segments[record / recordsPerSegment];
+        return segment.getInt((record % recordsPerSegment) * (4 + attributeCount * encoding.size));
+    }
+
+    /**
+     * Writes observations to a data set file one at a time, so that data sets larger than the heap can be created
+     * without holding them in memory.
+     */
+    public static class Writer implements Closeable {
+
+        // The number of bytes buffered before they are written to the file.
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        private final FileChannel channel;
+        private final Encoding encoding;
+        private final int attributeCount;
+        private final int classCount;
+        private final ByteBuffer buffer;
+        private final long countPosition;
+        private int size = 0;
+
+        /**
+         * Creates a new data set file, replacing any existing file, and writes its header.
+         *
+         * @param filename       the name of the file to write.
+         * @param encoding       the representation of the attribute values.
+         * @param attributeCount the number of attributes of each observation.
+         * @param classes        the classes that the observations can belong to.
+         * @throws IOException if the file cannot be written.
+         */
+        public Writer(String filename, Encoding encoding, int attributeCount, String[] classes) throws IOException {
+            this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.encoding = encoding;
+            this.attributeCount = attributeCount;
+            this.classCount = classes.length;
+            this.buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 4 + attributeCount * encoding.size))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC).putInt(encoding.ordinal()).putInt(attributeCount).putInt(classes.length);
+            // The observation count is filled in when the writer is closed.
+            this.countPosition = buffer.position();
+            buffer.putInt(0);
+            for (String name : classes) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(2 + bytes.length);
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+        }
+
+        /**
+         * Appends an observation to the file.
+         *
+         * @param attributes the attribute values of the observation.
+         * @param classIndex the index of the observation's class.
+         * @throws IOException              if the file cannot be written.
+         * @throws IllegalArgumentException if the class index is not the index of a class.
+         */
+        public void add(double[] attributes, int classIndex) throws IOException {
+            if (classIndex < 0 || classIndex >= classCount) {
+                throw new IllegalArgumentException("Class index " + classIndex + " is not the index of a class");
+            }
+            ensureCapacity(4 + attributeCount * encoding.size);
+            buffer.putInt(classIndex);
+            if (encoding == Encoding.UNSIGNED_BYTE) {
+                for (int a = 0; a < attributeCount; a++) {
+                    double value = Math.max(0, Math.min(1, attributes[a]));
+                    buffer.put((byte) Math.round(value * 255));
+                }
+            } else {
+                for (int a = 0; a < attributeCount; a++) {
+                    buffer.putFloat((float) attributes[a]);
+                }
+            }
+            size++;
+        }
+
+        // Writes the buffered bytes to the file if fewer than the given number of bytes remain in the buffer.
+        private void ensureCapacity(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes any buffered observations and the final observation count, then closes the file.
+         *
+         * @throws IOException if the file cannot be written.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, size);
+                channel.write(count, countPosition);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
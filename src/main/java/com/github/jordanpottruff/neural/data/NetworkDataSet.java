@@ -1,8 +1,10 @@
 package com.github.jordanpottruff.neural.data;
 
+import com.github.jordanpottruff.jgml.VecN;
 import com.github.jordanpottruff.neural.common.Pair;
 
 import java.util.List;
+import java.util.Random;
 
 /**
  * Defines a data set to be used in a neural network. A data set is composed of a series of observations.
@@ -16,6 +18,11 @@ public interface NetworkDataSet {
      */
     int size();
 
+    /**
+     * Returns the classes that the observations can belong to.
+     *
+     * @return the names of the classes.
+     */
     String[] getClasses();
 
     /**
@@ -38,11 +45,69 @@ public interface NetworkDataSet {
      * @param percentage the percentage of data in the first returned data set (key of returned pair).
      * @return a pair of data sets.
      */
-    Pair<DataSet, DataSet> split(double percentage);
+    Pair<? extends NetworkDataSet, ? extends NetworkDataSet> split(double percentage);
 
     /**
      * Shuffles the data.
      */
     void shuffle();
 
+    /**
+     * Shuffles the data using the given source of randomness, so that the order can be reproduced by reusing the same
+     * seed or state. Implementations that cannot shuffle with a given source fall back to {@link #shuffle()}.
+     *
+     * @param random the source of randomness.
+     */
+    default void shuffle(Random random) {
+        shuffle();
+    }
+
+    /**
+     * Copies the attributes of the ith observation into an array. Implementations backed by primitive storage should
+     * override this to copy directly, without creating an observation.
+     *
+     * @param i           the index of the observation.
+     * @param destination the array to copy the attribute values to.
+     * @param offset      the index in the array to copy the first attribute value to.
+     */
+    default void copyAttributes(int i, double[] destination, int offset) {
+        VecN attributes = getObservation(i).getAttributes();
+        for (int a = 0; a < attributes.size(); a++) {
+            destination[offset + a] = attributes.get(a);
+        }
+    }
+
+    /**
+     * Copies the attributes of the ith observation into a single-precision array, as used by
+     * {@link com.github.jordanpottruff.neural.models.FloatNetwork}. Implementations that store attributes as floats
+     * should override this to copy them without rounding through doubles.
+     *
+     * @param i           the index of the observation.
+     * @param destination the array to copy the attribute values to.
+     * @param offset      the index in the array to copy the first attribute value to.
+     */
+    default void copyAttributes(int i, float[] destination, int offset) {
+        VecN attributes = getObservation(i).getAttributes();
+        for (int a = 0; a < attributes.size(); a++) {
+            destination[offset + a] = (float) attributes.get(a);
+        }
+    }
+
+    /**
+     * Returns the position of the ith observation's classification within the data set's classes.
+     *
+     * @param i the index of the observation.
+     * @return the index of the observation's class, or -1 if it is not one of the data set's classes.
+     */
+    default int getClassIndex(int i) {
+        String classification = getObservation(i).getClassification();
+        String[] classes = getClasses();
+        for (int c = 0; c < classes.length; c++) {
+            if (classification.equals(classes[c])) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
 }
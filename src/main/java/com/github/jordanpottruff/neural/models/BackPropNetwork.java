@@ -4,16 +4,25 @@ import com.github.jordanpottruff.jgml.MatMN;
 import com.github.jordanpottruff.jgml.VecN;
 import com.github.jordanpottruff.neural.activations.ActivationFunc;
 import com.github.jordanpottruff.neural.common.Pair;
-import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
 import com.github.jordanpottruff.neural.data.Observation;
 import com.github.jordanpottruff.neural.initializers.Initializer;
+import com.github.jordanpottruff.neural.optimizers.Optimizer;
+import com.github.jordanpottruff.neural.optimizers.SGD;
+import com.github.jordanpottruff.neural.tensor.Blas;
+import com.github.jordanpottruff.neural.tensor.Matrix;
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -21,13 +30,24 @@ import java.util.stream.Collectors;
  */
 public class BackPropNetwork implements Network {
 
+    // The number of mini-batches that are packed ahead of training.
+    private static final int PREFETCH_DEPTH = 2;
+
     final List<Integer> layerSizes;
     final String[] classes;
-    final List<MatMN> weights;
-    final List<VecN> biases;
+    final Matrix[] weights;
+    final double[][] biases;
     final ActivationFunc hiddenActFunc;
     final ActivationFunc outputActFunc;
     final Initializer init;
+    // The source of randomness for shuffling training data, which is saved by checkpoints so that runs can resume.
+    Random random = new Random();
+    private Optimizer optimizer;
+
+    // The pool that concurrent training runs on, which lives as long as the network unless it was injected.
+    private ExecutorService trainingExecutor;
+    private int trainingExecutorThreads;
+    private boolean ownsTrainingExecutor;
 
     /**
      * Creates a new back propagation neural network.
@@ -49,6 +69,44 @@ public class BackPropNetwork implements Network {
         this.biases = this.generateBiases(this.layerSizes);
         this.hiddenActFunc = hiddenActFunc;
         this.outputActFunc = outputActFunc;
+        setOptimizer(new SGD());
+    }
+
+    // Creates a network from existing parameters, as read from a model file. Such a network has no initializer.
+    BackPropNetwork(List<Integer> layerSizes, String[] classes, Matrix[] weights, double[][] biases,
+                    ActivationFunc hiddenActFunc, ActivationFunc outputActFunc) {
+        this.init = null;
+        this.layerSizes = layerSizes;
+        this.classes = classes;
+        this.weights = weights;
+        this.biases = biases;
+        this.hiddenActFunc = hiddenActFunc;
+        this.outputActFunc = outputActFunc;
+        setOptimizer(new SGD());
+    }
+
+    /**
+     * Reads a network from a file written by {@link #save(String)}. The file is memory-mapped and its parameters are
+     * copied in bulk, so loading does not parse any values. The activation functions are recreated from their class
+     * names and must have a public no-argument constructor.
+     *
+     * @param filename the name of the file.
+     * @return the network.
+     * @throws IOException if the file cannot be read or is not a valid model file.
+     */
+    public static BackPropNetwork load(String filename) throws IOException {
+        return ModelFormat.read(filename);
+    }
+
+    /**
+     * Writes the network to a file in a compact, versioned binary format: a header with the layer sizes, the
+     * activation functions and the classes, followed by the little-endian weights and biases of each layer.
+     *
+     * @param filename the name of the file, which is replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(String filename) throws IOException {
+        ModelFormat.write(this, filename);
     }
 
     private List<Integer> createLayerSizes(int inputSize, int[] hiddenSizes, String[] classes) {
@@ -59,177 +117,593 @@ public class BackPropNetwork implements Network {
         return layerSizes;
     }
 
-    // Returns a list of random weight matrices that conform to the specifications of the layer sizes.
-    private List<MatMN> generateWeights(List<Integer> layerSizes) {
-        List<MatMN> randomWeights = new ArrayList<>();
+    // Returns an array of random weight matrices that conform to the specifications of the layer sizes.
+    private Matrix[] generateWeights(List<Integer> layerSizes) {
+        Matrix[] randomWeights = new Matrix[layerSizes.size() - 1];
         for (int i = 1; i < layerSizes.size(); i++) {
             int rows = layerSizes.get(i);
             int cols = layerSizes.get(i - 1);
-            randomWeights.add(randomMatrix(rows, cols, layerSizes.get(i - 1)));
+            randomWeights[i - 1] = randomMatrix(rows, cols, layerSizes.get(i - 1));
         }
         return randomWeights;
     }
 
     // Returns a single random matrix of size rows x cols.
-    private MatMN randomMatrix(int rows, int cols, int prevLayerSize) {
-        double[][] values = new double[cols][rows];
+    private Matrix randomMatrix(int rows, int cols, int prevLayerSize) {
+        Matrix matrix = new Matrix(rows, cols);
+        // Weights are drawn column by column so that seeded initializers produce the same networks as before.
         for (int c = 0; c < cols; c++) {
             for (int r = 0; r < rows; r++) {
-                values[c][r] = init.getWeight(prevLayerSize);
-
+                matrix.set(r, c, init.getWeight(prevLayerSize));
             }
         }
-        return new MatMN(values);
+        return matrix;
     }
 
-    // Returns a list of random bias vectors that conform to the specifications of the layer sizes.
-    private List<VecN> generateBiases(List<Integer> layerSizes) {
-        List<VecN> randomBiases = new ArrayList<>();
+    // Returns an array of zeroed bias vectors that conform to the specifications of the layer sizes.
+    private double[][] generateBiases(List<Integer> layerSizes) {
+        double[][] biases = new double[layerSizes.size() - 1][];
         // No bias is added to the input layer, so we begin at i=1.
         for (int i = 1; i < layerSizes.size(); i++) {
-            randomBiases.add(new VecN(new double[layerSizes.get(i)]));
+            biases[i - 1] = new double[layerSizes.get(i)];
         }
-        return randomBiases;
+        return biases;
     }
 
     /**
      * @inheritDoc
      */
     @Override
-    public void train(DataSet trainingSet, int miniBatchSize, double learningRate) {
-        // Shuffle training set and split into mini batches.
-        trainingSet.shuffle();
-        List<List<Observation>> miniBatches = Util.getMiniBatches(trainingSet, miniBatchSize);
-
-        // Perform gradient descent on each mini batch.
-        for (List<Observation> batch : miniBatches) {
-            // Initialize the batch's gradient to be the gradient of the first observation in the batch.
-            Pair<MatMN[], VecN[]> firstGradient = calculateGradient(batch.get(0));
-            MatMN[] batchWeightGradient = firstGradient.getKey();
-            VecN[] batchBiasGradient = firstGradient.getValue();
-
-            // Add the gradients from the remaining observations in the batch.
-            for (int o = 1; o < batch.size(); o++) {
-                Pair<MatMN[], VecN[]> obsGradient = calculateGradient(batch.get(o));
-
-                for (int l = 0; l < weights.size(); l++) {
-                    batchWeightGradient[l] = batchWeightGradient[l].add(obsGradient.getKey()[l]);
-                    batchBiasGradient[l] = batchBiasGradient[l].add(obsGradient.getValue()[l]);
-                }
-            }
+    public void train(NetworkDataSet trainingSet, int miniBatchSize, double learningRate) {
+        train(trainingSet, miniBatchSize, batch -> learningRate);
+    }
 
-            // Update weights and biases.
-            for (int l = 0; l < weights.size(); l++) {
-                weights.set(l, weights.get(l).add(batchWeightGradient[l].scale(-learningRate / batch.size())));
-                biases.set(l, biases.get(l).add(batchBiasGradient[l].scale(-learningRate / batch.size())));
+    /**
+     * Trains the network for a single epoch as in {@link #train(NetworkDataSet, int, double)}, with the learning rate
+     * of each mini-batch chosen by a controller that may also end the epoch early. If the calling thread is
+     * interrupted, the epoch ends after the current mini-batch and the thread's interrupt status is left set.
+     *
+     * @param trainingSet   the data set to train the network on.
+     * @param miniBatchSize the size of the mini-batches to be used in gradient descent.
+     * @param controller    the controller of the epoch.
+     */
+    public void train(NetworkDataSet trainingSet, int miniBatchSize, TrainingController controller) {
+        // Shuffle training set. Mini batches are consecutive ranges of the shuffled set, packed in the background.
+        trainingSet.shuffle(random);
+
+        // The workspace is allocated once and reused by every mini batch.
+        TrainingWorkspace workspace = new TrainingWorkspace(layerSizes, Math.min(miniBatchSize, trainingSet.size()));
+
+        try (BatchPrefetcher prefetcher = createPrefetcher(trainingSet, miniBatchSize)) {
+            // Perform gradient descent on each mini batch.
+            int batchIndex = 0;
+            for (BatchPrefetcher.Batch batch = prefetcher.take(); batch != null; batch = prefetcher.take()) {
+                int size = batch.size;
+                loadBatch(batch, 0, size, workspace);
+                prefetcher.release(batch);
+
+                // Sum the gradients of every observation in the batch with one pass over the whole batch.
+                accumulateBatchGradient(size, workspace);
+
+                // Update weights and biases.
+                applyGradient(workspace, size, controller.getLearningRate(batchIndex));
+                if (!controller.batchCompleted(batchIndex++)) {
+                    break;
+                }
             }
+        } catch (InterruptedException e) {
+            // Stop after the last complete mini-batch, leaving the interrupt status set so the caller can tell that
+            // the epoch was cut short.
+            Thread.currentThread().interrupt();
         }
     }
 
+    // Starts packing the mini-batches of the data set in its current order on a background thread.
+    private BatchPrefetcher createPrefetcher(NetworkDataSet dataSet, int miniBatchSize) {
+        return new BatchPrefetcher(dataSet, getClassMap(dataSet), layerSizes.get(0), miniBatchSize, PREFETCH_DEPTH);
+    }
+
     /**
-     * Trains the network using concurrency within a single mini-batch.
+     * Trains the network using concurrency within a single mini-batch. Each thread computes the gradient of its share
+     * of the batch in its own workspace, after which the gradients are summed with a parallel tree reduction. Threads
+     * are taken from the network's training executor, which is created on first use and reused by later calls, while
+     * the next mini-batches are packed on a background thread. With more than one thread, each thread computes its
+     * matrix products itself rather than dividing them among the threads of a fork-join pool.
      *
      * @param trainingSet   the data to train on.
      * @param miniBatchSize the size of each mini-batch.
      * @param learningRate  the learning rate.
      * @param threads       the number of threads to use.
      */
-    public void trainConcurrent(DataSet trainingSet, int miniBatchSize, double learningRate, int threads) {
-        // Shuffle training set and split into mini batches.
-        trainingSet.shuffle();
-        List<List<Observation>> miniBatches = Util.getMiniBatches(trainingSet, miniBatchSize);
-
-        // Perform gradient descent on each mini batch.
-        for (final List<Observation> batch : miniBatches) {
-            // Initialize the batch's gradient to be the gradient of the first observation in the batch.
-            Pair<MatMN[], VecN[]> firstGradient = calculateGradient(batch.get(0));
-            MatMN[] batchWeightGradient = firstGradient.getKey();
-            VecN[] batchBiasGradient = firstGradient.getValue();
-
-            // Create executor service.
-            ExecutorService execService = Executors.newFixedThreadPool(threads);
-            for (int o = 1; o < batch.size(); o++) {
-                int finalO = o;
-
-                // Execute gradient updates for the remaining observations in the batch.
-                execService.execute(() -> {
-                    Pair<MatMN[], VecN[]> gradient = calculateGradient(batch.get(finalO));
-                    for (int l = 0; l < weights.size(); l++) {
-                        synchronized (batchWeightGradient) {
-                            batchWeightGradient[l] = batchWeightGradient[l].add(gradient.getKey()[l]);
-                        }
-                        synchronized (batchBiasGradient) {
-                            batchBiasGradient[l] = batchBiasGradient[l].add(gradient.getValue()[l]);
-                        }
+    public void trainConcurrent(NetworkDataSet trainingSet, int miniBatchSize, double learningRate, int threads) {
+        trainConcurrent(trainingSet, miniBatchSize, batch -> learningRate, threads);
+    }
+
+    /**
+     * Trains the network for a single epoch as in {@link #trainConcurrent(NetworkDataSet, int, double, int)}, with the
+     * learning rate of each mini-batch chosen by a controller that may also end the epoch early. If the calling thread
+     * is interrupted, the epoch ends after the current mini-batch and the thread's interrupt status is left set.
+     *
+     * @param trainingSet   the data to train on.
+     * @param miniBatchSize the size of each mini-batch.
+     * @param controller    the controller of the epoch.
+     * @param threads       the number of threads to use.
+     */
+    public void trainConcurrent(NetworkDataSet trainingSet, int miniBatchSize, TrainingController controller,
+                                int threads) {
+        // Shuffle training set. Mini batches are consecutive ranges of the shuffled set, packed in the background.
+        trainingSet.shuffle(random);
+        ExecutorService executor = getTrainingExecutor(threads);
+
+        // Each worker accumulates its share of a batch into its own workspace, so no locking is needed. Several
+        // workers already keep the processors busy between them, so their kernels stay on their own threads.
+        int shareSize = (Math.min(miniBatchSize, trainingSet.size()) + threads - 1) / threads;
+        TrainingWorkspace[] workspaces = new TrainingWorkspace[threads];
+        for (int t = 0; t < threads; t++) {
+            workspaces[t] = new TrainingWorkspace(layerSizes, shareSize, threads == 1);
+        }
+
+        try (BatchPrefetcher prefetcher = createPrefetcher(trainingSet, miniBatchSize)) {
+            // Perform gradient descent on each mini batch.
+            int batchIndex = 0;
+            BatchPrefetcher.Batch next;
+            while ((next = prefetcher.take()) != null) {
+                BatchPrefetcher.Batch batch = next;
+                int size = batch.size;
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    TrainingWorkspace workspace = workspaces[t];
+                    int from = Math.min(t * shareSize, size);
+                    int to = Math.min(from + shareSize, size);
+                    if (from < to) {
+                        tasks.add(() -> {
+                            loadBatch(batch, from, to, workspace);
+                            accumulateBatchGradient(to - from, workspace);
+                            return null;
+                        });
                     }
+                }
+                runAll(executor, tasks);
+                prefetcher.release(batch);
+                reduceGradients(executor, workspaces);
+
+                // Update weights and biases.
+                applyGradient(workspaces[0], size, controller.getLearningRate(batchIndex));
+                if (!controller.batchCompleted(batchIndex++)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stop after the last complete mini-batch, leaving the interrupt status set so the caller can tell that
+            // the epoch was cut short.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Sums the gradients of every workspace into the first one. Pairs of workspaces are added in parallel, halving the
+    // number of partial sums at each level, so the reduction takes a logarithmic number of steps.
+    private void reduceGradients(ExecutorService executor, TrainingWorkspace[] workspaces) throws InterruptedException {
+        for (int stride = 1; stride < workspaces.length; stride *= 2) {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i + stride < workspaces.length; i += 2 * stride) {
+                TrainingWorkspace target = workspaces[i];
+                TrainingWorkspace source = workspaces[i + stride];
+                tasks.add(() -> {
+                    target.addGradient(source);
+                    source.clearGradient();
+                    return null;
                 });
             }
+            runAll(executor, tasks);
+        }
+    }
 
-            // Stop executor service.
-            execService.shutdown();
+    // Runs the tasks on the executor and waits for all of them to finish, rethrowing any failure.
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws InterruptedException {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
             try {
-                execService.awaitTermination(24, TimeUnit.HOURS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                return;
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Training task failed", e.getCause());
             }
+        }
+    }
+
+    // Returns the executor to train with, creating a pool with the given number of threads if none was injected.
+    private ExecutorService getTrainingExecutor(int threads) {
+        if (trainingExecutor != null && (!ownsTrainingExecutor || trainingExecutorThreads == threads)) {
+            return trainingExecutor;
+        }
+        shutdown();
+        trainingExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "training-worker");
+            // Workers must not keep the JVM alive once training is over.
+            thread.setDaemon(true);
+            return thread;
+        });
+        trainingExecutorThreads = threads;
+        ownsTrainingExecutor = true;
+        return trainingExecutor;
+    }
+
+    /**
+     * Sets the executor that concurrent training runs on, replacing the network's own pool. The network never shuts
+     * down an injected executor; its lifecycle remains the responsibility of the caller.
+     *
+     * @param executor the executor to run training tasks on.
+     */
+    public void setTrainingExecutor(ExecutorService executor) {
+        shutdown();
+        this.trainingExecutor = executor;
+        this.ownsTrainingExecutor = false;
+    }
 
-            // Update weights and biases.
-            for (int l = 0; l < weights.size(); l++) {
-                weights.set(l, weights.get(l).add(batchWeightGradient[l].scale(-learningRate / batch.size())));
-                biases.set(l, biases.get(l).add(batchBiasGradient[l].scale(-learningRate / batch.size())));
+    /**
+     * Shuts down the training executor if it was created by the network. Training remains possible afterwards, but the
+     * next concurrent training call will have to create a new pool.
+     */
+    public void shutdown() {
+        if (trainingExecutor != null && ownsTrainingExecutor) {
+            trainingExecutor.shutdown();
+        }
+        trainingExecutor = null;
+    }
+
+    /**
+     * Trains the network with asynchronous, lock-free stochastic gradient descent in the style of Hogwild!. The
+     * shuffled training set is split into one shard per thread, and each thread updates the shared weights directly
+     * after every observation without waiting for the others. Updates only touch the weights of non-zero activations,
+     * so threads rarely write to the same weights when the inputs are sparse.
+     *
+     * @param trainingSet  the data to train on.
+     * @param learningRate the learning rate.
+     * @param threads      the number of threads to use.
+     * @return the throughput achieved by each thread.
+     */
+    public HogwildResult trainHogwild(NetworkDataSet trainingSet, double learningRate, int threads) {
+        return trainHogwild(trainingSet, learningRate, threads, 0);
+    }
+
+    /**
+     * Trains the network with asynchronous stochastic gradient descent, as in
+     * {@link #trainHogwild(NetworkDataSet, double, int)}, but optionally guards updates with striped locks. Each layer
+     * has the given number of locks, and each lock covers an interleaved subset of the layer's rows, so two threads
+     * only contend when they update the same stripe of the same layer at the same time.
+     *
+     * @param trainingSet  the data to train on.
+     * @param learningRate the learning rate.
+     * @param threads      the number of threads to use.
+     * @param lockStripes  the number of locks per layer, or 0 to update the weights without locking.
+     * @return the throughput achieved by each thread.
+     */
+    public HogwildResult trainHogwild(NetworkDataSet trainingSet, double learningRate, int threads, int lockStripes) {
+        trainingSet.shuffle(random);
+        int[] classMap = getClassMap(trainingSet);
+        ExecutorService executor = getTrainingExecutor(threads);
+        Object[][] locks = new Object[weights.length][lockStripes];
+        for (Object[] layerLocks : locks) {
+            for (int s = 0; s < lockStripes; s++) {
+                layerLocks[s] = new Object();
+            }
+        }
+
+        double[] observationsPerSecond = new double[threads];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            int from = (int) ((long) trainingSet.size() * t / threads);
+            int to = (int) ((long) trainingSet.size() * (t + 1) / threads);
+            tasks.add(() -> {
+                TrainingWorkspace workspace = new TrainingWorkspace(layerSizes, 0, threads == 1);
+                long start = System.nanoTime();
+                for (int o = from; o < to; o++) {
+                    trainingSet.copyAttributes(o, workspace.activations[0], 0);
+                    backPropagate(mapClass(classMap, trainingSet.getClassIndex(o)), workspace);
+                    for (int layer = 0; layer < weights.length; layer++) {
+                        updateLayer(layer, workspace, learningRate, locks[layer]);
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                observationsPerSecond[worker] = seconds > 0 ? (to - from) / seconds : 0;
+                return null;
+            });
+        }
+
+        try {
+            runAll(executor, tasks);
+        } catch (InterruptedException e) {
+            // Leave the interrupt status set so the caller can tell that training was cut short.
+            Thread.currentThread().interrupt();
+        }
+        return new HogwildResult(observationsPerSecond);
+    }
+
+    // Applies the workspace's last observation to a layer's weights and biases in place, using the given locks if
+    // there are any.
+    private void updateLayer(int layer, TrainingWorkspace workspace, double learningRate, Object[] locks) {
+        // Record which inputs to the layer are non-zero, since only their weights change.
+        double[] input = workspace.activations[layer];
+        int[] active = workspace.activeIndices;
+        int activeCount = 0;
+        for (int c = 0; c < input.length; c++) {
+            if (input[c] != 0) {
+                active[activeCount++] = c;
+            }
+        }
+
+        if (locks.length == 0) {
+            updateRows(layer, 0, 1, workspace, learningRate, activeCount);
+            return;
+        }
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            synchronized (locks[stripe]) {
+                updateRows(layer, stripe, locks.length, workspace, learningRate, activeCount);
+            }
+        }
+    }
+
+    // Applies the update to every stride-th row of a layer, beginning with the first row, reading the non-zero input
+    // positions from the workspace.
+    private void updateRows(int layer, int firstRow, int stride, TrainingWorkspace workspace, double learningRate,
+                            int activeCount) {
+        double[] weightValues = weights[layer].data();
+        double[] bias = biases[layer];
+        double[] input = workspace.activations[layer];
+        double[] delta = workspace.deltas[layer];
+        int[] active = workspace.activeIndices;
+        int cols = input.length;
+        for (int r = firstRow; r < delta.length; r += stride) {
+            double scale = -learningRate * delta[r];
+            if (scale == 0) {
+                continue;
+            }
+            int offset = r * cols;
+            for (int i = 0; i < activeCount; i++) {
+                int c = active[i];
+                weightValues[offset + c] += scale * input[c];
             }
+            bias[r] += scale;
+        }
+    }
+
+    // Updates the weights and biases in place with the optimizer, given the gradients summed over a batch of the
+    // given size, then zeroes the gradients for reuse. The weights of layer l are parameter array 2l and its biases
+    // are array 2l + 1.
+    void applyGradient(TrainingWorkspace workspace, int batchSize, double learningRate) {
+        double gradientScale = 1.0 / batchSize;
+        optimizer.beginStep();
+        for (int l = 0; l < weights.length; l++) {
+            optimizer.update(2 * l, weights[l].data(), workspace.weightGradient[l].data(), gradientScale, learningRate);
+            optimizer.update(2 * l + 1, biases[l], workspace.biasGradient[l], gradientScale, learningRate);
         }
+        workspace.clearGradient();
+    }
+
+    /**
+     * Sets the optimizer that updates the weights and biases after each mini-batch, replacing any state kept by the
+     * previous optimizer. Networks use plain stochastic gradient descent by default. Hogwild! training always applies
+     * plain gradient descent updates, since its threads update the weights without coordinating.
+     *
+     * @param optimizer the optimizer, which must not be shared with another network.
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        int[] sizes = new int[2 * weights.length];
+        for (int l = 0; l < weights.length; l++) {
+            sizes[2 * l] = weights[l].data().length;
+            sizes[2 * l + 1] = biases[l].length;
+        }
+        optimizer.initialize(sizes);
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * Returns the optimizer that updates the weights and biases after each mini-batch.
+     *
+     * @return the optimizer.
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
     }
 
+    // Returns the gradient of a single observation as graphics library types. This is a test-only compatibility helper:
+    // training accumulates gradients in a workspace instead, so it is not worth optimizing.
     Pair<MatMN[], VecN[]> calculateGradient(Observation obs) {
-        List<VecN> activations = getActivations(obs.getAttributes());
-        VecN expectedOutput = getExpectedOutput(obs.getClassification());
+        TrainingWorkspace workspace = new TrainingWorkspace(layerSizes);
+        accumulateGradient(obs, workspace);
+
+        MatMN[] weightGradient = new MatMN[weights.length];
+        VecN[] biasGradient = new VecN[biases.length];
+        for (int l = 0; l < weights.length; l++) {
+            weightGradient[l] = Util.toMatMN(workspace.weightGradient[l]);
+            biasGradient[l] = new VecN(workspace.biasGradient[l]);
+        }
+        return new Pair<>(weightGradient, biasGradient);
+    }
 
-        // Two gradients: one for weights, one for biases.
-        MatMN[] weightGradient = new MatMN[weights.size()];
-        VecN[] biasGradient = new VecN[biases.size()];
+    // Adds the gradient of the observation's error to the gradients held by the workspace.
+    void accumulateGradient(Observation obs, TrainingWorkspace workspace) {
+        backPropagate(obs, workspace);
+        for (int layer = 0; layer < weights.length; layer++) {
+            double[] delta = workspace.deltas[layer];
+            Blas.ger(1.0, delta, workspace.activations[layer], workspace.weightGradient[layer], workspace.parallel);
+            Blas.axpy(delta.length, 1.0, delta, workspace.biasGradient[layer]);
+        }
+    }
 
-        // Calculate gradient of output layer.
-        int outputLayerIndex = activations.size() - 1;
-        VecN outputActivation = activations.get(outputLayerIndex);
-        VecN logisticPrime = outputActFunc.applyPrime(outputActivation);
-        VecN delta = Util.componentWiseMultiply(expectedOutput.subtract(outputActivation), logisticPrime).invert();
+    // Runs a forward pass for the observation and stores the error term of every layer in the workspace's deltas.
+    private void backPropagate(Observation obs, TrainingWorkspace workspace) {
+        workspace.setInput(obs.getAttributes());
+        backPropagate(getClassIndex(obs.getClassification()), workspace);
+    }
 
-        weightGradient[outputLayerIndex - 1] = Util.outerProduct(delta, activations.get(outputLayerIndex - 1));
-        biasGradient[outputLayerIndex - 1] = delta;
+    // Runs a forward pass for the input held by the workspace and stores the error term of every layer in the
+    // workspace's deltas, given the index of the input's class.
+    private void backPropagate(int classIndex, TrainingWorkspace workspace) {
+        feedForward(workspace);
 
-        // Calculate gradient of hidden layer(s).
+        double[][] activations = workspace.activations;
+        double[][] derivatives = workspace.derivatives;
+
+        // Calculate delta of output layer, using the derivatives left by the forward pass.
+        int outputLayerIndex = activations.length - 1;
+        double[] outputActivation = activations[outputLayerIndex];
+        double[] outputDerivative = derivatives[outputLayerIndex - 1];
+        double[] delta = workspace.deltas[outputLayerIndex - 1];
+        for (int i = 0; i < delta.length; i++) {
+            double expected = i == classIndex ? 1.0 : 0.0;
+            delta[i] = outputDerivative[i] * (outputActivation[i] - expected);
+        }
+
+        // Calculate delta of hidden layer(s).
         for (int hiddenLayerIndex = outputLayerIndex - 1; hiddenLayerIndex > 0; hiddenLayerIndex -= 1) {
-            VecN hiddenActivation = activations.get(hiddenLayerIndex);
-            logisticPrime = hiddenActFunc.applyPrime(hiddenActivation);
-            VecN deltaTimesWeight = Util.transposeMultiply(delta, weights.get(hiddenLayerIndex));
-            delta = Util.componentWiseMultiply(logisticPrime, deltaTimesWeight);
+            double[] hiddenDerivative = derivatives[hiddenLayerIndex - 1];
+            double[] hiddenDelta = workspace.deltas[hiddenLayerIndex - 1];
+            Blas.gemvTransposed(weights[hiddenLayerIndex], delta, hiddenDelta, workspace.parallel);
+            for (int i = 0; i < hiddenDelta.length; i++) {
+                hiddenDelta[i] *= hiddenDerivative[i];
+            }
+            delta = hiddenDelta;
+        }
+    }
 
-            weightGradient[hiddenLayerIndex - 1] = Util.outerProduct(delta, activations.get(hiddenLayerIndex - 1));
-            biasGradient[hiddenLayerIndex - 1] = delta;
+    // Adds the gradients of every observation in the batch to the gradients held by the workspace.
+    void accumulateBatchGradient(List<? extends Observation> batch, TrainingWorkspace workspace) {
+        int n = batch.size();
+        for (int o = 0; o < n; o++) {
+            Observation obs = batch.get(o);
+            workspace.setBatchInput(o, obs.getAttributes());
+            workspace.batchClasses[o] = getClassIndex(obs.getClassification());
         }
-        return new Pair<>(weightGradient, biasGradient);
+        accumulateBatchGradient(n, workspace);
     }
 
-    // Return the activations of each layer, excluding the input layer.
+    // Copies the observations in the range [from, to) of a packed batch into the workspace's batch input along with
+    // their class indices. Both are contiguous, so each is a single array copy.
+    private void loadBatch(BatchPrefetcher.Batch batch, int from, int to, TrainingWorkspace workspace) {
+        int cols = batch.attributeCount;
+        System.arraycopy(batch.attributes, from * cols, workspace.batchActivations[0].data(), 0, (to - from) * cols);
+        System.arraycopy(batch.classes, from, workspace.batchClasses, 0, to - from);
+    }
+
+    // Adds the gradients of the first n observations held in the workspace's batch input to the gradients held by the
+    // workspace. Rather than running a separate pass per observation, the batch is packed into a matrix so that each
+    // layer is computed with a single matrix-matrix product.
+    void accumulateBatchGradient(int n, TrainingWorkspace workspace) {
+        feedForwardBatch(workspace, n);
+
+        Matrix[] activations = workspace.batchActivations;
+        double[][] derivatives = workspace.batchDerivatives;
+
+        // Calculate the deltas of the output layer, one row per observation, using the derivatives left by the
+        // forward pass.
+        int outputLayerIndex = activations.length - 1;
+        double[] outputActivation = activations[outputLayerIndex].data();
+        double[] outputDerivative = derivatives[outputLayerIndex - 1];
+        Matrix delta = workspace.batchDeltas[outputLayerIndex - 1];
+        double[] deltaValues = delta.data();
+        int outputSize = delta.cols();
+        for (int o = 0; o < n; o++) {
+            int offset = o * outputSize;
+            int classIndex = workspace.batchClasses[o];
+            for (int i = 0; i < outputSize; i++) {
+                double expected = i == classIndex ? 1.0 : 0.0;
+                deltaValues[offset + i] = outputDerivative[offset + i] * (outputActivation[offset + i] - expected);
+            }
+        }
+        accumulateBatchLayerGradient(n, delta, activations[outputLayerIndex - 1], outputLayerIndex - 1, workspace);
+
+        // Calculate the deltas of the hidden layer(s).
+        for (int hiddenLayerIndex = outputLayerIndex - 1; hiddenLayerIndex > 0; hiddenLayerIndex -= 1) {
+            Matrix hiddenDelta = workspace.batchDeltas[hiddenLayerIndex - 1];
+            double[] hiddenDeltaValues = hiddenDelta.data();
+            double[] hiddenDerivative = derivatives[hiddenLayerIndex - 1];
+            int length = n * hiddenDelta.cols();
+            Blas.gemm(n, delta, weights[hiddenLayerIndex], hiddenDelta, workspace.parallel);
+            for (int i = 0; i < length; i++) {
+                hiddenDeltaValues[i] *= hiddenDerivative[i];
+            }
+            delta = hiddenDelta;
+
+            accumulateBatchLayerGradient(n, delta, activations[hiddenLayerIndex - 1], hiddenLayerIndex - 1, workspace);
+        }
+    }
+
+    // Adds delta^T * activations to the layer's weight gradient and the column sums of delta to its bias gradient.
+    private void accumulateBatchLayerGradient(int n, Matrix delta, Matrix activations, int layer,
+                                              TrainingWorkspace workspace) {
+        Blas.gemmTN(n, 1.0, delta, activations, workspace.weightGradient[layer], workspace.parallel);
+        double[] biasGradient = workspace.biasGradient[layer];
+        double[] deltaValues = delta.data();
+        for (int o = 0; o < n; o++) {
+            Blas.axpy(biasGradient.length, 1.0, deltaValues, o * biasGradient.length, biasGradient, 0);
+        }
+    }
+
+    // Computes the activations of each layer for the first n observations held in the workspace's batch input, along
+    // with the derivatives of the activation functions for the backward pass.
+    private void feedForwardBatch(TrainingWorkspace workspace, int n) {
+        Matrix[] activations = workspace.batchActivations;
+        for (int layer = 0; layer < weights.length; layer++) {
+            Matrix output = activations[layer + 1];
+            Blas.gemmNT(n, activations[layer], weights[layer], output, workspace.parallel);
+            // The bias, activation function and derivative are applied to every row of the batch in a single pass.
+            ActivationFunc actFunc = layer < weights.length - 1 ? hiddenActFunc : outputActFunc;
+            actFunc.applyBiasAndFunc(output.data(), biases[layer], n, output.cols(), workspace.batchDerivatives[layer]);
+        }
+    }
+
+    // Return the activations of each layer, excluding the input layer. This is a test-only compatibility helper:
+    // training and inference feed forward through a workspace instead, so it is not worth optimizing.
     List<VecN> getActivations(VecN attributes) {
+        TrainingWorkspace workspace = new TrainingWorkspace(layerSizes);
+        workspace.setInput(attributes);
+        feedForward(workspace);
+
         List<VecN> activations = new ArrayList<>();
-        activations.add(attributes);
-
-        for (int layer = 0; layer < weights.size(); layer++) {
-            VecN input = weights.get(layer).multiply(activations.get(layer)).add(biases.get(layer));
-            if (layer < weights.size() - 1) {
-                // Hidden layers
-                activations.add(hiddenActFunc.applyFunc(input));
-            } else {
-                // Output layer
-                activations.add(outputActFunc.applyFunc(input));
-            }
+        for (double[] activation : workspace.activations) {
+            activations.add(new VecN(activation));
         }
         return activations;
     }
 
+    // Computes the activations of each layer in place, along with the derivatives of the activation functions for the
+    // backward pass, given that the workspace holds the input attributes.
+    private void feedForward(TrainingWorkspace workspace) {
+        double[][] activations = workspace.activations;
+        for (int layer = 0; layer < weights.length; layer++) {
+            double[] output = activations[layer + 1];
+            Blas.gemv(weights[layer], activations[layer], output, workspace.parallel);
+            ActivationFunc actFunc = layer < weights.length - 1 ? hiddenActFunc : outputActFunc;
+            actFunc.applyBiasAndFunc(output, biases[layer], 1, output.length, workspace.derivatives[layer]);
+        }
+    }
+
+    // Returns the index of the given classification, or -1 if it is not one of the network's classes.
+    int getClassIndex(String classification) {
+        for (int i = 0; i < classes.length; i++) {
+            if (classification.equals(classes[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the index of each of the data set's classes among the network's classes, so that observations can be
+    // labelled by comparing integers rather than strings.
+    private int[] getClassMap(NetworkDataSet dataSet) {
+        String[] dataSetClasses = dataSet.getClasses();
+        int[] classMap = new int[dataSetClasses.length];
+        for (int i = 0; i < dataSetClasses.length; i++) {
+            classMap[i] = getClassIndex(dataSetClasses[i]);
+        }
+        return classMap;
+    }
+
+    // Returns the network's index for a class index of the data set, or -1 if the data set's class is unknown.
+    static int mapClass(int[] classMap, int dataSetClassIndex) {
+        return dataSetClassIndex < 0 ? -1 : classMap[dataSetClassIndex];
+    }
+
     // Return a vector describing the expected output for the given classification.
     VecN getExpectedOutput(String classification) {
         double[] expected = new double[classes.length];
@@ -248,38 +722,52 @@ public class BackPropNetwork implements Network {
      * @inheritDoc
      */
     @Override
-    public Result test(DataSet testingSet) {
-        // Declare metadata about the test.
-        double error = 0;
-        int correctCount = 0;
-        List<Observation> correct = new ArrayList<>();
-        List<Observation> incorrect = new ArrayList<>();
-        // Iterate across all observations in the testing set.
-        for (Observation obs : testingSet.getAllObservations()) {
-            // Get activations for the observation and classify according to the current network.
-            List<VecN> activations = getActivations(obs.getAttributes());
-            String classification = classify(obs.getAttributes(), activations);
-            // Evaluate accuracy.
-            if (classification.equals(obs.getClassification())) {
-                correctCount++;
-                correct.add(obs);
-            } else {
-                incorrect.add(obs);
-            }
-            // Evaluate error.
-            VecN expectedOutput = getExpectedOutput(obs.getClassification());
-            VecN actualOutput = activations.get(activations.size() - 1);
-            error += getError(expectedOutput, actualOutput);
-        }
+    public Result test(NetworkDataSet testingSet) {
+        return test(testingSet, true);
+    }
+
+    /**
+     * Tests the neural network on the given data set. The observations are divided among the threads of the common
+     * fork-join pool, each of which tallies the accuracy, error and per-class counts of its own share.
+     *
+     * @param testingSet         the data set to test the network on.
+     * @param retainObservations whether the result should list the correctly and incorrectly classified observations.
+     *                           Skipping the lists saves memory when only the counts are needed.
+     * @return the results of the test.
+     */
+    public Result test(NetworkDataSet testingSet, boolean retainObservations) {
+        int[] classMap = getClassMap(testingSet);
+        Supplier<EvaluationTask.Evaluator> evaluators = () -> {
+            double[][] buffers = createInferenceBuffers();
+            return (i, tally) -> evaluate(testingSet, i, classMap, tally, buffers);
+        };
+        EvaluationTask task = new EvaluationTask(evaluators, classes.length, 0, testingSet.size(), retainObservations);
+        EvaluationTask.Tally tally = ForkJoinPool.commonPool().invoke(task);
         // Calculate and encapsulate final testing metadata into a result.
-        double accuracy = (double) correctCount / testingSet.size();
-        double avgError = error / testingSet.size();
-        return new Result(accuracy, avgError, correct, incorrect);
+        double accuracy = (double) tally.correctCount / testingSet.size();
+        double avgError = tally.error / testingSet.size();
+        return new Result(accuracy, avgError, classes, tally);
     }
 
-    private double getError(VecN expected, VecN actual) {
-        VecN diff = expected.subtract(actual);
-        return 0.5 * diff.dot(diff);
+    // Tests the network on the ith observation of the data set, adding the outcome to the tally. The class map is as
+    // returned by getClassMap, and the buffers are scratch space for the forward pass, as returned by
+    // createInferenceBuffers.
+    void evaluate(NetworkDataSet dataSet, int i, int[] classMap, EvaluationTask.Tally tally, double[][] buffers) {
+        // Classify the observation according to the current network with a single forward pass.
+        dataSet.copyAttributes(i, buffers[0], 0);
+        double[] output = Predictor.feedForward(weights, biases, hiddenActFunc, outputActFunc, buffers);
+        int classIndex = mapClass(classMap, dataSet.getClassIndex(i));
+        tally.record(dataSet, i, classIndex, argMax(output), getError(classIndex, output));
+    }
+
+    // Returns half the squared distance between the output and the expected output for the class index.
+    private double getError(int classIndex, double[] output) {
+        double error = 0;
+        for (int i = 0; i < classes.length; i++) {
+            double diff = (i == classIndex ? 1.0 : 0.0) - output[i];
+            error += diff * diff;
+        }
+        return 0.5 * error;
     }
 
     /**
@@ -287,23 +775,59 @@ public class BackPropNetwork implements Network {
      */
     @Override
     public String classify(VecN attributes) {
-        return classify(attributes, getActivations(attributes));
+        return classes[argMax(feedForward(attributes, createInferenceBuffers()))];
     }
 
-    // Computes class based on given activations; allows for caching of activation calculations.
-    private String classify(VecN attributes, List<VecN> activations) {
-        VecN output = getActivations(attributes).get(layerSizes.size() - 1);
-        int maxIndex = 0;
-        for (int i = 1; i < classes.length; i++) {
-            if (output.get(i) > output.get(maxIndex)) {
-                maxIndex = i;
-            }
+    /**
+     * Classifies a given set of attributes and returns the output of the network along with the classification.
+     *
+     * @param attributes a list of attribute values.
+     * @return the prediction of the network for the attribute values.
+     */
+    public Prediction predict(VecN attributes) {
+        double[] output = feedForward(attributes, createInferenceBuffers());
+        int classIndex = argMax(output);
+        return new Prediction(classes[classIndex], classIndex, Arrays.copyOf(output, classes.length));
+    }
+
+    /**
+     * Classifies a batch of attribute arrays at once. Each layer is computed for the whole batch with a single
+     * matrix-matrix product, which amortizes reading the weights across the batch.
+     *
+     * @param attributes the attribute values of each observation.
+     * @return the index of the classification of each observation, in the order of the network's classes.
+     */
+    public int[] classifyBatch(double[][] attributes) {
+        return Predictor.classifyBatch(weights, biases, hiddenActFunc, outputActFunc, attributes);
+    }
+
+    // Returns two buffers large enough to hold the activations of any layer, for use by the inference forward pass.
+    double[][] createInferenceBuffers() {
+        int maxLayerSize = 0;
+        for (int size : layerSizes) {
+            maxLayerSize = Math.max(maxLayerSize, size);
         }
-        return classes[maxIndex];
+        return new double[][]{new double[maxLayerSize], new double[maxLayerSize]};
+    }
+
+    // Computes the output of the network for the attributes with a single pass over two buffers, as returned by
+    // createInferenceBuffers. Returns the buffer whose first values are the activations of the output layer.
+    double[] feedForward(VecN attributes, double[][] buffers) {
+        double[] input = buffers[0];
+        for (int i = 0; i < attributes.size(); i++) {
+            input[i] = attributes.get(i);
+        }
+        return Predictor.feedForward(weights, biases, hiddenActFunc, outputActFunc, buffers);
+    }
+
+    // Returns the index of the class with the highest output. Ties go to the first class.
+    private int argMax(double[] output) {
+        return Predictor.argMax(output, classes.length);
     }
 
     /**
-     * Returns the JSON representation of the current network.
+     * Returns the JSON representation of the current network. Every value is boxed, so {@link #save(String)} should be
+     * preferred for storing large networks.
      *
      * @return the JSON representation of the network.
      */
@@ -311,21 +835,21 @@ public class BackPropNetwork implements Network {
         List<List<List<Double>>> weightMatrices = new ArrayList<>();
         List<List<Double>> biasVectors = new ArrayList<>();
 
-        for (MatMN weight : weights) {
+        for (Matrix weight : weights) {
             List<List<Double>> listMatrix = new ArrayList<>();
-            for (double[] col : weight.toArray()) {
+            for (int c = 0; c < weight.cols(); c++) {
                 List<Double> listCol = new ArrayList<>();
-                for (double val : col) {
-                    listCol.add(val);
+                for (int r = 0; r < weight.rows(); r++) {
+                    listCol.add(weight.get(r, c));
                 }
                 listMatrix.add(listCol);
             }
             weightMatrices.add(listMatrix);
         }
 
-        for (VecN bias : biases) {
+        for (double[] bias : biases) {
             List<Double> listVector = new ArrayList<>();
-            for (double val : bias.toArray()) {
+            for (double val : bias) {
                 listVector.add(val);
             }
             biasVectors.add(listVector);
@@ -347,18 +871,107 @@ public class BackPropNetwork implements Network {
     public String toString() {
         StringBuilder result = new StringBuilder();
         result.append("Weights: ").append("\n");
-        for (int i = 0; i < weights.size(); i++) {
+        for (int i = 0; i < weights.length; i++) {
             result.append("Layer ").append(i).append("\n");
-            result.append(weights.get(i).toString()).append("\n");
+            result.append(Util.toMatMN(weights[i]).toString()).append("\n");
         }
         result.append("Biases: ").append("\n");
-        for (int i = 0; i < biases.size(); i++) {
+        for (int i = 0; i < biases.length; i++) {
             result.append("Layer ").append(i + 1).append("\n");
-            result.append(biases.get(i).toString()).append("\n");
+            result.append(new VecN(biases[i]).toString()).append("\n");
         }
         return result.toString();
     }
 
+    /**
+     * The output of a back propagation neural network for a single set of attributes.
+     */
+    public static class Prediction {
+
+        private final String classification;
+        private final int classIndex;
+        private final double[] output;
+
+        // Compiles the classification and output of a single forward pass.
+        private Prediction(String classification, int classIndex, double[] output) {
+            this.classification = classification;
+            this.classIndex = classIndex;
+            this.output = output;
+        }
+
+        /**
+         * Returns the class with the highest output.
+         *
+         * @return the classification.
+         */
+        public String getClassification() {
+            return classification;
+        }
+
+        /**
+         * Returns the index of the class with the highest output, in the order of the network's classes.
+         *
+         * @return the index of the classification.
+         */
+        public int getClassIndex() {
+            return classIndex;
+        }
+
+        /**
+         * Returns the activations of the output layer, one per class.
+         *
+         * @return the output vector.
+         */
+        public VecN getOutput() {
+            return new VecN(output);
+        }
+    }
+
+    /**
+     * The throughput of each thread during a Hogwild! training run.
+     */
+    public static class HogwildResult {
+
+        private final double[] observationsPerSecond;
+
+        // Compiles the throughput measured by each worker.
+        private HogwildResult(double[] observationsPerSecond) {
+            this.observationsPerSecond = observationsPerSecond;
+        }
+
+        /**
+         * Returns the number of threads that trained the network.
+         *
+         * @return the number of workers.
+         */
+        public int getWorkerCount() {
+            return observationsPerSecond.length;
+        }
+
+        /**
+         * Returns the number of observations per second processed by the given worker.
+         *
+         * @param worker the index of the worker.
+         * @return the throughput of the worker.
+         */
+        public double getObservationsPerSecond(int worker) {
+            return observationsPerSecond[worker];
+        }
+
+        /**
+         * Returns the combined number of observations per second processed by all workers.
+         *
+         * @return the total throughput.
+         */
+        public double getTotalObservationsPerSecond() {
+            double total = 0;
+            for (double throughput : observationsPerSecond) {
+                total += throughput;
+            }
+            return total;
+        }
+    }
+
     /**
      * The results of testing a back propagation neural network.
      */
@@ -366,15 +979,23 @@ public class BackPropNetwork implements Network {
 
         private final double accuracy;
         private final double error;
+        private final String[] classes;
+        private final int correctCount;
+        private final int[] correctByClass;
+        private final int[] incorrectByClass;
         private final List<Observation> correct;
         private final List<Observation> incorrect;
 
         // Compiles the data to create a result of a test on a back prop network.
-        private Result(double accuracy, double error, List<Observation> correct, List<Observation> incorrect) {
+        Result(double accuracy, double error, String[] classes, EvaluationTask.Tally tally) {
             this.accuracy = accuracy;
             this.error = error;
-            this.correct = correct;
-            this.incorrect = incorrect;
+            this.classes = classes;
+            this.correctCount = tally.correctCount;
+            this.correctByClass = tally.correctByClass;
+            this.incorrectByClass = tally.incorrectByClass;
+            this.correct = tally.correct;
+            this.incorrect = tally.incorrect;
         }
 
         /**
@@ -393,20 +1014,67 @@ public class BackPropNetwork implements Network {
             return this.error;
         }
 
+        /**
+         * Returns the number of observations that were correctly classified.
+         *
+         * @return the number of correct classifications.
+         */
+        public int getCorrectCount() {
+            return this.correctCount;
+        }
+
+        /**
+         * Returns the number of correctly classified observations of each class.
+         *
+         * @return a map from each class to its number of correct classifications, in the network's class order.
+         */
+        public Map<String, Integer> getCorrectCounts() {
+            return countsByClass(this.correctByClass);
+        }
+
+        /**
+         * Returns the number of incorrectly classified observations of each class. Observations whose class is not one
+         * of the network's classes are not included.
+         *
+         * @return a map from each class to its number of incorrect classifications, in the network's class order.
+         */
+        public Map<String, Integer> getIncorrectCounts() {
+            return countsByClass(this.incorrectByClass);
+        }
+
+        private Map<String, Integer> countsByClass(int[] counts) {
+            Map<String, Integer> map = new LinkedHashMap<>();
+            for (int i = 0; i < classes.length; i++) {
+                map.put(classes[i], counts[i]);
+            }
+            return map;
+        }
+
         /**
          * @inheritDoc
+         *
+         * @throws IllegalStateException if the test was run without retaining observations.
          */
         @Override
         public List<Observation> correct() {
-            return new ArrayList<>(this.correct);
+            return new ArrayList<>(retained(this.correct));
         }
 
         /**
          * @inheritDoc
+         *
+         * @throws IllegalStateException if the test was run without retaining observations.
          */
         @Override
         public List<Observation> incorrect() {
-            return new ArrayList<>(this.incorrect);
+            return new ArrayList<>(retained(this.incorrect));
+        }
+
+        private List<Observation> retained(List<Observation> observations) {
+            if (observations == null) {
+                throw new IllegalStateException("The test was run without retaining observations");
+            }
+            return observations;
         }
     }
 
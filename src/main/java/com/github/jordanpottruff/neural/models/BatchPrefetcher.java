@@ -0,0 +1,174 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Packs the mini-batches of a data set on a background thread, so that gathering, decoding and normalizing the
+ * observations overlaps with training rather than running on the training thread. Packed batches are handed over
+ * through a bounded queue, and the consumer returns each batch once it has been copied so that its buffers can be
+ * refilled. Memory use is therefore proportional to the queue depth times the batch size rather than to the data set.
+ */
+class BatchPrefetcher implements AutoCloseable {
+
+    // Handed to the consumer once every batch has been loaded, or loading has failed.
+    private static final Batch END = new Batch(0, 0, false);
+
+    private final NetworkDataSet dataSet;
+    private final int[] classMap;
+    private final int batchSize;
+    private final BlockingQueue<Batch> ready;
+    private final BlockingQueue<Batch> free;
+    private final Thread loader;
+    private volatile Throwable failure;
+
+    /**
+     * Starts loading the mini-batches of the data set in its current order. The last batch may be smaller than the
+     * others.
+     *
+     * @param dataSet        the data set to load.
+     * @param classMap       the index among the network's classes of each of the data set's classes.
+     * @param attributeCount the number of attributes of each observation.
+     * @param batchSize      the number of observations in each batch.
+     * @param depth          the number of batches that may be loaded ahead of the consumer.
+     */
+    BatchPrefetcher(NetworkDataSet dataSet, int[] classMap, int attributeCount, int batchSize, int depth) {
+        this(dataSet, classMap, attributeCount, batchSize, depth, false);
+    }
+
+    /**
+     * Starts loading the mini-batches of the data set in its current order, packing the attributes in either double
+     * or single precision. The last batch may be smaller than the others.
+     *
+     * @param dataSet         the data set to load.
+     * @param classMap        the index among the network's classes of each of the data set's classes.
+     * @param attributeCount  the number of attributes of each observation.
+     * @param batchSize       the number of observations in each batch.
+     * @param depth           the number of batches that may be loaded ahead of the consumer.
+     * @param singlePrecision whether to pack the attributes as floats rather than doubles.
+     */
+    BatchPrefetcher(NetworkDataSet dataSet, int[] classMap, int attributeCount, int batchSize, int depth,
+                    boolean singlePrecision) {
+        this.dataSet = dataSet;
+        this.classMap = classMap;
+        this.batchSize = batchSize;
+        // One extra slot leaves room for the end marker when every buffer is full.
+        this.ready = new ArrayBlockingQueue<>(depth + 1);
+        this.free = new ArrayBlockingQueue<>(depth);
+        int capacity = Math.min(batchSize, dataSet.size());
+        for (int i = 0; i < depth; i++) {
+            free.add(new Batch(capacity, attributeCount, singlePrecision));
+        }
+        this.loader = new Thread(this::load, "batch-prefetcher");
+        // The loader must not keep the JVM alive if training is abandoned.
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Fills free batches in order until the data set is exhausted, then hands over the end marker.
+    private void load() {
+        try {
+            for (int from = 0; from < dataSet.size(); from += batchSize) {
+                Batch batch = free.take();
+                batch.size = Math.min(batchSize, dataSet.size() - from);
+                for (int o = 0; o < batch.size; o++) {
+                    if (batch.floatAttributes != null) {
+                        dataSet.copyAttributes(from + o, batch.floatAttributes, o * batch.attributeCount);
+                    } else {
+                        dataSet.copyAttributes(from + o, batch.attributes, o * batch.attributeCount);
+                    }
+                    batch.classes[o] = BackPropNetwork.mapClass(classMap, dataSet.getClassIndex(from + o));
+                }
+                ready.put(batch);
+            }
+        } catch (InterruptedException e) {
+            // Closed by the consumer before every batch was loaded.
+            return;
+        } catch (Throwable t) {
+            failure = t;
+        }
+        ready.add(END);
+    }
+
+    /**
+     * Returns the next packed batch, waiting for it to be loaded if necessary.
+     *
+     * @return the next batch, or null if every batch has been returned.
+     * @throws InterruptedException  if the calling thread is interrupted while waiting.
+     * @throws IllegalStateException if loading a batch failed.
+     */
+    Batch take() throws InterruptedException {
+        Batch batch = ready.take();
+        if (batch == END) {
+            // Leave the marker in place so that later calls also see the end.
+            ready.add(END);
+            if (failure != null) {
+                throw new IllegalStateException("Loading a batch failed", failure);
+            }
+            return null;
+        }
+        return batch;
+    }
+
+    /**
+     * Returns a batch that is no longer needed so that the loader can refill it.
+     *
+     * @param batch a batch returned by {@link #take()}.
+     */
+    void release(Batch batch) {
+        free.add(batch);
+    }
+
+    /**
+     * Stops the loader if it is still running and waits for it to finish, so that the data set is no longer being read
+     * once this returns and may be shuffled again. If the calling thread is interrupted while waiting, its interrupt
+     * status is restored once the loader has finished.
+     */
+    @Override
+    public void close() {
+        loader.interrupt();
+        boolean interrupted = false;
+        while (loader.isAlive()) {
+            try {
+                loader.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The packed attributes and class indices of a mini-batch.
+     */
+    static class Batch {
+
+        // The attributes of each observation, one observation after another, in whichever of the two precisions the
+        // batch was created with. The other array is null.
+        final double[] attributes;
+        final float[] floatAttributes;
+        // The index of each observation's class among the network's classes, or -1 if it is unknown.
+        final int[] classes;
+        final int attributeCount;
+        // The number of observations in the batch.
+        int size;
+
+        /**
+         * Creates an empty batch.
+         *
+         * @param capacity        the maximum number of observations in the batch.
+         * @param attributeCount  the number of attributes of each observation.
+         * @param singlePrecision whether to hold the attributes as floats rather than doubles.
+         */
+        Batch(int capacity, int attributeCount, boolean singlePrecision) {
+            this.attributes = singlePrecision ? null : new double[capacity * attributeCount];
+            this.floatAttributes = singlePrecision ? new float[capacity * attributeCount] : null;
+            this.classes = new int[capacity];
+            this.attributeCount = attributeCount;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.github.jordanpottruff.neural.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves the training state of a network in the background so that a long run can be resumed after it is stopped. A
+ * checkpoint holds the weights and biases, the state of the network's optimizer, the number of the epoch that was just
+ * completed and the state of the network's random number generator.
+ * <p>
+ * Restoring the random number generator does not by itself reproduce the original run's data order: each epoch
+ * shuffles a data set's current order in place, so the order after several epochs depends on every earlier shuffle. A
+ * resumed run that reloads its data starts from the loaded order instead, and so shuffles differently from the
+ * original from then on.
+ * <p>
+ * Taking a checkpoint only copies the state into one of two snapshots, which is then written on a background thread
+ * while training continues. Training only waits if it finishes another epoch before the snapshot taken two
+ * checkpoints earlier has been written. Each snapshot is written to a temporary file that then replaces the checkpoint
+ * file, so an interrupted write never corrupts the previous checkpoint.
+ * <p>
+ * A checkpoint file begins with a model in the format of {@link BackPropNetwork#save(String)}, so it can also be
+ * opened with {@link BackPropNetwork#load(String)} or {@link MappedModel#open(String)}.
+ */
+public class Checkpointer implements AutoCloseable {
+
+    private static final int MAGIC = 0x54504B43;
+    private static final int VERSION = 2;
+
+    private final BackPropNetwork network;
+    private final Path path;
+    private final Path temporaryPath;
+    private final ByteBuffer header;
+    private final ExecutorService writer;
+    private final Snapshot[] snapshots;
+    private int next = 0;
+
+    /**
+     * Creates a checkpointer that saves the network to the given file.
+     *
+     * @param network  the network to save.
+     * @param filename the name of the checkpoint file.
+     */
+    public Checkpointer(BackPropNetwork network, String filename) {
+        this.network = network;
+        this.path = Paths.get(filename);
+        this.temporaryPath = Paths.get(filename + ".tmp");
+        this.header = ModelFormat.encodeHeader(network);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.snapshots = new Snapshot[]{new Snapshot(network), new Snapshot(network)};
+    }
+
+    /**
+     * Copies the current state of the network and starts writing it in the background. This must be called while the
+     * network is not being trained, typically between epochs.
+     *
+     * @param epoch the number of the epoch that was just completed.
+     * @throws IOException if an earlier checkpoint could not be written.
+     */
+    public void checkpoint(int epoch) throws IOException {
+        Snapshot snapshot = snapshots[next];
+        next = 1 - next;
+        // The snapshot may still be in use by the write started two checkpoints ago.
+        waitFor(snapshot);
+        snapshot.copy(network, epoch);
+        snapshot.pending = writer.submit(() -> {
+            write(snapshot);
+            return null;
+        });
+    }
+
+    /**
+     * Waits until every checkpoint that has been started is written.
+     *
+     * @throws IOException if a checkpoint could not be written.
+     */
+    public void await() throws IOException {
+        // Snapshots are written in order, so the most recent one finishes last.
+        waitFor(snapshots[1 - next]);
+        waitFor(snapshots[next]);
+    }
+
+    /**
+     * Waits for every checkpoint to be written, then stops the background thread.
+     *
+     * @throws IOException if a checkpoint could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            await();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    // Waits for the snapshot's write to finish, if it has one, rethrowing any failure.
+    private static void waitFor(Snapshot snapshot) throws IOException {
+        Future<Void> pending = snapshot.pending;
+        if (pending == null) {
+            return;
+        }
+        snapshot.pending = null;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a checkpoint to be written");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Writing a checkpoint failed", e.getCause());
+        }
+    }
+
+    // Writes the snapshot to the temporary file, then moves it over the checkpoint file.
+    private void write(Snapshot snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ModelFormat.writeFully(channel, header.duplicate());
+            ByteBuffer buffer = ModelFormat.createWriteBuffer();
+            ModelFormat.writeDoubles(channel, buffer, snapshot.parameters);
+            buffer.flip();
+            ModelFormat.writeFully(channel, buffer);
+            buffer.clear();
+
+            // The trailer holds the epoch, the random number generator, then the optimizer's class name and the lengths
+            // of its state arrays, followed by the values of every state array.
+            byte[] optimizerName = snapshot.optimizerName.getBytes(StandardCharsets.UTF_8);
+            double[][] state = snapshot.optimizerState;
+            ByteBuffer trailer = ByteBuffer.allocate(16 + snapshot.random.length + 2 + optimizerName.length + 4
+                    + 4 * state.length).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt(MAGIC).putInt(VERSION).putInt(snapshot.epoch).putInt(snapshot.random.length);
+            trailer.put(snapshot.random);
+            trailer.putShort((short) optimizerName.length).put(optimizerName);
+            trailer.putInt(state.length);
+            for (double[] values : state) {
+                trailer.putInt(values.length);
+            }
+            trailer.flip();
+            ModelFormat.writeFully(channel, trailer);
+            for (double[] values : state) {
+                ModelFormat.writeDoubles(channel, buffer, values);
+            }
+            buffer.flip();
+            ModelFormat.writeFully(channel, buffer);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a network to the state saved in a checkpoint file, replacing its weights, biases and optimizer state in
+     * place and restoring its random number generator.
+     *
+     * @param network  the network to restore, which must have the same layers, classes and type of optimizer as the
+     *                 saved network.
+     * @param filename the name of the checkpoint file.
+     * @return the number of the epoch that was completed when the checkpoint was taken.
+     * @throws IOException if the file cannot be read, is not a valid checkpoint or does not match the network, or if
+     *                     the saved random number generator is not a {@link Random} itself rather than a subclass.
+     */
+    public static int restore(BackPropNetwork network, String filename) throws IOException {
+        ByteBuffer buffer = ModelFormat.map(filename);
+        ModelFormat.Header header = new ModelFormat.Header(buffer, filename);
+        if (!header.layerSizes.equals(network.layerSizes) || !Arrays.equals(header.classes, network.classes)) {
+            throw new IOException(filename + " does not match the layers and classes of the network");
+        }
+
+        int position = (int) (header.parameterOffset + header.parameterCount * Double.BYTES);
+        if (buffer.limit() < position + 16 || buffer.getInt(position) != MAGIC) {
+            throw new IOException(filename + " is a model file without checkpoint state");
+        }
+        int version = buffer.getInt(position + 4);
+        if (version != VERSION) {
+            throw new IOException(filename + " has unsupported checkpoint version " + version);
+        }
+        try {
+            // Everything is read and checked before any of it is assigned, so a truncated or invalid file leaves the
+            // network unchanged.
+            int epoch = buffer.getInt(position + 8);
+            byte[] randomState = new byte[buffer.getInt(position + 12)];
+            ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            view.position(position + 16);
+            view.get(randomState);
+            Random random = deserializeRandom(randomState, filename);
+            double[][] optimizerState = copyShape(network.getOptimizer().getState());
+            readOptimizerState(view, network, optimizerState, filename);
+
+            DoubleBuffer parameters = header.getParameters(buffer);
+            double[][] weights = new double[network.weights.length][];
+            double[][] biases = new double[network.biases.length][];
+            for (int l = 0; l < network.weights.length; l++) {
+                weights[l] = new double[network.weights[l].data().length];
+                biases[l] = new double[network.biases[l].length];
+                parameters.get(weights[l]);
+                parameters.get(biases[l]);
+            }
+
+            for (int l = 0; l < network.weights.length; l++) {
+                System.arraycopy(weights[l], 0, network.weights[l].data(), 0, weights[l].length);
+                System.arraycopy(biases[l], 0, network.biases[l], 0, biases[l].length);
+            }
+            double[][] state = network.getOptimizer().getState();
+            for (int i = 0; i < state.length; i++) {
+                System.arraycopy(optimizerState[i], 0, state[i], 0, state[i].length);
+            }
+            network.random = random;
+            return epoch;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException(filename + " is truncated", e);
+        }
+    }
+
+    // Returns new arrays of the same lengths as the given arrays.
+    private static double[][] copyShape(double[][] arrays) {
+        double[][] result = new double[arrays.length][];
+        for (int i = 0; i < arrays.length; i++) {
+            result[i] = new double[arrays[i].length];
+        }
+        return result;
+    }
+
+    // Reads the optimizer state that begins at the buffer's position into the given arrays, after checking that it was
+    // saved by the same type of optimizer as the network's with the same state layout.
+    private static void readOptimizerState(ByteBuffer view, BackPropNetwork network, double[][] state, String filename)
+            throws IOException {
+        byte[] name = new byte[view.getShort() & 0xFFFF];
+        view.get(name);
+        String optimizerName = new String(name, StandardCharsets.UTF_8);
+        if (!optimizerName.equals(network.getOptimizer().getClass().getName()) || view.getInt() != state.length) {
+            throw new IOException(filename + " was saved with a different optimizer: " + optimizerName);
+        }
+        for (double[] values : state) {
+            if (view.getInt() != values.length) {
+                throw new IOException(filename + " was saved with a different optimizer state layout");
+            }
+        }
+        DoubleBuffer values = view.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        for (double[] array : state) {
+            values.get(array);
+        }
+    }
+
+    // Returns the serialized form of the random number generator, which includes its seed.
+    private static byte[] serializeRandom(Random random) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        } catch (IOException e) {
+            // Writing to memory cannot fail.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Returns the random number generator held by its serialized form. Only java.util.Random itself is accepted, so
+    // a crafted file cannot make this load or construct any other class.
+    private static Random deserializeRandom(byte[] state, String filename) throws IOException {
+        try (ObjectInputStream in = new RandomInputStream(new ByteArrayInputStream(state))) {
+            return (Random) in.readObject();
+        } catch (ClassNotFoundException | InvalidClassException e) {
+            throw new IOException(filename + " has an invalid random number generator state", e);
+        }
+    }
+
+    /**
+     * An object input stream that resolves no class other than {@link Random}, whose serialized fields are all
+     * primitives.
+     */
+    private static class RandomInputStream extends ObjectInputStream {
+
+        RandomInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!desc.getName().equals(Random.class.getName())) {
+                throw new InvalidClassException(desc.getName(), "not a java.util.Random");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxy classes are not allowed");
+        }
+    }
+
+    /**
+     * A copy of the training state of a network that can be written while training continues.
+     */
+    private static class Snapshot {
+
+        // The weights and biases of each layer, in the order they are written to the file.
+        final double[] parameters;
+        byte[] random;
+        String optimizerName;
+        double[][] optimizerState = new double[0][];
+        int epoch;
+        // The write of this snapshot that is in progress, if any.
+        Future<Void> pending;
+
+        Snapshot(BackPropNetwork network) {
+            int count = 0;
+            for (int l = 0; l < network.weights.length; l++) {
+                count += network.weights[l].data().length + network.biases[l].length;
+            }
+            this.parameters = new double[count];
+        }
+
+        // Copies the state of the network into the snapshot.
+        void copy(BackPropNetwork network, int epoch) {
+            int position = 0;
+            for (int l = 0; l < network.weights.length; l++) {
+                double[] weights = network.weights[l].data();
+                System.arraycopy(weights, 0, parameters, position, weights.length);
+                position += weights.length;
+                System.arraycopy(network.biases[l], 0, parameters, position, network.biases[l].length);
+                position += network.biases[l].length;
+            }
+            this.random = serializeRandom(network.random);
+            this.epoch = epoch;
+
+            // The optimizer may have been replaced since the last copy, so the buffers are reallocated if needed.
+            double[][] state = network.getOptimizer().getState();
+            if (optimizerState.length != state.length) {
+                optimizerState = new double[state.length][];
+            }
+            for (int i = 0; i < state.length; i++) {
+                if (optimizerState[i] == null || optimizerState[i].length != state[i].length) {
+                    optimizerState[i] = new double[state[i].length];
+                }
+                System.arraycopy(state[i], 0, optimizerState[i], 0, state[i].length);
+            }
+            this.optimizerName = network.getOptimizer().getClass().getName();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+import com.github.jordanpottruff.neural.data.NetworkObservation;
+import com.github.jordanpottruff.neural.data.Observation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Tests a range of observations in a data set, splitting the range in half until it is small enough to evaluate on a
+ * single thread. Every task keeps its own tally, and the tallies are merged as the tasks are joined, so no state is
+ * shared between threads.
+ */
+class EvaluationTask extends RecursiveTask<EvaluationTask.Tally> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Ranges at most this large are evaluated directly rather than split further.
+    private static final int THRESHOLD = 256;
+
+    private final Supplier<Evaluator> evaluators;
+    private final int classCount;
+    private final int from;
+    private final int to;
+    private final boolean retainObservations;
+
+    /**
+     * Creates a task that tests the observations in the range [from, to) of a data set.
+     *
+     * @param evaluators         creates an evaluator for each range that is evaluated directly.
+     * @param classCount         the number of classes of the network.
+     * @param from               the index of the first observation, inclusive.
+     * @param to                 the index of the last observation, exclusive.
+     * @param retainObservations whether to keep lists of the correctly and incorrectly classified observations.
+     */
+    EvaluationTask(Supplier<Evaluator> evaluators, int classCount, int from, int to, boolean retainObservations) {
+        this.evaluators = evaluators;
+        this.classCount = classCount;
+        this.from = from;
+        this.to = to;
+        this.retainObservations = retainObservations;
+    }
+
+    @Override
+    protected Tally compute() {
+        if (to - from <= THRESHOLD) {
+            Tally tally = new Tally(classCount, retainObservations);
+            Evaluator evaluator = evaluators.get();
+            for (int i = from; i < to; i++) {
+                evaluator.evaluate(i, tally);
+            }
+            return tally;
+        }
+        int middle = (from + to) >>> 1;
+        EvaluationTask left = new EvaluationTask(evaluators, classCount, from, middle, retainObservations);
+        EvaluationTask right = new EvaluationTask(evaluators, classCount, middle, to, retainObservations);
+        left.fork();
+        Tally rightTally = right.compute();
+        Tally leftTally = left.join();
+        // Merging into the left tally keeps the retained observations in data set order.
+        leftTally.merge(rightTally);
+        return leftTally;
+    }
+
+    /**
+     * Tests single observations of a data set, using scratch buffers of its own so that it can run on one thread
+     * without coordinating with other evaluators.
+     */
+    interface Evaluator {
+
+        /**
+         * Tests the network on the ith observation of the data set, adding the outcome to the tally.
+         *
+         * @param i     the index of the observation.
+         * @param tally the tally to add the outcome to.
+         */
+        void evaluate(int i, Tally tally);
+    }
+
+    /**
+     * The accumulated outcome of testing a range of observations.
+     */
+    static class Tally {
+
+        int correctCount = 0;
+        double error = 0;
+        final int[] correctByClass;
+        final int[] incorrectByClass;
+        // The classified observations, or null if they are not retained.
+        final List<Observation> correct;
+        final List<Observation> incorrect;
+
+        /**
+         * Creates an empty tally.
+         *
+         * @param classCount         the number of classes of the network.
+         * @param retainObservations whether to keep lists of the classified observations.
+         */
+        Tally(int classCount, boolean retainObservations) {
+            this.correctByClass = new int[classCount];
+            this.incorrectByClass = new int[classCount];
+            this.correct = retainObservations ? new ArrayList<>() : null;
+            this.incorrect = retainObservations ? new ArrayList<>() : null;
+        }
+
+        /**
+         * Records the outcome of testing the ith observation of a data set.
+         *
+         * @param dataSet    the data set holding the observation.
+         * @param i          the index of the observation.
+         * @param classIndex the index of the observation's class among the network's classes, or -1 if it is unknown.
+         * @param prediction the index of the class the network predicted.
+         * @param error      the error of the network's output.
+         */
+        void record(NetworkDataSet dataSet, int i, int classIndex, int prediction, double error) {
+            if (prediction == classIndex) {
+                correctCount++;
+                correctByClass[classIndex]++;
+                if (correct != null) {
+                    correct.add(toObservation(dataSet.getObservation(i)));
+                }
+            } else {
+                if (classIndex >= 0) {
+                    incorrectByClass[classIndex]++;
+                }
+                if (incorrect != null) {
+                    incorrect.add(toObservation(dataSet.getObservation(i)));
+                }
+            }
+            this.error += error;
+        }
+
+        // Returns the observation itself if it is an Observation, or an equivalent Observation otherwise.
+        private static Observation toObservation(NetworkObservation obs) {
+            if (obs instanceof Observation) {
+                return (Observation) obs;
+            }
+            return new Observation(obs.getAttributes(), obs.getClassification());
+        }
+
+        /**
+         * Adds the outcome of another tally to this one.
+         *
+         * @param other the tally to add.
+         */
+        void merge(Tally other) {
+            correctCount += other.correctCount;
+            error += other.error;
+            for (int i = 0; i < correctByClass.length; i++) {
+                correctByClass[i] += other.correctByClass[i];
+                incorrectByClass[i] += other.incorrectByClass[i];
+            }
+            if (correct != null) {
+                correct.addAll(other.correct);
+                incorrect.addAll(other.incorrect);
+            }
+        }
+    }
+}
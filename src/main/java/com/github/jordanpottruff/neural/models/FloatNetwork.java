@@ -0,0 +1,375 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.ActivationFunc;
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+import com.github.jordanpottruff.neural.initializers.Initializer;
+import com.github.jordanpottruff.neural.optimizers.Optimizer;
+import com.github.jordanpottruff.neural.optimizers.SGD;
+import com.github.jordanpottruff.neural.tensor.Blas;
+import com.github.jordanpottruff.neural.tensor.FloatMatrix;
+import com.github.jordanpottruff.neural.tensor.Matrix;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * A back propagation network that stores its weights, activations and gradients as floats rather than doubles. Since
+ * training and inference are dominated by streaming the weights and activations through memory, halving their size
+ * roughly halves the time spent waiting on memory, and twice as many values fit in each vector register. The price is
+ * a precision of about seven significant digits, which is ample for the weights of a neural network.
+ * <p>
+ * A single-precision network learns exactly as a {@link BackPropNetwork} does and supports the same optimizers, whose
+ * state is kept in double precision. It can be converted to and from a {@link BackPropNetwork}, for example to save
+ * it with {@link BackPropNetwork#save(String)}.
+ */
+public class FloatNetwork implements Network {
+
+    // The number of mini-batches that are packed ahead of training.
+    private static final int PREFETCH_DEPTH = 2;
+
+    final List<Integer> layerSizes;
+    final String[] classes;
+    final FloatMatrix[] weights;
+    final float[][] biases;
+    final ActivationFunc hiddenActFunc;
+    final ActivationFunc outputActFunc;
+    // The source of randomness for shuffling training data.
+    Random random = new Random();
+    private Optimizer optimizer;
+    // Scratch buffers for classifying single observations, created once for each thread that classifies.
+    private final ThreadLocal<float[][]> inferenceBuffers;
+
+    /**
+     * Creates a new single-precision network. The weights are drawn exactly as for a {@link BackPropNetwork} created
+     * with the same arguments, then rounded to floats.
+     *
+     * @param inputSize     the number of nodes in the input layer.
+     * @param hiddenSizes   the number of nodes in each hidden layer. Each value corresponds to successive layer
+     *                      sizes.
+     * @param classes       the classifications an observation can receive.
+     * @param hiddenActFunc the activation function for the hidden layers of the network.
+     * @param outputActFunc the activation function for the output layer of the network.
+     * @param init          the initializer for the network weights.
+     */
+    public FloatNetwork(int inputSize, int[] hiddenSizes, String[] classes, ActivationFunc hiddenActFunc,
+                        ActivationFunc outputActFunc, Initializer init) {
+        this(new BackPropNetwork(inputSize, hiddenSizes, classes, hiddenActFunc, outputActFunc, init));
+    }
+
+    /**
+     * Creates a single-precision copy of a network, rounding its weights and biases to floats.
+     *
+     * @param network the network to copy.
+     */
+    public FloatNetwork(BackPropNetwork network) {
+        this.layerSizes = network.layerSizes;
+        this.classes = network.classes;
+        this.hiddenActFunc = network.hiddenActFunc;
+        this.outputActFunc = network.outputActFunc;
+        this.weights = new FloatMatrix[network.weights.length];
+        this.biases = new float[network.biases.length][];
+        for (int l = 0; l < weights.length; l++) {
+            Matrix source = network.weights[l];
+            weights[l] = new FloatMatrix(source.rows(), source.cols(), toFloats(source.data()));
+            biases[l] = toFloats(network.biases[l]);
+        }
+        this.inferenceBuffers = ThreadLocal.withInitial(this::createInferenceBuffers);
+        setOptimizer(new SGD());
+    }
+
+    // Returns a copy of the values rounded to floats.
+    private static float[] toFloats(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    // Returns a copy of the values widened to doubles.
+    private static double[] toDoubles(float[] values) {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a double-precision copy of the network, which can be saved, loaded and trained with the full feature
+     * set of {@link BackPropNetwork}.
+     *
+     * @return the copy of the network.
+     */
+    public BackPropNetwork toBackPropNetwork() {
+        Matrix[] doubleWeights = new Matrix[weights.length];
+        double[][] doubleBiases = new double[biases.length][];
+        for (int l = 0; l < weights.length; l++) {
+            doubleWeights[l] = new Matrix(weights[l].rows(), weights[l].cols(), toDoubles(weights[l].data()));
+            doubleBiases[l] = toDoubles(biases[l]);
+        }
+        return new BackPropNetwork(layerSizes, classes, doubleWeights, doubleBiases, hiddenActFunc, outputActFunc);
+    }
+
+    /**
+     * Sets the optimizer that updates the weights and biases after each mini-batch, replacing any state kept by the
+     * previous optimizer. Networks use plain stochastic gradient descent by default.
+     *
+     * @param optimizer the optimizer, which must not be shared with another network.
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        int[] sizes = new int[2 * weights.length];
+        for (int l = 0; l < weights.length; l++) {
+            sizes[2 * l] = weights[l].data().length;
+            sizes[2 * l + 1] = biases[l].length;
+        }
+        optimizer.initialize(sizes);
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * Returns the optimizer that updates the weights and biases after each mini-batch.
+     *
+     * @return the optimizer.
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void train(NetworkDataSet trainingSet, int miniBatchSize, double learningRate) {
+        train(trainingSet, miniBatchSize, batch -> learningRate);
+    }
+
+    /**
+     * Trains the network for a single epoch as in {@link #train(NetworkDataSet, int, double)}, with the learning rate
+     * of each mini-batch chosen by a controller that may also end the epoch early. If the calling thread is
+     * interrupted, the epoch ends after the current mini-batch and the thread's interrupt status is left set.
+     *
+     * @param trainingSet   the data set to train the network on.
+     * @param miniBatchSize the size of the mini-batches to be used in gradient descent.
+     * @param controller    the controller of the epoch.
+     */
+    public void train(NetworkDataSet trainingSet, int miniBatchSize, TrainingController controller) {
+        // Shuffle training set. Mini batches are consecutive ranges of the shuffled set, packed in the background.
+        trainingSet.shuffle(random);
+        FloatTrainingWorkspace workspace = new FloatTrainingWorkspace(layerSizes,
+                Math.min(miniBatchSize, trainingSet.size()));
+
+        try (BatchPrefetcher prefetcher = new BatchPrefetcher(trainingSet, getClassMap(trainingSet), layerSizes.get(0),
+                miniBatchSize, PREFETCH_DEPTH, true)) {
+            int batchIndex = 0;
+            for (BatchPrefetcher.Batch batch = prefetcher.take(); batch != null; batch = prefetcher.take()) {
+                int size = batch.size;
+                System.arraycopy(batch.floatAttributes, 0, workspace.batchActivations[0].data(), 0,
+                        size * batch.attributeCount);
+                System.arraycopy(batch.classes, 0, workspace.batchClasses, 0, size);
+                prefetcher.release(batch);
+
+                accumulateBatchGradient(size, workspace);
+                applyGradient(workspace, size, controller.getLearningRate(batchIndex));
+                if (!controller.batchCompleted(batchIndex++)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stop after the last complete mini-batch, leaving the interrupt status set so the caller can tell that
+            // the epoch was cut short.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Updates the weights and biases in place with the optimizer, then zeroes the gradients for reuse. Parameter
+    // arrays are numbered as for BackPropNetwork.
+    private void applyGradient(FloatTrainingWorkspace workspace, int batchSize, double learningRate) {
+        double gradientScale = 1.0 / batchSize;
+        optimizer.beginStep();
+        for (int l = 0; l < weights.length; l++) {
+            optimizer.update(2 * l, weights[l].data(), workspace.weightGradient[l].data(), gradientScale, learningRate);
+            optimizer.update(2 * l + 1, biases[l], workspace.biasGradient[l], gradientScale, learningRate);
+        }
+        workspace.clearGradient();
+    }
+
+    // Adds the gradients of the first n observations held in the workspace's batch input to its gradients, exactly as
+    // BackPropNetwork.accumulateBatchGradient does in double precision.
+    void accumulateBatchGradient(int n, FloatTrainingWorkspace workspace) {
+        feedForwardBatch(workspace, n);
+
+        FloatMatrix[] activations = workspace.batchActivations;
+        float[][] derivatives = workspace.batchDerivatives;
+
+        // Calculate the deltas of the output layer, one row per observation.
+        int outputLayerIndex = activations.length - 1;
+        float[] outputActivation = activations[outputLayerIndex].data();
+        float[] outputDerivative = derivatives[outputLayerIndex - 1];
+        FloatMatrix delta = workspace.batchDeltas[outputLayerIndex - 1];
+        float[] deltaValues = delta.data();
+        int outputSize = delta.cols();
+        for (int o = 0; o < n; o++) {
+            int offset = o * outputSize;
+            int classIndex = workspace.batchClasses[o];
+            for (int i = 0; i < outputSize; i++) {
+                float expected = i == classIndex ? 1.0f : 0.0f;
+                deltaValues[offset + i] = outputDerivative[offset + i] * (outputActivation[offset + i] - expected);
+            }
+        }
+        accumulateBatchLayerGradient(n, delta, activations[outputLayerIndex - 1], outputLayerIndex - 1, workspace);
+
+        // Calculate the deltas of the hidden layer(s).
+        for (int hiddenLayerIndex = outputLayerIndex - 1; hiddenLayerIndex > 0; hiddenLayerIndex -= 1) {
+            FloatMatrix hiddenDelta = workspace.batchDeltas[hiddenLayerIndex - 1];
+            float[] hiddenDeltaValues = hiddenDelta.data();
+            float[] hiddenDerivative = derivatives[hiddenLayerIndex - 1];
+            int length = n * hiddenDelta.cols();
+            Blas.gemm(n, delta, weights[hiddenLayerIndex], hiddenDelta);
+            for (int i = 0; i < length; i++) {
+                hiddenDeltaValues[i] *= hiddenDerivative[i];
+            }
+            delta = hiddenDelta;
+
+            accumulateBatchLayerGradient(n, delta, activations[hiddenLayerIndex - 1], hiddenLayerIndex - 1, workspace);
+        }
+    }
+
+    // Adds delta^T * activations to the layer's weight gradient and the column sums of delta to its bias gradient.
+    private void accumulateBatchLayerGradient(int n, FloatMatrix delta, FloatMatrix activations, int layer,
+                                              FloatTrainingWorkspace workspace) {
+        Blas.gemmTN(n, 1.0f, delta, activations, workspace.weightGradient[layer]);
+        float[] biasGradient = workspace.biasGradient[layer];
+        float[] deltaValues = delta.data();
+        for (int o = 0; o < n; o++) {
+            Blas.axpy(biasGradient.length, 1.0f, deltaValues, o * biasGradient.length, biasGradient, 0);
+        }
+    }
+
+    // Computes the activations of each layer for the first n observations held in the workspace's batch input, along
+    // with the derivatives of the activation functions for the backward pass.
+    private void feedForwardBatch(FloatTrainingWorkspace workspace, int n) {
+        FloatMatrix[] activations = workspace.batchActivations;
+        for (int layer = 0; layer < weights.length; layer++) {
+            FloatMatrix output = activations[layer + 1];
+            Blas.gemmNT(n, activations[layer], weights[layer], output);
+            ActivationFunc actFunc = layer < weights.length - 1 ? hiddenActFunc : outputActFunc;
+            actFunc.applyBiasAndFunc(output.data(), biases[layer], n, output.cols(), workspace.batchDerivatives[layer]);
+        }
+    }
+
+    // Returns the index of each of the data set's classes among the network's classes, or -1 for unknown classes.
+    private int[] getClassMap(NetworkDataSet dataSet) {
+        String[] dataSetClasses = dataSet.getClasses();
+        int[] classMap = new int[dataSetClasses.length];
+        for (int i = 0; i < dataSetClasses.length; i++) {
+            classMap[i] = -1;
+            for (int c = 0; c < classes.length; c++) {
+                if (dataSetClasses[i].equals(classes[c])) {
+                    classMap[i] = c;
+                    break;
+                }
+            }
+        }
+        return classMap;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public BackPropNetwork.Result test(NetworkDataSet testingSet) {
+        return test(testingSet, true);
+    }
+
+    /**
+     * Tests the neural network on the given data set, dividing the observations among the threads of the common
+     * fork-join pool as {@link BackPropNetwork#test(NetworkDataSet, boolean)} does.
+     *
+     * @param testingSet         the data set to test the network on.
+     * @param retainObservations whether the result should list the correctly and incorrectly classified observations.
+     * @return the results of the test.
+     */
+    public BackPropNetwork.Result test(NetworkDataSet testingSet, boolean retainObservations) {
+        int[] classMap = getClassMap(testingSet);
+        Supplier<EvaluationTask.Evaluator> evaluators = () -> {
+            float[][] buffers = createInferenceBuffers();
+            return (i, tally) -> {
+                testingSet.copyAttributes(i, buffers[0], 0);
+                float[] output = feedForward(buffers);
+                int classIndex = BackPropNetwork.mapClass(classMap, testingSet.getClassIndex(i));
+                tally.record(testingSet, i, classIndex, argMax(output), getError(classIndex, output));
+            };
+        };
+        EvaluationTask task = new EvaluationTask(evaluators, classes.length, 0, testingSet.size(), retainObservations);
+        EvaluationTask.Tally tally = ForkJoinPool.commonPool().invoke(task);
+        double accuracy = (double) tally.correctCount / testingSet.size();
+        double avgError = tally.error / testingSet.size();
+        return new BackPropNetwork.Result(accuracy, avgError, classes, tally);
+    }
+
+    // Returns half the squared distance between the output and the expected output for the class index.
+    private double getError(int classIndex, float[] output) {
+        double error = 0;
+        for (int i = 0; i < classes.length; i++) {
+            double diff = (i == classIndex ? 1.0 : 0.0) - output[i];
+            error += diff * diff;
+        }
+        return 0.5 * error;
+    }
+
+    /**
+     * Classifies a given set of attributes. Each thread lazily receives its own scratch buffers, after which
+     * classification performs no heap allocation.
+     *
+     * @param attributes a list of attribute values.
+     * @return the classification of the attribute values.
+     */
+    @Override
+    public String classify(VecN attributes) {
+        float[][] buffers = inferenceBuffers.get();
+        for (int i = 0; i < attributes.size(); i++) {
+            buffers[0][i] = (float) attributes.get(i);
+        }
+        return classes[argMax(feedForward(buffers))];
+    }
+
+    // Returns two buffers large enough to hold the activations of any layer, for use by the inference forward pass.
+    private float[][] createInferenceBuffers() {
+        int maxLayerSize = 0;
+        for (int size : layerSizes) {
+            maxLayerSize = Math.max(maxLayerSize, size);
+        }
+        return new float[][]{new float[maxLayerSize], new float[maxLayerSize]};
+    }
+
+    // Computes the output of the network whose input is held by the first buffer, alternating between the two buffers.
+    // Returns the buffer whose first values are the activations of the output layer.
+    private float[] feedForward(float[][] buffers) {
+        float[] input = buffers[0];
+        float[] output = buffers[1];
+        for (int layer = 0; layer < weights.length; layer++) {
+            Blas.gemv(weights[layer], input, output);
+            ActivationFunc actFunc = layer < weights.length - 1 ? hiddenActFunc : outputActFunc;
+            actFunc.applyBiasAndFunc(output, biases[layer], 1, weights[layer].rows(), null);
+            float[] swap = input;
+            input = output;
+            output = swap;
+        }
+        return input;
+    }
+
+    // Returns the index of the class with the highest output. Ties go to the first class.
+    private int argMax(float[] output) {
+        int best = 0;
+        for (int i = 1; i < classes.length; i++) {
+            if (output[i] > output[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
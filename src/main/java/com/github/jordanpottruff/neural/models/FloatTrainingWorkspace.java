@@ -0,0 +1,61 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.tensor.FloatMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds every buffer needed to train a {@link FloatNetwork} on mini-batches, in single precision. This is the
+ * counterpart of the batch buffers of {@link TrainingWorkspace}, and is likewise confined to a single thread.
+ */
+class FloatTrainingWorkspace {
+
+    // Activations of each layer for a whole batch, one observation per row, where index 0 holds the input attributes.
+    final FloatMatrix[] batchActivations;
+    // Error terms of each layer after the input layer for a whole batch, one observation per row.
+    final FloatMatrix[] batchDeltas;
+    // Derivatives of the activation function of each layer after the input layer for a whole batch, in the same
+    // layout as the batch deltas.
+    final float[][] batchDerivatives;
+    // The class index of each observation in the batch.
+    final int[] batchClasses;
+    // Accumulated gradients of the weights and biases since they were last cleared.
+    final FloatMatrix[] weightGradient;
+    final float[][] biasGradient;
+
+    /**
+     * Creates a workspace for a network with the given layer sizes.
+     *
+     * @param layerSizes    the number of nodes in each layer, starting with the input layer.
+     * @param batchCapacity the maximum number of observations in a batch.
+     */
+    FloatTrainingWorkspace(List<Integer> layerSizes, int batchCapacity) {
+        int layers = layerSizes.size();
+        this.batchActivations = new FloatMatrix[layers];
+        this.batchDeltas = new FloatMatrix[layers - 1];
+        this.weightGradient = new FloatMatrix[layers - 1];
+        this.biasGradient = new float[layers - 1][];
+        this.batchDerivatives = new float[layers - 1][];
+        batchActivations[0] = new FloatMatrix(batchCapacity, layerSizes.get(0));
+        for (int layer = 1; layer < layers; layer++) {
+            int size = layerSizes.get(layer);
+            batchActivations[layer] = new FloatMatrix(batchCapacity, size);
+            batchDeltas[layer - 1] = new FloatMatrix(batchCapacity, size);
+            batchDerivatives[layer - 1] = new float[batchCapacity * size];
+            weightGradient[layer - 1] = new FloatMatrix(size, layerSizes.get(layer - 1));
+            biasGradient[layer - 1] = new float[size];
+        }
+        this.batchClasses = new int[batchCapacity];
+    }
+
+    /**
+     * Sets the accumulated gradients back to zero.
+     */
+    void clearGradient() {
+        for (int layer = 0; layer < weightGradient.length; layer++) {
+            weightGradient[layer].fill(0);
+            Arrays.fill(biasGradient[layer], 0);
+        }
+    }
+}
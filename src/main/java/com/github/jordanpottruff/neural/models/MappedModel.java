@@ -0,0 +1,167 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.ActivationFunc;
+import com.github.jordanpottruff.neural.tensor.Blas;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * An inference-only view of a model file written by {@link BackPropNetwork#save(String)}, whose weights and biases are
+ * read directly from the memory-mapped file rather than copied onto the heap. Every process that opens the same file
+ * shares a single physical copy of the parameters through the operating system's page cache, and opening a model only
+ * reads its header, so start-up time does not depend on the size of the network.
+ * <p>
+ * A mapped model is immutable and may be shared between threads. Each thread lazily receives its own scratch buffers,
+ * after which classification performs no heap allocation. The file must not be modified while it is mapped.
+ */
+public final class MappedModel {
+
+    private final String[] classes;
+    private final int[] layerSizes;
+    // Views of the mapped file holding the row-major weights and the biases of each layer.
+    private final DoubleBuffer[] weights;
+    private final DoubleBuffer[] biases;
+    private final ActivationFunc hiddenActFunc;
+    private final ActivationFunc outputActFunc;
+    private final ThreadLocal<double[][]> buffers;
+
+    // Creates views of each layer's parameters within the mapped file.
+    private MappedModel(ByteBuffer buffer, ModelFormat.Header header) {
+        List<Integer> sizes = header.layerSizes;
+        this.classes = header.classes;
+        this.layerSizes = new int[sizes.size()];
+        int maxLayerSize = 0;
+        for (int l = 0; l < layerSizes.length; l++) {
+            layerSizes[l] = sizes.get(l);
+            maxLayerSize = Math.max(maxLayerSize, layerSizes[l]);
+        }
+        this.hiddenActFunc = header.hiddenActFunc;
+        this.outputActFunc = header.outputActFunc;
+
+        DoubleBuffer parameters = header.getParameters(buffer);
+        this.weights = new DoubleBuffer[layerSizes.length - 1];
+        this.biases = new DoubleBuffer[layerSizes.length - 1];
+        int position = 0;
+        for (int l = 0; l < weights.length; l++) {
+            int rows = layerSizes[l + 1];
+            weights[l] = slice(parameters, position, rows * layerSizes[l]);
+            position += rows * layerSizes[l];
+            biases[l] = slice(parameters, position, rows);
+            position += rows;
+        }
+
+        int bufferSize = maxLayerSize;
+        this.buffers = ThreadLocal.withInitial(() -> new double[][]{new double[bufferSize], new double[bufferSize]});
+    }
+
+    /**
+     * Memory-maps a model file.
+     *
+     * @param filename the name of the file.
+     * @return the mapped model.
+     * @throws IOException if the file cannot be read or is not a valid model file.
+     */
+    public static MappedModel open(String filename) throws IOException {
+        ByteBuffer buffer = ModelFormat.map(filename);
+        return new MappedModel(buffer, new ModelFormat.Header(buffer, filename));
+    }
+
+    // Returns a view of length values of the buffer, starting at the given index.
+    private static DoubleBuffer slice(DoubleBuffer buffer, int from, int length) {
+        DoubleBuffer view = buffer.duplicate();
+        view.position(from);
+        view.limit(from + length);
+        return view.slice();
+    }
+
+    /**
+     * Returns the classifications an observation can receive, in the order used by class indices.
+     *
+     * @return the classes of the model.
+     */
+    public String[] getClasses() {
+        return classes.clone();
+    }
+
+    /**
+     * Returns the number of attributes the model expects.
+     *
+     * @return the size of the input layer.
+     */
+    public int getInputSize() {
+        return layerSizes[0];
+    }
+
+    /**
+     * Classifies a given set of attributes.
+     *
+     * @param attributes a list of attribute values.
+     * @return the classification of the attribute values.
+     */
+    public String classify(VecN attributes) {
+        double[][] scratch = buffers.get();
+        double[] input = scratch[0];
+        for (int i = 0; i < layerSizes[0]; i++) {
+            input[i] = attributes.get(i);
+        }
+        return classes[Predictor.argMax(feedForward(scratch), classes.length)];
+    }
+
+    /**
+     * Classifies a given array of attributes.
+     *
+     * @param attributes the attribute values.
+     * @return the index of the classification of the attribute values.
+     */
+    public int classify(double[] attributes) {
+        return Predictor.argMax(run(attributes), classes.length);
+    }
+
+    /**
+     * Computes the output of the model for a given array of attributes, writing the activation of each class's output
+     * node to the given array.
+     *
+     * @param attributes the attribute values.
+     * @param output     the array to write the output to, with at least one value per class.
+     * @return the index of the classification of the attribute values.
+     */
+    public int predict(double[] attributes, double[] output) {
+        double[] result = run(attributes);
+        System.arraycopy(result, 0, output, 0, classes.length);
+        return Predictor.argMax(result, classes.length);
+    }
+
+    // Copies the attributes into this thread's buffers and runs the forward pass.
+    private double[] run(double[] attributes) {
+        double[][] scratch = buffers.get();
+        System.arraycopy(attributes, 0, scratch[0], 0, layerSizes[0]);
+        return feedForward(scratch);
+    }
+
+    // Computes the output of the model whose input is held by the first buffer, alternating between the two buffers
+    // as in Predictor.feedForward. Returns the buffer holding the output.
+    private double[] feedForward(double[][] scratch) {
+        double[] input = scratch[0];
+        double[] output = scratch[1];
+        for (int layer = 0; layer < weights.length; layer++) {
+            int size = layerSizes[layer + 1];
+            Blas.gemv(size, layerSizes[layer], weights[layer], input, output);
+            Blas.axpy(size, 1.0, biases[layer], output);
+            if (layer < weights.length - 1) {
+                // Hidden layers
+                hiddenActFunc.applyFunc(output, output, size);
+            } else {
+                // Output layer
+                outputActFunc.applyFunc(output, output, size);
+            }
+            double[] swap = input;
+            input = output;
+            output = swap;
+        }
+        return input;
+    }
+}
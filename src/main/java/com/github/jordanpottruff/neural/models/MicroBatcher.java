@@ -0,0 +1,150 @@
+package com.github.jordanpottruff.neural.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gathers classification requests from many threads into batches before running them through a predictor. A batch is
+ * dispatched as soon as it holds the maximum number of requests, or once the oldest request in it has waited for the
+ * maximum delay. This trades a small, bounded amount of latency for the throughput of batched inference.
+ */
+public class MicroBatcher implements AutoCloseable {
+
+    private final Predictor predictor;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue;
+    private final AtomicLong batchCount = new AtomicLong();
+    private final Thread dispatcher;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a micro-batcher and starts its dispatching thread.
+     *
+     * @param predictor      the predictor to classify batches with.
+     * @param maxBatchSize   the maximum number of requests in a batch.
+     * @param maxDelayMicros the maximum number of microseconds a request waits for its batch to fill.
+     */
+    public MicroBatcher(Predictor predictor, int maxBatchSize, long maxDelayMicros) {
+        this(predictor, maxBatchSize, maxDelayMicros, new LinkedBlockingQueue<>());
+    }
+
+    // Creates a micro-batcher that holds its pending requests in the given queue.
+    MicroBatcher(Predictor predictor, int maxBatchSize, long maxDelayMicros, BlockingQueue<Request> queue) {
+        this.predictor = predictor;
+        this.queue = queue;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.dispatcher = new Thread(this::dispatch, "micro-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues a set of attributes to be classified in the next batch.
+     *
+     * @param attributes the attribute values.
+     * @return a future that completes with the index of the classification of the attribute values.
+     */
+    public CompletableFuture<Integer> classify(double[] attributes) {
+        Request request = new Request(attributes);
+        if (closed) {
+            request.result.completeExceptionally(new IllegalStateException("The micro-batcher is closed"));
+            return request.result;
+        }
+        queue.add(request);
+        // The batcher may have closed, and drained the queue, after the check above. If the request is still queued
+        // then nothing else will complete it; if not, the dispatcher or the drain has already taken it.
+        if (closed && queue.remove(request)) {
+            request.result.completeExceptionally(new IllegalStateException("The micro-batcher is closed"));
+        }
+        return request.result;
+    }
+
+    /**
+     * Returns the number of batches dispatched so far.
+     *
+     * @return the number of batches.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Stops the dispatching thread. Requests that have not been dispatched yet complete exceptionally.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new IllegalStateException("The micro-batcher is closed"));
+        }
+    }
+
+    // Repeatedly waits for a request, gathers a batch around it and classifies the batch.
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Request request = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (request == null) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+                run(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Closing interrupts the dispatcher; fail whatever was gathered so far.
+            for (Request request : batch) {
+                request.result.completeExceptionally(new IllegalStateException("The micro-batcher is closed"));
+            }
+        }
+    }
+
+    // Classifies the batch and completes each request with its result.
+    private void run(List<Request> batch) {
+        double[][] attributes = new double[batch.size()][];
+        for (int i = 0; i < batch.size(); i++) {
+            attributes[i] = batch.get(i).attributes;
+        }
+        try {
+            int[] classIndices = predictor.classifyBatch(attributes);
+            batchCount.incrementAndGet();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(classIndices[i]);
+            }
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // A pending classification.
+    static class Request {
+
+        private final double[] attributes;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        private Request(double[] attributes) {
+            this.attributes = attributes;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.activations.ActivationFunc;
+import com.github.jordanpottruff.neural.tensor.Matrix;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the binary model format. A model file is a little-endian header followed by the parameters of
+ * each layer in turn: its weights in row-major order, then its biases, all as doubles. The header holds the format
+ * version, the layer sizes, the class names of the activation functions and the names of the network's classes, and
+ * is padded to a multiple of 8 bytes so that the parameters are aligned when the file is memory-mapped.
+ */
+final class ModelFormat {
+
+    private static final int MAGIC = 0x4D424E4E;
+    private static final int VERSION = 1;
+    // The number of bytes written to the file at a time.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ModelFormat() {
+    }
+
+    /**
+     * Writes the network to a file, replacing any existing file. The network is written to a new temporary file in the
+     * same directory that then replaces the file, so a failed write leaves the previous file intact, concurrent saves
+     * to the same file do not interfere, and a model that still has the file mapped keeps reading the previous
+     * contents.
+     *
+     * @param network  the network to write.
+     * @param filename the name of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    static void write(BackPropNetwork network, String filename) throws IOException {
+        Path path = Paths.get(filename).toAbsolutePath();
+        Path temporaryPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+                writeFully(channel, encodeHeader(network));
+
+                ByteBuffer buffer = createWriteBuffer();
+                for (int l = 0; l < network.weights.length; l++) {
+                    writeDoubles(channel, buffer, network.weights[l].data());
+                    writeDoubles(channel, buffer, network.biases[l]);
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryPath);
+            throw e;
+        }
+    }
+
+    // Returns a buffer for writeDoubles, in the byte order of the format.
+    static ByteBuffer createWriteBuffer() {
+        return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Returns the header describing the network, padded to a multiple of 8 bytes.
+    static ByteBuffer encodeHeader(BackPropNetwork network) {
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(network.hiddenActFunc.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        strings.add(network.outputActFunc.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        for (String name : network.classes) {
+            strings.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int size = 12 + 4 * network.layerSizes.size() + 4;
+        for (byte[] string : strings) {
+            size += 2 + string.length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(align(size)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(network.layerSizes.size());
+        for (int layerSize : network.layerSizes) {
+            header.putInt(layerSize);
+        }
+        header.putInt(network.classes.length);
+        for (byte[] string : strings) {
+            header.putShort((short) string.length).put(string);
+        }
+        header.position(0);
+        return header;
+    }
+
+    // Rounds the size up to a multiple of 8 bytes.
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    // Adds the values to the buffer, writing the buffer to the channel whenever it fills.
+    static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        int written = 0;
+        while (written < values.length) {
+            if (buffer.remaining() < Double.BYTES) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            int count = Math.min(values.length - written, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, written, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            written += count;
+        }
+    }
+
+    // Writes every remaining byte of the buffer to the channel.
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Memory-maps a model file.
+     *
+     * @param filename the name of the file.
+     * @return the mapped file, in little-endian order.
+     * @throws IOException if the file cannot be read or is too large to map.
+     */
+    static ByteBuffer map(String filename) throws IOException {
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(filename + " is too large: model files are limited to " + Integer.MAX_VALUE
+                        + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Reads a network from a file. The file is memory-mapped and its parameters are copied in bulk, so no parsing is
+     * needed beyond the header.
+     *
+     * @param filename the name of the file.
+     * @return the network.
+     * @throws IOException if the file cannot be read or is not a valid model file.
+     */
+    static BackPropNetwork read(String filename) throws IOException {
+        ByteBuffer buffer = map(filename);
+        Header header = new Header(buffer, filename);
+        DoubleBuffer parameters = header.getParameters(buffer);
+
+        List<Integer> layerSizes = header.layerSizes;
+        Matrix[] weights = new Matrix[layerSizes.size() - 1];
+        double[][] biases = new double[layerSizes.size() - 1][];
+        for (int l = 0; l < weights.length; l++) {
+            weights[l] = new Matrix(layerSizes.get(l + 1), layerSizes.get(l));
+            parameters.get(weights[l].data());
+            biases[l] = new double[layerSizes.get(l + 1)];
+            parameters.get(biases[l]);
+        }
+        return new BackPropNetwork(layerSizes, header.classes, weights, biases, header.hiddenActFunc,
+                header.outputActFunc);
+    }
+
+    /**
+     * The description of a network at the start of a model file.
+     */
+    static class Header {
+
+        final List<Integer> layerSizes;
+        final String[] classes;
+        final ActivationFunc hiddenActFunc;
+        final ActivationFunc outputActFunc;
+        // The position of the first parameter in the file.
+        final int parameterOffset;
+        // The number of parameters in the file.
+        final long parameterCount;
+
+        /**
+         * Reads the header at the start of a model file and checks that the file holds every parameter.
+         *
+         * @param buffer   the contents of the file, in little-endian order.
+         * @param filename the name of the file, for error messages.
+         * @throws IOException if the file is not a valid model file.
+         */
+        Header(ByteBuffer buffer, String filename) throws IOException {
+            try {
+                if (buffer.getInt(0) != MAGIC) {
+                    throw new IOException(filename + " is not a model file");
+                }
+                int version = buffer.getInt(4);
+                if (version != VERSION) {
+                    throw new IOException(filename + " has unsupported model version " + version);
+                }
+                // Every count is checked against the size of the file before anything is allocated from it, so a
+                // corrupt header fails with an IOException rather than a huge or negative allocation.
+                int layerCount = buffer.getInt(8);
+                if (layerCount < 2 || layerCount > (buffer.limit() - 16) / 4) {
+                    throw new IOException(filename + " has an invalid layer count " + layerCount);
+                }
+                this.layerSizes = new ArrayList<>();
+                int position = 12;
+                long parameters = 0;
+                long maxParameters = buffer.limit() / Double.BYTES;
+                for (int l = 0; l < layerCount; l++) {
+                    int layerSize = buffer.getInt(position);
+                    if (layerSize < 1) {
+                        throw new IOException(filename + " has an invalid layer size " + layerSize);
+                    }
+                    layerSizes.add(layerSize);
+                    position += 4;
+                    if (l > 0) {
+                        parameters += (long) layerSize * (layerSizes.get(l - 1) + 1);
+                        if (parameters > maxParameters) {
+                            throw new IOException(filename + " is truncated: its layers need more parameters than it"
+                                    + " holds");
+                        }
+                    }
+                }
+                this.parameterCount = parameters;
+                int classCount = buffer.getInt(position);
+                if (classCount != layerSizes.get(layerCount - 1)) {
+                    throw new IOException(filename + " has " + classCount + " classes but "
+                            + layerSizes.get(layerCount - 1) + " outputs");
+                }
+                this.classes = new String[classCount];
+                position += 4;
+
+                String[] strings = new String[2 + classes.length];
+                for (int s = 0; s < strings.length; s++) {
+                    byte[] bytes = new byte[buffer.getShort(position) & 0xFFFF];
+                    ByteBuffer view = buffer.duplicate();
+                    view.position(position + 2);
+                    view.get(bytes);
+                    strings[s] = new String(bytes, StandardCharsets.UTF_8);
+                    position += 2 + bytes.length;
+                }
+                this.hiddenActFunc = createActivationFunc(strings[0], filename);
+                this.outputActFunc = createActivationFunc(strings[1], filename);
+                System.arraycopy(strings, 2, classes, 0, classes.length);
+                this.parameterOffset = align(position);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IOException(filename + " has a truncated model header", e);
+            }
+
+            long expectedSize = parameterOffset + parameterCount * Double.BYTES;
+            if (buffer.limit() < expectedSize) {
+                throw new IOException(filename + " is truncated: expected " + expectedSize + " bytes");
+            }
+        }
+
+        /**
+         * Returns a view of the parameters in the file, beginning with the weights of the first layer.
+         *
+         * @param buffer the contents of the file, in little-endian order.
+         * @return the parameters.
+         */
+        DoubleBuffer getParameters(ByteBuffer buffer) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(parameterOffset);
+            return view.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+
+        // Creates an activation function from its class name using its no-argument constructor. The class is checked
+        // to be an activation function before it is initialized, so a file cannot make this run any other class's code.
+        private static ActivationFunc createActivationFunc(String className, String filename) throws IOException {
+            try {
+                return Class.forName(className, false, ModelFormat.class.getClassLoader())
+                        .asSubclass(ActivationFunc.class).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException(filename + " uses an unavailable activation function: " + className, e);
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.github.jordanpottruff.neural.models;
 
 import com.github.jordanpottruff.jgml.VecN;
-import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
 import com.github.jordanpottruff.neural.data.Observation;
 
 import java.util.List;
@@ -15,19 +15,19 @@ public interface Network {
      * Trains the neural network on the given training data set by separating the data into a series of mini-batches
      * and performing gradient descent on each. This can be thought of as a single training epoch.
      *
-     * @param trainingSet   the DataSet to train the network on.
+     * @param trainingSet   the data set to train the network on.
      * @param miniBatchSize the size of the mini-batches to be used in gradient descent.
      * @param learningRate  the learning rate for the epoch.
      */
-    void train(DataSet trainingSet, int miniBatchSize, double learningRate);
+    void train(NetworkDataSet trainingSet, int miniBatchSize, double learningRate);
 
     /**
      * Tests the neural network on the given data set.
      *
-     * @param testingSet the DataSet to test the network on.
+     * @param testingSet the data set to test the network on.
      * @return the results of the test.
      */
-    TestResult test(DataSet testingSet);
+    TestResult test(NetworkDataSet testingSet);
 
     /**
      * Classifies a given set of attributes according to the current network weights.
@@ -0,0 +1,187 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.ActivationFunc;
+import com.github.jordanpottruff.neural.tensor.Blas;
+import com.github.jordanpottruff.neural.tensor.Matrix;
+
+import java.util.Collections;
+
+/**
+ * A read-only snapshot of a trained back propagation network that is optimized for classifying single observations
+ * with low latency. A predictor is immutable and may be shared between threads. Each thread lazily receives its own
+ * scratch buffers, after which classification performs no heap allocation.
+ */
+public final class Predictor {
+
+    private final String[] classes;
+    private final int inputSize;
+    private final Matrix[] weights;
+    private final double[][] biases;
+    private final ActivationFunc hiddenActFunc;
+    private final ActivationFunc outputActFunc;
+    private final ThreadLocal<double[][]> buffers;
+
+    /**
+     * Creates a predictor from the current weights of a network. Later training of the network does not affect the
+     * predictor.
+     *
+     * @param network the trained network.
+     */
+    public Predictor(BackPropNetwork network) {
+        this.classes = network.classes.clone();
+        this.inputSize = network.layerSizes.get(0);
+        this.weights = new Matrix[network.weights.length];
+        this.biases = new double[network.biases.length][];
+        for (int l = 0; l < weights.length; l++) {
+            this.weights[l] = network.weights[l].copy();
+            this.biases[l] = network.biases[l].clone();
+        }
+        this.hiddenActFunc = network.hiddenActFunc;
+        this.outputActFunc = network.outputActFunc;
+        // The buffers are sized here rather than by the network, so that the predictor holds no reference to it.
+        int maxLayerSize = Collections.max(network.layerSizes);
+        this.buffers = ThreadLocal.withInitial(() -> new double[][]{
+                new double[maxLayerSize], new double[maxLayerSize]});
+    }
+
+    /**
+     * Returns the classifications an observation can receive, in the order used by class indices.
+     *
+     * @return the classes of the network.
+     */
+    public String[] getClasses() {
+        return classes.clone();
+    }
+
+    /**
+     * Returns the classification with the given index.
+     *
+     * @param classIndex the index of the class.
+     * @return the name of the class.
+     */
+    public String getClass(int classIndex) {
+        return classes[classIndex];
+    }
+
+    /**
+     * Classifies a given set of attributes.
+     *
+     * @param attributes a list of attribute values.
+     * @return the classification of the attribute values.
+     */
+    public String classify(VecN attributes) {
+        double[][] scratch = buffers.get();
+        double[] input = scratch[0];
+        for (int i = 0; i < inputSize; i++) {
+            input[i] = attributes.get(i);
+        }
+        return classes[argMax(feedForward(weights, biases, hiddenActFunc, outputActFunc, scratch), classes.length)];
+    }
+
+    /**
+     * Classifies a given array of attributes.
+     *
+     * @param attributes the attribute values.
+     * @return the index of the classification of the attribute values.
+     */
+    public int classify(double[] attributes) {
+        return argMax(run(attributes), classes.length);
+    }
+
+    /**
+     * Computes the output of the network for a given array of attributes, writing the activation of each class's
+     * output node to the given array.
+     *
+     * @param attributes the attribute values.
+     * @param output     the array to write the output to, with at least one value per class.
+     * @return the index of the classification of the attribute values.
+     */
+    public int predict(double[] attributes, double[] output) {
+        double[] result = run(attributes);
+        System.arraycopy(result, 0, output, 0, classes.length);
+        return argMax(result, classes.length);
+    }
+
+    /**
+     * Classifies a batch of attribute arrays at once. Each layer is computed for the whole batch with a single
+     * matrix-matrix product, so the weights are read once per batch rather than once per observation.
+     *
+     * @param attributes the attribute values of each observation.
+     * @return the index of the classification of each observation.
+     */
+    public int[] classifyBatch(double[][] attributes) {
+        return classifyBatch(weights, biases, hiddenActFunc, outputActFunc, attributes);
+    }
+
+    // Copies the attributes into this thread's buffers and runs the forward pass.
+    private double[] run(double[] attributes) {
+        double[][] scratch = buffers.get();
+        System.arraycopy(attributes, 0, scratch[0], 0, inputSize);
+        return feedForward(weights, biases, hiddenActFunc, outputActFunc, scratch);
+    }
+
+    // Computes the output of a network whose input is held by the first buffer. Each layer reads from one buffer and
+    // writes to the other, since inference does not need the activations of earlier layers. Returns the buffer holding
+    // the output, whose first values are the activations of the output layer.
+    static double[] feedForward(Matrix[] weights, double[][] biases, ActivationFunc hiddenActFunc,
+                                ActivationFunc outputActFunc, double[][] buffers) {
+        double[] input = buffers[0];
+        double[] output = buffers[1];
+        for (int layer = 0; layer < weights.length; layer++) {
+            Blas.gemv(weights[layer], input, output);
+            ActivationFunc actFunc = layer < weights.length - 1 ? hiddenActFunc : outputActFunc;
+            actFunc.applyBiasAndFunc(output, biases[layer], 1, weights[layer].rows(), null);
+            double[] swap = input;
+            input = output;
+            output = swap;
+        }
+        return input;
+    }
+
+    // Classifies each row of attributes by computing the network's output for the whole batch, one layer at a time.
+    static int[] classifyBatch(Matrix[] weights, double[][] biases, ActivationFunc hiddenActFunc,
+                               ActivationFunc outputActFunc, double[][] attributes) {
+        int n = attributes.length;
+        int inputSize = weights[0].cols();
+        Matrix input = new Matrix(n, inputSize);
+        for (int o = 0; o < n; o++) {
+            System.arraycopy(attributes[o], 0, input.data(), o * inputSize, inputSize);
+        }
+
+        for (int layer = 0; layer < weights.length; layer++) {
+            int size = weights[layer].rows();
+            Matrix output = new Matrix(n, size);
+            Blas.gemmNT(n, input, weights[layer], output);
+            ActivationFunc actFunc = layer < weights.length - 1 ? hiddenActFunc : outputActFunc;
+            actFunc.applyBiasAndFunc(output.data(), biases[layer], n, size, null);
+            input = output;
+        }
+
+        int[] classIndices = new int[n];
+        int classCount = input.cols();
+        double[] output = input.data();
+        for (int o = 0; o < n; o++) {
+            int offset = o * classCount;
+            int maxIndex = 0;
+            for (int i = 1; i < classCount; i++) {
+                if (output[offset + i] > output[offset + maxIndex]) {
+                    maxIndex = i;
+                }
+            }
+            classIndices[o] = maxIndex;
+        }
+        return classIndices;
+    }
+
+    // Returns the index of the highest of the first length values. Ties go to the first index.
+    static int argMax(double[] output, int length) {
+        int maxIndex = 0;
+        for (int i = 1; i < length; i++) {
+            if (output[i] > output[maxIndex]) {
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+}
@@ -0,0 +1,388 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.ActivationFunc;
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+import com.github.jordanpottruff.neural.tensor.Blas;
+import com.github.jordanpottruff.neural.tensor.Matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * An inference-only copy of a trained back propagation network whose weights are stored as 8-bit integers, which makes
+ * the weights eight times smaller than in the original network.
+ * <p>
+ * Weights are quantized symmetrically: each weight is divided by a scale and rounded to an integer in [-127, 127]. The
+ * scale is either shared by a whole layer or chosen separately for each row, that is for each node. The input of each
+ * layer is quantized the same way, using a scale calibrated by running the original network over a sample of data and
+ * recording the largest activation that reaches the layer. Each node then sums the products of its quantized weights
+ * and inputs as 32-bit integers, and the sum is converted back to a real value with a single multiplication before
+ * the bias and activation function are applied.
+ * <p>
+ * A quantized network is immutable and may be shared between threads. Each thread lazily receives its own scratch
+ * buffers, after which classification performs no heap allocation.
+ */
+public final class QuantizedNetwork {
+
+    // The largest magnitude of a quantized value. -128 is not used, so that quantization is symmetric around zero.
+    private static final int LEVELS = 127;
+
+    /**
+     * How the scales of the weights are chosen.
+     */
+    public enum Granularity {
+        /**
+         * A single scale for all of the weights of a layer.
+         */
+        LAYER,
+        /**
+         * A separate scale for the weights of each node, which preserves more precision for nodes whose weights are
+         * small compared to the rest of the layer.
+         */
+        ROW
+    }
+
+    private final String[] classes;
+    private final int[] layerSizes;
+    private final ActivationFunc hiddenActFunc;
+    private final ActivationFunc outputActFunc;
+    // The quantized weights of each layer, in row-major order.
+    private final byte[][] weights;
+    private final double[][] biases;
+    // The reciprocal of the scale of each layer's input, which quantizes an activation with one multiplication.
+    private final double[] inputInverseScales;
+    // For each node, the product of the scale of its weights and the scale of its layer's input, which converts the
+    // integer sum back to a real value.
+    private final double[][] outputScales;
+    // The size of the largest layer, which every scratch buffer must hold.
+    private final int bufferSize;
+    private final ThreadLocal<Buffers> buffers;
+
+    private QuantizedNetwork(BackPropNetwork network, double[] inputScales, Granularity granularity) {
+        this.classes = network.classes.clone();
+        this.layerSizes = new int[network.layerSizes.size()];
+        for (int l = 0; l < layerSizes.length; l++) {
+            layerSizes[l] = network.layerSizes.get(l);
+        }
+        this.hiddenActFunc = network.hiddenActFunc;
+        this.outputActFunc = network.outputActFunc;
+
+        int layerCount = network.weights.length;
+        this.weights = new byte[layerCount][];
+        this.biases = new double[layerCount][];
+        this.inputInverseScales = new double[layerCount];
+        this.outputScales = new double[layerCount][];
+        for (int l = 0; l < layerCount; l++) {
+            double[] values = network.weights[l].data();
+            int rows = layerSizes[l + 1];
+            int cols = layerSizes[l];
+            weights[l] = new byte[values.length];
+            biases[l] = network.biases[l].clone();
+            inputInverseScales[l] = 1.0 / inputScales[l];
+            outputScales[l] = new double[rows];
+
+            double layerScale = scale(values, 0, values.length);
+            for (int r = 0; r < rows; r++) {
+                double weightScale = granularity == Granularity.ROW ? scale(values, r * cols, cols) : layerScale;
+                double inverse = 1.0 / weightScale;
+                for (int c = r * cols; c < (r + 1) * cols; c++) {
+                    weights[l][c] = quantize(values[c] * inverse);
+                }
+                outputScales[l][r] = weightScale * inputScales[l];
+            }
+        }
+        int maxLayerSize = 0;
+        for (int size : layerSizes) {
+            maxLayerSize = Math.max(maxLayerSize, size);
+        }
+        this.bufferSize = maxLayerSize;
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(bufferSize));
+    }
+
+    /**
+     * Quantizes a trained network with a separate scale for the weights of each node.
+     *
+     * @param network        the trained network.
+     * @param calibrationSet a sample of data like that the network will classify, used to choose the scale of each
+     *                       layer's input.
+     * @return the quantized network.
+     */
+    public static QuantizedNetwork quantize(BackPropNetwork network, NetworkDataSet calibrationSet) {
+        return quantize(network, calibrationSet, Granularity.ROW);
+    }
+
+    /**
+     * Quantizes a trained network. Later training of the network does not affect the quantized network.
+     *
+     * @param network        the trained network.
+     * @param calibrationSet a sample of data like that the network will classify, used to choose the scale of each
+     *                       layer's input.
+     * @param granularity    whether the weights of each layer or of each node share a scale.
+     * @return the quantized network.
+     */
+    public static QuantizedNetwork quantize(BackPropNetwork network, NetworkDataSet calibrationSet,
+                                            Granularity granularity) {
+        if (calibrationSet.size() == 0) {
+            throw new IllegalArgumentException("The calibration set must not be empty");
+        }
+        return new QuantizedNetwork(network, calibrate(network, calibrationSet), granularity);
+    }
+
+    // Runs the network over the calibration set and returns the scale of each layer's input, which maps the largest
+    // magnitude seen at that input to the largest quantized value.
+    private static double[] calibrate(BackPropNetwork network, NetworkDataSet calibrationSet) {
+        Matrix[] weights = network.weights;
+        double[] maxima = new double[weights.length];
+        double[][] buffers = network.createInferenceBuffers();
+        for (int i = 0; i < calibrationSet.size(); i++) {
+            calibrationSet.copyAttributes(i, buffers[0], 0);
+            double[] input = buffers[0];
+            double[] output = buffers[1];
+            for (int l = 0; l < weights.length; l++) {
+                for (int c = 0; c < weights[l].cols(); c++) {
+                    maxima[l] = Math.max(maxima[l], Math.abs(input[c]));
+                }
+                if (l == weights.length - 1) {
+                    // The output of the last layer is never quantized.
+                    break;
+                }
+                Blas.gemv(weights[l], input, output);
+                network.hiddenActFunc.applyBiasAndFunc(output, network.biases[l], 1, weights[l].rows(), null);
+                double[] swap = input;
+                input = output;
+                output = swap;
+            }
+        }
+        double[] scales = new double[maxima.length];
+        for (int l = 0; l < scales.length; l++) {
+            // An input that is always zero can use any scale.
+            scales[l] = maxima[l] > 0 ? maxima[l] / LEVELS : 1.0;
+        }
+        return scales;
+    }
+
+    // Returns the scale that maps the largest magnitude among length values from offset to the largest quantized value.
+    private static double scale(double[] values, int offset, int length) {
+        double max = 0;
+        for (int i = offset; i < offset + length; i++) {
+            max = Math.max(max, Math.abs(values[i]));
+        }
+        return max > 0 ? max / LEVELS : 1.0;
+    }
+
+    // Rounds an already scaled value to the nearest quantized value, saturating values outside the quantized range.
+    private static byte quantize(double scaled) {
+        return (byte) Math.round(Math.max(-LEVELS, Math.min(LEVELS, scaled)));
+    }
+
+    /**
+     * Returns the classifications an observation can receive, in the order used by class indices.
+     *
+     * @return the classes of the network.
+     */
+    public String[] getClasses() {
+        return classes.clone();
+    }
+
+    /**
+     * Returns the number of bytes taken by the quantized weights.
+     *
+     * @return the size of the weights in bytes.
+     */
+    public long getWeightBytes() {
+        long bytes = 0;
+        for (byte[] layer : weights) {
+            bytes += layer.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Classifies a given set of attributes.
+     *
+     * @param attributes a list of attribute values.
+     * @return the classification of the attribute values.
+     */
+    public String classify(VecN attributes) {
+        Buffers scratch = buffers.get();
+        for (int i = 0; i < layerSizes[0]; i++) {
+            scratch.output[i] = attributes.get(i);
+        }
+        return classes[Predictor.argMax(feedForward(scratch), classes.length)];
+    }
+
+    /**
+     * Classifies a given array of attributes.
+     *
+     * @param attributes the attribute values.
+     * @return the index of the classification of the attribute values.
+     */
+    public int classify(double[] attributes) {
+        Buffers scratch = buffers.get();
+        System.arraycopy(attributes, 0, scratch.output, 0, layerSizes[0]);
+        return Predictor.argMax(feedForward(scratch), classes.length);
+    }
+
+    // Computes the output of the network for the attributes held in the buffers' output array, one layer at a time.
+    // Each layer quantizes the real values left by the previous layer, accumulates its integer products, then converts
+    // each sum back to a real value and adds the bias in the same pass. Returns the array holding the output.
+    private double[] feedForward(Buffers scratch) {
+        byte[] input = scratch.input;
+        double[] output = scratch.output;
+        for (int l = 0; l < weights.length; l++) {
+            int rows = layerSizes[l + 1];
+            int cols = layerSizes[l];
+            double inverseScale = inputInverseScales[l];
+            for (int c = 0; c < cols; c++) {
+                input[c] = quantize(output[c] * inverseScale);
+            }
+
+            byte[] layerWeights = weights[l];
+            double[] bias = biases[l];
+            double[] scales = outputScales[l];
+            for (int r = 0; r < rows; r++) {
+                output[r] = dot(layerWeights, r * cols, input, cols) * scales[r] + bias[r];
+            }
+            if (l < weights.length - 1) {
+                // Hidden layers
+                hiddenActFunc.applyFunc(output, output, rows);
+            } else {
+                // Output layer
+                outputActFunc.applyFunc(output, output, rows);
+            }
+        }
+        return output;
+    }
+
+    // Returns the sum of the products of the length weights from offset and the first length inputs, accumulated as a
+    // 32-bit integer, which cannot overflow for layers of fewer than 2^31 / 127^2 inputs.
+    private static int dot(byte[] weights, int offset, byte[] input, int length) {
+        int sum = 0;
+        for (int c = 0; c < length; c++) {
+            sum += weights[offset + c] * input[c];
+        }
+        return sum;
+    }
+
+    /**
+     * Tests the quantized network on the given data set, dividing the observations among the threads of the common
+     * fork-join pool as {@link BackPropNetwork#test(NetworkDataSet, boolean)} does.
+     *
+     * @param testingSet         the data set to test the network on.
+     * @param retainObservations whether the result should list the correctly and incorrectly classified observations.
+     * @return the results of the test.
+     */
+    public BackPropNetwork.Result test(NetworkDataSet testingSet, boolean retainObservations) {
+        String[] dataSetClasses = testingSet.getClasses();
+        int[] classMap = new int[dataSetClasses.length];
+        for (int i = 0; i < dataSetClasses.length; i++) {
+            classMap[i] = -1;
+            for (int j = 0; j < classes.length; j++) {
+                if (classes[j].equals(dataSetClasses[i])) {
+                    classMap[i] = j;
+                    break;
+                }
+            }
+        }
+        Supplier<EvaluationTask.Evaluator> evaluators = () -> {
+            Buffers scratch = new Buffers(bufferSize);
+            return (i, tally) -> {
+                testingSet.copyAttributes(i, scratch.output, 0);
+                double[] output = feedForward(scratch);
+                int classIndex = BackPropNetwork.mapClass(classMap, testingSet.getClassIndex(i));
+                tally.record(testingSet, i, classIndex, Predictor.argMax(output, classes.length),
+                        getError(classIndex, output));
+            };
+        };
+        EvaluationTask task = new EvaluationTask(evaluators, classes.length, 0, testingSet.size(), retainObservations);
+        EvaluationTask.Tally tally = ForkJoinPool.commonPool().invoke(task);
+        double accuracy = (double) tally.correctCount / testingSet.size();
+        double avgError = tally.error / testingSet.size();
+        return new BackPropNetwork.Result(accuracy, avgError, classes, tally);
+    }
+
+    // Returns half the squared distance between the output and the expected output for the class index.
+    private double getError(int classIndex, double[] output) {
+        double error = 0;
+        for (int i = 0; i < classes.length; i++) {
+            double diff = (i == classIndex ? 1.0 : 0.0) - output[i];
+            error += diff * diff;
+        }
+        return 0.5 * error;
+    }
+
+    /**
+     * Tests both the original network and the quantized network on the same data set, to measure the accuracy lost to
+     * quantization.
+     *
+     * @param original   the network that was quantized.
+     * @param testingSet the data set to test both networks on.
+     * @return the comparison of the two networks.
+     */
+    public Comparison compare(BackPropNetwork original, NetworkDataSet testingSet) {
+        return new Comparison(original.test(testingSet, false), test(testingSet, false));
+    }
+
+    /**
+     * The scratch space of one thread: the quantized input of the current layer and the real values of its output.
+     */
+    private static class Buffers {
+
+        final byte[] input;
+        final double[] output;
+
+        Buffers(int size) {
+            this.input = new byte[size];
+            this.output = new double[size];
+        }
+    }
+
+    /**
+     * The results of testing a network and its quantized copy on the same data set.
+     */
+    public static class Comparison {
+
+        private final BackPropNetwork.Result original;
+        private final BackPropNetwork.Result quantized;
+
+        private Comparison(BackPropNetwork.Result original, BackPropNetwork.Result quantized) {
+            this.original = original;
+            this.quantized = quantized;
+        }
+
+        /**
+         * Returns the result of testing the original network.
+         *
+         * @return the result of the original network.
+         */
+        public BackPropNetwork.Result getOriginal() {
+            return original;
+        }
+
+        /**
+         * Returns the result of testing the quantized network.
+         *
+         * @return the result of the quantized network.
+         */
+        public BackPropNetwork.Result getQuantized() {
+            return quantized;
+        }
+
+        /**
+         * Returns the accuracy of the quantized network minus that of the original network, which is negative when
+         * quantization loses accuracy.
+         *
+         * @return the difference in accuracy.
+         */
+        public double getAccuracyDifference() {
+            return quantized.getAccuracy() - original.getAccuracy();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Original accuracy %.2f%%, quantized accuracy %.2f%% (%+.2f%%)",
+                    original.getAccuracy() * 100, quantized.getAccuracy() * 100, getAccuracyDifference() * 100);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.data.NetworkObservation;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Trains a network incrementally from a source of observations that may never end, such as a live feed of labelled
+ * samples. Observations pass through a fixed-size shuffle buffer: once the buffer is full, each new observation
+ * replaces a randomly chosen buffered one, which is trained on instead. This decorrelates nearby observations while
+ * keeping memory bounded by the buffer size rather than the length of the stream. Training happens in mini-batches as
+ * soon as enough observations have left the buffer, so the network improves continuously.
+ */
+public class StreamTrainer {
+
+    private final Random random = new Random();
+    private final BackPropNetwork network;
+    private final int miniBatchSize;
+    private final double learningRate;
+    private final int inputSize;
+    private final TrainingWorkspace workspace;
+
+    // The attributes and class index of each buffered observation.
+    private final double[] bufferedAttributes;
+    private final int[] bufferedClasses;
+    private int bufferedCount = 0;
+    // The number of observations packed into the workspace for the next mini-batch.
+    private int batchCount = 0;
+
+    private int checkpointInterval = 0;
+    private Consumer<BackPropNetwork> checkpointHook;
+    private long observationCount = 0;
+    private long updateCount = 0;
+
+    /**
+     * Creates a trainer for a network.
+     *
+     * @param network           the network to train.
+     * @param miniBatchSize     the number of observations in each mini-batch.
+     * @param learningRate      the learning rate.
+     * @param shuffleBufferSize the number of observations held back for shuffling, or 0 to train on observations in
+     *                          the order they arrive.
+     */
+    public StreamTrainer(BackPropNetwork network, int miniBatchSize, double learningRate, int shuffleBufferSize) {
+        this.network = network;
+        this.miniBatchSize = miniBatchSize;
+        this.learningRate = learningRate;
+        this.inputSize = network.layerSizes.get(0);
+        this.workspace = new TrainingWorkspace(network.layerSizes, miniBatchSize);
+        this.bufferedAttributes = new double[shuffleBufferSize * inputSize];
+        this.bufferedClasses = new int[shuffleBufferSize];
+    }
+
+    /**
+     * Sets a hook that is called on the training thread after every given number of mini-batch updates, for example
+     * to save the network.
+     *
+     * @param interval the number of updates between calls.
+     * @param hook     the hook to call with the network.
+     */
+    public void setCheckpointHook(int interval, Consumer<BackPropNetwork> hook) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        this.checkpointInterval = interval;
+        this.checkpointHook = hook;
+    }
+
+    /**
+     * Trains on every observation of the source until it is exhausted or the calling thread is interrupted. The shuffle
+     * buffer and any partial mini-batch are kept, so training can be resumed by a later call; {@link #flush()} trains
+     * on them once the stream has ended.
+     *
+     * @param source the observations to train on.
+     * @return the number of observations taken from the source.
+     */
+    public long train(Iterator<? extends NetworkObservation> source) {
+        long taken = 0;
+        while (source.hasNext() && !Thread.currentThread().isInterrupted()) {
+            add(source.next());
+            taken++;
+        }
+        return taken;
+    }
+
+    /**
+     * Trains on every observation of the source until it is exhausted or the calling thread is interrupted, as in
+     * {@link #train(Iterator)}. This accepts sources such as {@code stream.spliterator()}.
+     *
+     * @param source the observations to train on.
+     * @return the number of observations taken from the source.
+     */
+    public long train(Spliterator<? extends NetworkObservation> source) {
+        long start = observationCount;
+        boolean remaining = true;
+        while (remaining && !Thread.currentThread().isInterrupted()) {
+            remaining = source.tryAdvance(this::add);
+        }
+        return observationCount - start;
+    }
+
+    /**
+     * Adds a single observation to the stream.
+     *
+     * @param observation the observation to train on.
+     */
+    public void add(NetworkObservation observation) {
+        observationCount++;
+        VecN attributes = observation.getAttributes();
+        int classIndex = network.getClassIndex(observation.getClassification());
+        if (bufferedClasses.length == 0) {
+            // Without a buffer, observations go straight into the next batch.
+            int offset = batchCount * inputSize;
+            double[] input = workspace.batchActivations[0].data();
+            for (int i = 0; i < inputSize; i++) {
+                input[offset + i] = attributes.get(i);
+            }
+            addToBatch(classIndex);
+            return;
+        }
+
+        int slot;
+        if (bufferedCount < bufferedClasses.length) {
+            slot = bufferedCount++;
+        } else {
+            // Train on a random buffered observation and take its place.
+            slot = random.nextInt(bufferedCount);
+            emit(slot);
+        }
+        int offset = slot * inputSize;
+        for (int i = 0; i < inputSize; i++) {
+            bufferedAttributes[offset + i] = attributes.get(i);
+        }
+        bufferedClasses[slot] = classIndex;
+    }
+
+    /**
+     * Trains on every observation still held in the shuffle buffer, in random order, followed by any partial
+     * mini-batch. This should be called once the stream has ended.
+     */
+    public void flush() {
+        while (bufferedCount > 0) {
+            int slot = random.nextInt(bufferedCount);
+            emit(slot);
+            // Fill the gap with the last buffered observation.
+            bufferedCount--;
+            System.arraycopy(bufferedAttributes, bufferedCount * inputSize, bufferedAttributes, slot * inputSize,
+                    inputSize);
+            bufferedClasses[slot] = bufferedClasses[bufferedCount];
+        }
+        if (batchCount > 0) {
+            update();
+        }
+    }
+
+    // Moves a buffered observation into the next batch.
+    private void emit(int slot) {
+        System.arraycopy(bufferedAttributes, slot * inputSize, workspace.batchActivations[0].data(),
+                batchCount * inputSize, inputSize);
+        addToBatch(bufferedClasses[slot]);
+    }
+
+    // Records the class of the observation just packed into the batch, updating the network if the batch is full.
+    private void addToBatch(int classIndex) {
+        workspace.batchClasses[batchCount++] = classIndex;
+        if (batchCount == miniBatchSize) {
+            update();
+        }
+    }
+
+    // Performs gradient descent on the packed batch and calls the checkpoint hook when it is due.
+    private void update() {
+        network.accumulateBatchGradient(batchCount, workspace);
+        network.applyGradient(workspace, batchCount, learningRate);
+        batchCount = 0;
+        updateCount++;
+        if (checkpointHook != null && updateCount % checkpointInterval == 0) {
+            checkpointHook.accept(network);
+        }
+    }
+
+    /**
+     * Returns the number of observations added to the stream so far.
+     *
+     * @return the number of observations.
+     */
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    /**
+     * Returns the number of mini-batch updates applied to the network so far.
+     *
+     * @return the number of updates.
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+}
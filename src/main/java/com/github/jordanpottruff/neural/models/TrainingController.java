@@ -0,0 +1,26 @@
+package com.github.jordanpottruff.neural.models;
+
+/**
+ * Controls a training epoch one mini-batch at a time, choosing the learning rate of each batch and deciding after each
+ * update whether the epoch should continue. The controller is called on the thread that started training.
+ */
+public interface TrainingController {
+
+    /**
+     * Returns the learning rate to update the network with after the given mini-batch.
+     *
+     * @param batch the index of the mini-batch within the epoch.
+     * @return the learning rate.
+     */
+    double getLearningRate(int batch);
+
+    /**
+     * Called after the network has been updated with the given mini-batch.
+     *
+     * @param batch the index of the mini-batch within the epoch.
+     * @return whether training should continue with the next mini-batch.
+     */
+    default boolean batchCompleted(int batch) {
+        return true;
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.tensor.Blas;
+import com.github.jordanpottruff.neural.tensor.Matrix;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds every buffer needed to run forward and backward passes of a network, sized once from its layer sizes. A
+ * workspace is confined to a single thread; concurrent training gives each worker its own workspace so that the
+ * steady-state training loop performs no heap allocation per observation. A workspace created with a batch capacity
+ * additionally holds one matrix per layer whose rows are the activations or deltas of each observation in a batch.
+ */
+class TrainingWorkspace {
+
+    // Activations of each layer, where index 0 holds the input attributes.
+    final double[][] activations;
+    // Error terms of each layer after the input layer.
+    final double[][] deltas;
+    // Derivatives of the activation function of each layer after the input layer, written by the forward pass.
+    final double[][] derivatives;
+    // Scratch space for the positions of non-zero activations, large enough for any layer.
+    final int[] activeIndices;
+    // Accumulated gradients of the weights and biases since they were last cleared.
+    final Matrix[] weightGradient;
+    final double[][] biasGradient;
+
+    // The maximum number of observations in a batch, or 0 if the workspace cannot process batches.
+    final int batchCapacity;
+    // Activations of each layer for a whole batch, one observation per row.
+    final Matrix[] batchActivations;
+    // Error terms of each layer after the input layer for a whole batch, one observation per row.
+    final Matrix[] batchDeltas;
+    // Derivatives of the activation function of each layer after the input layer for a whole batch, in the same
+    // layout as the batch deltas.
+    final double[][] batchDerivatives;
+    // The class index of each observation in the batch.
+    final int[] batchClasses;
+    // Whether the matrix kernels run with this workspace may divide their work among the threads of a fork-join pool.
+    // This is false for the workers of concurrent training, which already keep the processors busy between them.
+    final boolean parallel;
+
+    /**
+     * Creates a workspace for a network with the given layer sizes.
+     *
+     * @param layerSizes the number of nodes in each layer, starting with the input layer.
+     */
+    TrainingWorkspace(List<Integer> layerSizes) {
+        this(layerSizes, 0);
+    }
+
+    /**
+     * Creates a workspace for a network with the given layer sizes that can process batches of observations.
+     *
+     * @param layerSizes    the number of nodes in each layer, starting with the input layer.
+     * @param batchCapacity the maximum number of observations in a batch.
+     */
+    TrainingWorkspace(List<Integer> layerSizes, int batchCapacity) {
+        this(layerSizes, batchCapacity, true);
+    }
+
+    /**
+     * Creates a workspace for a network with the given layer sizes that can process batches of observations.
+     *
+     * @param layerSizes    the number of nodes in each layer, starting with the input layer.
+     * @param batchCapacity the maximum number of observations in a batch, or 0 if batches are not needed.
+     * @param parallel      whether the kernels run with this workspace may divide large products among threads.
+     */
+    TrainingWorkspace(List<Integer> layerSizes, int batchCapacity, boolean parallel) {
+        this.parallel = parallel;
+        int layers = layerSizes.size();
+        this.activations = new double[layers][];
+        this.deltas = new double[layers - 1][];
+        this.derivatives = new double[layers - 1][];
+        this.weightGradient = new Matrix[layers - 1];
+        this.biasGradient = new double[layers - 1][];
+
+        int maxActivationSize = layerSizes.get(0);
+        activations[0] = new double[layerSizes.get(0)];
+        for (int layer = 1; layer < layers; layer++) {
+            int size = layerSizes.get(layer);
+            maxActivationSize = Math.max(maxActivationSize, size);
+            activations[layer] = new double[size];
+            deltas[layer - 1] = new double[size];
+            derivatives[layer - 1] = new double[size];
+            biasGradient[layer - 1] = new double[size];
+            int prevSize = layerSizes.get(layer - 1);
+            weightGradient[layer - 1] = new Matrix(size, prevSize, new double[size * prevSize]);
+        }
+        this.activeIndices = new int[maxActivationSize];
+
+        this.batchCapacity = batchCapacity;
+        if (batchCapacity > 0) {
+            this.batchActivations = new Matrix[layers];
+            this.batchDeltas = new Matrix[layers - 1];
+            this.batchDerivatives = new double[layers - 1][];
+            for (int layer = 0; layer < layers; layer++) {
+                int size = layerSizes.get(layer);
+                batchActivations[layer] = new Matrix(batchCapacity, size, new double[batchCapacity * size]);
+                if (layer > 0) {
+                    batchDeltas[layer - 1] = new Matrix(batchCapacity, size, new double[batchCapacity * size]);
+                    batchDerivatives[layer - 1] = new double[batchCapacity * size];
+                }
+            }
+            this.batchClasses = new int[batchCapacity];
+        } else {
+            this.batchActivations = null;
+            this.batchDeltas = null;
+            this.batchDerivatives = null;
+            this.batchClasses = null;
+        }
+    }
+
+    /**
+     * Copies the attributes into the input layer's activation buffer without allocating.
+     *
+     * @param attributes the attributes of an observation.
+     */
+    void setInput(VecN attributes) {
+        double[] input = activations[0];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = attributes.get(i);
+        }
+    }
+
+    /**
+     * Copies the attributes into the given row of the batch input matrix without allocating.
+     *
+     * @param row        the position of the observation in the batch.
+     * @param attributes the attributes of the observation.
+     */
+    void setBatchInput(int row, VecN attributes) {
+        Matrix input = batchActivations[0];
+        double[] values = input.data();
+        int offset = row * input.cols();
+        for (int i = 0; i < input.cols(); i++) {
+            values[offset + i] = attributes.get(i);
+        }
+    }
+
+    /**
+     * Returns the activations of the output layer from the most recent forward pass.
+     *
+     * @return the output buffer.
+     */
+    double[] getOutput() {
+        return activations[activations.length - 1];
+    }
+
+    /**
+     * Adds the accumulated gradients of another workspace to the gradients of this workspace.
+     *
+     * @param other the workspace to add the gradients of.
+     */
+    void addGradient(TrainingWorkspace other) {
+        for (int l = 0; l < weightGradient.length; l++) {
+            double[] values = weightGradient[l].data();
+            Blas.axpy(values.length, 1.0, other.weightGradient[l].data(), values);
+            Blas.axpy(biasGradient[l].length, 1.0, other.biasGradient[l], biasGradient[l]);
+        }
+    }
+
+    /**
+     * Zeroes the accumulated gradients.
+     */
+    void clearGradient() {
+        for (int l = 0; l < weightGradient.length; l++) {
+            weightGradient[l].fill(0);
+            Arrays.fill(biasGradient[l], 0);
+        }
+    }
+}
@@ -2,14 +2,12 @@ package com.github.jordanpottruff.neural.models;
 
 import com.github.jordanpottruff.jgml.MatMN;
 import com.github.jordanpottruff.jgml.VecN;
-import com.github.jordanpottruff.neural.data.DataSet;
-import com.github.jordanpottruff.neural.data.Observation;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.github.jordanpottruff.neural.tensor.Matrix;
 
 class Util {
 
+    // Test-only compatibility helper: training now works on flat arrays, so nothing in the library calls this. It is
+    // kept for the existing tests and is not worth optimizing.
     static VecN componentWiseMultiply(VecN a, VecN b) {
         double[] a_values = a.toArray();
         double[] b_values = b.toArray();
@@ -19,6 +17,7 @@ class Util {
         return new VecN(a_values);
     }
 
+    // Test-only compatibility helper, superseded by Blas.ger and kept for the existing tests. Not worth optimizing.
     static MatMN outerProduct(VecN a, VecN b) {
         double[] a_values = a.toArray();
         double[] b_values = b.toArray();
@@ -32,6 +31,8 @@ class Util {
         return new MatMN(product);
     }
 
+    // Test-only compatibility helper, superseded by Blas.gemvTransposed and kept for the existing tests. Not worth
+    // optimizing.
     static VecN transposeMultiply(VecN vec, MatMN mat) {
         double[] result = new double[mat.cols()];
         for (int col = 0; col < mat.cols(); col++) {
@@ -42,19 +43,14 @@ class Util {
         return new VecN(result);
     }
 
-    static List<List<Observation>> getMiniBatches(DataSet dataSet, int miniBatchSize) {
-        List<List<Observation>> batches = new ArrayList<>();
-        List<Observation> currentBatch = new ArrayList<>();
-        for(int i=0; i<dataSet.size(); i++) {
-            currentBatch.add(dataSet.getObservation(i));
-            if((i+1)%miniBatchSize == 0) {
-                batches.add(currentBatch);
-                currentBatch = new ArrayList<>();
+    // Converts a row-major matrix into the column-major representation used by the graphics math library.
+    static MatMN toMatMN(Matrix matrix) {
+        double[][] columns = new double[matrix.cols()][matrix.rows()];
+        for (int col = 0; col < matrix.cols(); col++) {
+            for (int row = 0; row < matrix.rows(); row++) {
+                columns[col][row] = matrix.get(row, col);
             }
         }
-        if(currentBatch.size() != 0) {
-            batches.add(currentBatch);
-        }
-        return batches;
+        return new MatMN(columns);
     }
 }
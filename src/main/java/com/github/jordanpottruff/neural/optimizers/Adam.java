@@ -0,0 +1,112 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+/**
+ * Adam, as defined by Kingma and Ba (2015). Each parameter's step is its moving average gradient divided by the root
+ * of its moving average squared gradient, with both averages corrected for their bias towards zero in early steps.
+ */
+public class Adam implements Optimizer {
+
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+    private double[][] firstMoments = new double[0][];
+    private double[][] secondMoments = new double[0][];
+    // The number of steps taken, kept in an array so that it is saved with the rest of the state.
+    private final double[] step = new double[1];
+    // The bias corrections of the current step.
+    private double firstCorrection;
+    private double secondCorrection;
+
+    /**
+     * Creates an Adam optimizer with the decay rates 0.9 and 0.999 and an epsilon of 1e-8.
+     */
+    public Adam() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Creates an Adam optimizer.
+     *
+     * @param beta1   the decay rate of the moving average of gradients.
+     * @param beta2   the decay rate of the moving average of squared gradients.
+     * @param epsilon a small value added to the denominator to avoid division by zero.
+     */
+    public Adam(double beta1, double beta2, double epsilon) {
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void initialize(int[] sizes) {
+        firstMoments = new double[sizes.length][];
+        secondMoments = new double[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            firstMoments[i] = new double[sizes[i]];
+            secondMoments[i] = new double[sizes[i]];
+        }
+        step[0] = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void beginStep() {
+        step[0]++;
+        firstCorrection = 1 / (1 - Math.pow(beta1, step[0]));
+        secondCorrection = 1 / (1 - Math.pow(beta2, step[0]));
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, double[] parameters, double[] gradient, double gradientScale, double learningRate) {
+        double[] m = firstMoments[index];
+        double[] v = secondMoments[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double g = gradientScale * gradient[i];
+            double mi = beta1 * m[i] + (1 - beta1) * g;
+            double vi = beta2 * v[i] + (1 - beta2) * g * g;
+            m[i] = mi;
+            v[i] = vi;
+            parameters[i] -= learningRate * (mi * firstCorrection) / (Math.sqrt(vi * secondCorrection) + epsilon);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, float[] parameters, float[] gradient, double gradientScale, double learningRate) {
+        double[] m = firstMoments[index];
+        double[] v = secondMoments[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double g = gradientScale * gradient[i];
+            double mi = beta1 * m[i] + (1 - beta1) * g;
+            double vi = beta2 * v[i] + (1 - beta2) * g * g;
+            m[i] = mi;
+            v[i] = vi;
+            double delta = learningRate * (mi * firstCorrection) / (Math.sqrt(vi * secondCorrection) + epsilon);
+            parameters[i] -= (float) delta;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double[][] getState() {
+        double[][] state = new double[2 * firstMoments.length + 1][];
+        for (int i = 0; i < firstMoments.length; i++) {
+            state[2 * i] = firstMoments[i];
+            state[2 * i + 1] = secondMoments[i];
+        }
+        state[state.length - 1] = step;
+        return state;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+/**
+ * Gradient descent with classical momentum. Each parameter moves along a velocity that accumulates its past gradients,
+ * which speeds up progress along directions where the gradient is consistent and damps oscillation elsewhere.
+ */
+public class Momentum implements Optimizer {
+
+    private final double momentum;
+    private double[][] velocities = new double[0][];
+
+    /**
+     * Creates a momentum optimizer.
+     *
+     * @param momentum the fraction of the velocity kept at each step, typically 0.9.
+     */
+    public Momentum(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void initialize(int[] sizes) {
+        velocities = new double[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            velocities[i] = new double[sizes[i]];
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, double[] parameters, double[] gradient, double gradientScale, double learningRate) {
+        double[] velocity = velocities[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double v = momentum * velocity[i] + gradientScale * gradient[i];
+            velocity[i] = v;
+            parameters[i] -= learningRate * v;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, float[] parameters, float[] gradient, double gradientScale, double learningRate) {
+        double[] velocity = velocities[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double v = momentum * velocity[i] + gradientScale * gradient[i];
+            velocity[i] = v;
+            parameters[i] -= (float) (learningRate * v);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double[][] getState() {
+        return velocities;
+    }
+}
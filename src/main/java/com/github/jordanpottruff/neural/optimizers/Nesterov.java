@@ -0,0 +1,68 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+/**
+ * Gradient descent with Nesterov momentum. The step combines the updated velocity with the current gradient, which
+ * approximates evaluating the gradient at the point the velocity is about to carry the parameters to, and reacts to
+ * changes in the gradient sooner than classical momentum.
+ */
+public class Nesterov implements Optimizer {
+
+    private final double momentum;
+    private double[][] velocities = new double[0][];
+
+    /**
+     * Creates a Nesterov momentum optimizer.
+     *
+     * @param momentum the fraction of the velocity kept at each step, typically 0.9.
+     */
+    public Nesterov(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void initialize(int[] sizes) {
+        velocities = new double[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            velocities[i] = new double[sizes[i]];
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, double[] parameters, double[] gradient, double gradientScale, double learningRate) {
+        double[] velocity = velocities[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double g = gradientScale * gradient[i];
+            double v = momentum * velocity[i] + g;
+            velocity[i] = v;
+            parameters[i] -= learningRate * (g + momentum * v);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, float[] parameters, float[] gradient, double gradientScale, double learningRate) {
+        double[] velocity = velocities[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double g = gradientScale * gradient[i];
+            double v = momentum * velocity[i] + g;
+            velocity[i] = v;
+            parameters[i] -= (float) (learningRate * (g + momentum * v));
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double[][] getState() {
+        return velocities;
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+/**
+ * Defines how a network's parameters are updated from their gradients after each mini-batch. Parameters are held in a
+ * fixed set of flat arrays, such as the weights and biases of each layer, which are identified by their index. An
+ * optimizer keeps its state, such as velocities or moving averages, in buffers that are allocated once by
+ * {@link #initialize(int[])} and updated in place, so an optimizer belongs to a single network.
+ */
+public interface Optimizer {
+
+    /**
+     * Allocates the optimizer's state for parameter arrays of the given sizes, discarding any earlier state.
+     *
+     * @param sizes the length of each parameter array, in index order.
+     */
+    void initialize(int[] sizes);
+
+    /**
+     * Signals the start of an update step, before {@link #update(int, double[], double[], double, double)} is called
+     * for every parameter array.
+     */
+    default void beginStep() {
+    }
+
+    /**
+     * Updates a parameter array in place.
+     *
+     * @param index         the index of the parameter array.
+     * @param parameters    the parameter values, which are updated in place.
+     * @param gradient      the gradient of the error with respect to the parameters, summed over the mini-batch.
+     * @param gradientScale the factor to scale the gradient by, typically one over the size of the mini-batch.
+     * @param learningRate  the learning rate for this step.
+     */
+    void update(int index, double[] parameters, double[] gradient, double gradientScale, double learningRate);
+
+    /**
+     * Updates a single-precision parameter array in place, as for
+     * {@link #update(int, double[], double[], double, double)}. The optimizer's state is kept in double precision, so
+     * that small contributions are not lost from its running averages.
+     *
+     * @param index         the index of the parameter array.
+     * @param parameters    the parameter values, which are updated in place.
+     * @param gradient      the gradient of the error with respect to the parameters, summed over the mini-batch.
+     * @param gradientScale the factor to scale the gradient by, typically one over the size of the mini-batch.
+     * @param learningRate  the learning rate for this step.
+     */
+    void update(int index, float[] parameters, float[] gradient, double gradientScale, double learningRate);
+
+    /**
+     * Returns the buffers holding the optimizer's state. The arrays are the optimizer's own, so their values can be
+     * saved and later written back to restore the optimizer.
+     *
+     * @return the state buffers, which are empty for a stateless optimizer.
+     */
+    default double[][] getState() {
+        return new double[0][];
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+/**
+ * RMSProp, which divides each parameter's step by a moving average of the magnitude of its recent gradients, so that
+ * every parameter learns at a similar rate regardless of the scale of its gradient.
+ */
+public class RMSProp implements Optimizer {
+
+    private final double decay;
+    private final double epsilon;
+    private double[][] meanSquares = new double[0][];
+
+    /**
+     * Creates an RMSProp optimizer with a decay of 0.9 and an epsilon of 1e-8.
+     */
+    public RMSProp() {
+        this(0.9, 1e-8);
+    }
+
+    /**
+     * Creates an RMSProp optimizer.
+     *
+     * @param decay   the fraction of the moving average of squared gradients kept at each step.
+     * @param epsilon a small value added to the denominator to avoid division by zero.
+     */
+    public RMSProp(double decay, double epsilon) {
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void initialize(int[] sizes) {
+        meanSquares = new double[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            meanSquares[i] = new double[sizes[i]];
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, double[] parameters, double[] gradient, double gradientScale, double learningRate) {
+        double[] meanSquare = meanSquares[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double g = gradientScale * gradient[i];
+            double s = decay * meanSquare[i] + (1 - decay) * g * g;
+            meanSquare[i] = s;
+            parameters[i] -= learningRate * g / (Math.sqrt(s) + epsilon);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, float[] parameters, float[] gradient, double gradientScale, double learningRate) {
+        double[] meanSquare = meanSquares[index];
+        for (int i = 0; i < parameters.length; i++) {
+            double g = gradientScale * gradient[i];
+            double s = decay * meanSquare[i] + (1 - decay) * g * g;
+            meanSquare[i] = s;
+            parameters[i] -= (float) (learningRate * g / (Math.sqrt(s) + epsilon));
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double[][] getState() {
+        return meanSquares;
+    }
+}
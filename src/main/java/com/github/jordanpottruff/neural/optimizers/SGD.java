@@ -0,0 +1,37 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+/**
+ * Plain stochastic gradient descent, which moves each parameter against its gradient by the learning rate.
+ */
+public class SGD implements Optimizer {
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void initialize(int[] sizes) {
+        // Plain gradient descent keeps no state.
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, double[] parameters, double[] gradient, double gradientScale, double learningRate) {
+        double alpha = -learningRate * gradientScale;
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] += alpha * gradient[i];
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void update(int index, float[] parameters, float[] gradient, double gradientScale, double learningRate) {
+        float alpha = (float) (-learningRate * gradientScale);
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] += alpha * gradient[i];
+        }
+    }
+}
@@ -0,0 +1,1038 @@
+package com.github.jordanpottruff.neural.tensor;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * Basic linear algebra kernels over row-major {@link Matrix} objects and primitive vectors. Every kernel writes its
+ * result into a buffer supplied by the caller, so none of them allocate. The kernels used for training also have
+ * single-precision overloads over {@link FloatMatrix} objects.
+ * <p>
+ * Matrix products are computed in cache-sized tiles, and within a tile several rows and columns of the result are
+ * computed at once so that each value loaded from memory is used more than once. Every value of a result is still
+ * accumulated in the same order as a plain triple loop would, so the blocking does not change any results. Products
+ * with at least {@link #getParallelThreshold()} multiply-adds also divide their output rows among the threads of a
+ * fork-join pool. The kernels used by training have overloads that take a parallel flag, so that a caller that is
+ * already one of several threads working at once, such as a worker of concurrent training, can keep each product on
+ * its own thread rather than have every worker fan out across the same pool.
+ */
+public final class Blas {
+
+    // Matrix products are computed in tiles so that the operands of the inner loops stay in cache.
+    private static final int TILE_SIZE = 64;
+    private static final int TILE_DEPTH = 256;
+    // The default number of multiply-adds above which a kernel is computed in parallel, roughly a millisecond of work.
+    private static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 21;
+
+    private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private Blas() {
+    }
+
+    /**
+     * Returns the number of multiply-adds above which a kernel divides its output among the threads of a fork-join
+     * pool. A kernel called from a thread of a fork-join pool uses that pool, and otherwise the common pool.
+     *
+     * @return the parallel threshold.
+     */
+    public static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the number of multiply-adds above which a kernel divides its output among the threads of a fork-join pool.
+     * Setting this to {@link Long#MAX_VALUE} makes every kernel run on its calling thread.
+     *
+     * @param multiplyAdds the parallel threshold.
+     */
+    public static void setParallelThreshold(long multiplyAdds) {
+        if (multiplyAdds < 0) {
+            throw new IllegalArgumentException("The parallel threshold must not be negative");
+        }
+        parallelThreshold = multiplyAdds;
+    }
+
+    /**
+     * Computes the matrix-vector product y = A * x.
+     *
+     * @param a the matrix A, of size m x n.
+     * @param x the vector x, of at least size n.
+     * @param y the vector to write the result to, of at least size m.
+     */
+    public static void gemv(Matrix a, double[] x, double[] y) {
+        gemv(a, x, y, true);
+    }
+
+    /**
+     * Computes the matrix-vector product y = A * x.
+     *
+     * @param a        the matrix A, of size m x n.
+     * @param x        the vector x, of at least size n.
+     * @param y        the vector to write the result to, of at least size m.
+     * @param parallel false to compute the product on the calling thread whatever its size.
+     */
+    public static void gemv(Matrix a, double[] x, double[] y, boolean parallel) {
+        int rows = a.rows();
+        int cols = a.cols();
+        double[] values = a.data();
+        if (parallel && RangeTask.isParallel(rows, (long) rows * cols)) {
+            RangeTask.invoke(rows, (from, to) -> gemvRows(values, cols, x, y, from, to));
+        } else {
+            gemvRows(values, cols, x, y, 0, rows);
+        }
+    }
+
+    // Computes the values [from, to) of y = A * x. Four rows are computed at once, which loads each value of x once
+    // per block and gives the processor four independent sums to work on.
+    private static void gemvRows(double[] values, int cols, double[] x, double[] y, int from, int to) {
+        int r = from;
+        for (; r + 3 < to; r += 4) {
+            int offset0 = r * cols;
+            int offset1 = offset0 + cols;
+            int offset2 = offset1 + cols;
+            int offset3 = offset2 + cols;
+            double sum0 = 0;
+            double sum1 = 0;
+            double sum2 = 0;
+            double sum3 = 0;
+            for (int c = 0; c < cols; c++) {
+                double value = x[c];
+                sum0 += values[offset0 + c] * value;
+                sum1 += values[offset1 + c] * value;
+                sum2 += values[offset2 + c] * value;
+                sum3 += values[offset3 + c] * value;
+            }
+            y[r] = sum0;
+            y[r + 1] = sum1;
+            y[r + 2] = sum2;
+            y[r + 3] = sum3;
+        }
+        for (; r < to; r++) {
+            int offset = r * cols;
+            double sum = 0;
+            for (int c = 0; c < cols; c++) {
+                sum += values[offset + c] * x[c];
+            }
+            y[r] = sum;
+        }
+    }
+
+    /**
+     * Computes the matrix-vector product y = A * x for a row-major matrix held in a buffer, such as a memory-mapped
+     * file. Values are read with absolute gets, so the buffer's position is unchanged and it may be shared between
+     * threads.
+     *
+     * @param rows the number of rows m of the matrix.
+     * @param cols the number of columns n of the matrix.
+     * @param a    the buffer holding the values of A, starting at index 0.
+     * @param x    the vector x, of at least size n.
+     * @param y    the vector to write the result to, of at least size m.
+     */
+    public static void gemv(int rows, int cols, DoubleBuffer a, double[] x, double[] y) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * cols;
+            double sum = 0;
+            for (int c = 0; c < cols; c++) {
+                sum += a.get(offset + c) * x[c];
+            }
+            y[r] = sum;
+        }
+    }
+
+    /**
+     * Computes the transposed matrix-vector product y = A^T * x. The matrix is walked row by row, so no strided access
+     * is needed.
+     *
+     * @param a the matrix A, of size m x n.
+     * @param x the vector x, of at least size m.
+     * @param y the vector to write the result to, of at least size n.
+     */
+    public static void gemvTransposed(Matrix a, double[] x, double[] y) {
+        gemvTransposed(a, x, y, true);
+    }
+
+    /**
+     * Computes the transposed matrix-vector product y = A^T * x.
+     *
+     * @param a        the matrix A, of size m x n.
+     * @param x        the vector x, of at least size m.
+     * @param y        the vector to write the result to, of at least size n.
+     * @param parallel false to compute the product on the calling thread whatever its size.
+     */
+    public static void gemvTransposed(Matrix a, double[] x, double[] y, boolean parallel) {
+        int rows = a.rows();
+        int cols = a.cols();
+        double[] values = a.data();
+        if (parallel && RangeTask.isParallel(cols, (long) rows * cols)) {
+            RangeTask.invoke(cols, (from, to) -> gemvTransposedColumns(values, rows, cols, x, y, from, to));
+        } else {
+            gemvTransposedColumns(values, rows, cols, x, y, 0, cols);
+        }
+    }
+
+    // Computes the values [from, to) of y = A^T * x, adding four scaled rows of A to y at a time.
+    private static void gemvTransposedColumns(double[] values, int rows, int cols, double[] x, double[] y, int from,
+                                              int to) {
+        Arrays.fill(y, from, to, 0);
+        int r = 0;
+        for (; r + 3 < rows; r += 4) {
+            addRows(values, r * cols, cols, x[r], x[r + 1], x[r + 2], x[r + 3], y, 0, from, to);
+        }
+        for (; r < rows; r++) {
+            axpy(to - from, x[r], values, r * cols + from, y, from);
+        }
+    }
+
+    /**
+     * Performs the rank-one update A = A + alpha * x * y^T, i.e. adds the scaled outer product of x and y to A.
+     *
+     * @param alpha the scalar multiplier.
+     * @param x     the column vector, of at least size m.
+     * @param y     the row vector, of at least size n.
+     * @param a     the matrix A, of size m x n, which is updated in place.
+     */
+    public static void ger(double alpha, double[] x, double[] y, Matrix a) {
+        ger(alpha, x, y, a, true);
+    }
+
+    /**
+     * Performs the rank-one update A = A + alpha * x * y^T.
+     *
+     * @param alpha    the scalar multiplier.
+     * @param x        the column vector, of at least size m.
+     * @param y        the row vector, of at least size n.
+     * @param a        the matrix A, of size m x n, which is updated in place.
+     * @param parallel false to compute the product on the calling thread whatever its size.
+     */
+    public static void ger(double alpha, double[] x, double[] y, Matrix a, boolean parallel) {
+        int rows = a.rows();
+        int cols = a.cols();
+        double[] values = a.data();
+        if (parallel && RangeTask.isParallel(rows, (long) rows * cols)) {
+            RangeTask.invoke(rows, (from, to) -> gerRows(alpha, x, y, values, cols, from, to));
+        } else {
+            gerRows(alpha, x, y, values, cols, 0, rows);
+        }
+    }
+
+    // Updates the rows [from, to) of A = A + alpha * x * y^T.
+    private static void gerRows(double alpha, double[] x, double[] y, double[] values, int cols, int from, int to) {
+        for (int r = from; r < to; r++) {
+            double scale = alpha * x[r];
+            if (scale == 0) {
+                // The row is unchanged, which is common for rectified activations.
+                continue;
+            }
+            axpy(cols, scale, y, 0, values, r * cols);
+        }
+    }
+
+    /**
+     * Computes y = y + alpha * x over the first n values.
+     *
+     * @param n     the number of values to update.
+     * @param alpha the scalar multiplier.
+     * @param x     the vector x.
+     * @param y     the vector y, which is updated in place.
+     */
+    public static void axpy(int n, double alpha, double[] x, double[] y) {
+        for (int i = 0; i < n; i++) {
+            y[i] += alpha * x[i];
+        }
+    }
+
+    /**
+     * Computes y = y + alpha * x over the first n values, where x is held in a buffer. Values are read with absolute
+     * gets, so the buffer's position is unchanged.
+     *
+     * @param n     the number of values to update.
+     * @param alpha the scalar multiplier.
+     * @param x     the buffer holding the vector x, starting at index 0.
+     * @param y     the vector y, which is updated in place.
+     */
+    public static void axpy(int n, double alpha, DoubleBuffer x, double[] y) {
+        for (int i = 0; i < n; i++) {
+            y[i] += alpha * x.get(i);
+        }
+    }
+
+    /**
+     * Computes y = y + alpha * x over n values, starting at the given offsets. This allows single rows of a matrix's
+     * backing array to be updated.
+     *
+     * @param n       the number of values to update.
+     * @param alpha   the scalar multiplier.
+     * @param x       the vector x.
+     * @param xOffset the index of the first value of x.
+     * @param y       the vector y, which is updated in place.
+     * @param yOffset the index of the first value of y.
+     */
+    public static void axpy(int n, double alpha, double[] x, int xOffset, double[] y, int yOffset) {
+        for (int i = 0; i < n; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Computes the matrix product C = A * B^T over the first n rows of A and C. Both operands are read along their
+     * rows, which makes this the natural layout for a batch of inputs multiplied by a weight matrix.
+     *
+     * @param n the number of rows of A to multiply.
+     * @param a the matrix A, of size n x k or larger.
+     * @param b the matrix B, of size m x k.
+     * @param c the matrix to write the result to, of size n x m or larger.
+     */
+    public static void gemmNT(int n, Matrix a, Matrix b, Matrix c) {
+        gemmNT(n, a, b, c, true);
+    }
+
+    /**
+     * Computes the matrix product C = A * B^T over the first n rows of A and C.
+     *
+     * @param n        the number of rows of A to multiply.
+     * @param a        the matrix A, of size n x k or larger.
+     * @param b        the matrix B, of size m x k.
+     * @param c        the matrix to write the result to, of size n x m or larger.
+     * @param parallel false to compute the product on the calling thread whatever its size.
+     */
+    public static void gemmNT(int n, Matrix a, Matrix b, Matrix c, boolean parallel) {
+        int depth = a.cols();
+        int m = b.rows();
+        double[] aValues = a.data();
+        double[] bValues = b.data();
+        double[] cValues = c.data();
+        if (parallel && RangeTask.isParallel(n, (long) n * m * depth)) {
+            RangeTask.invoke(n, (from, to) -> gemmNTRows(aValues, bValues, cValues, depth, m, from, to));
+        } else {
+            gemmNTRows(aValues, bValues, cValues, depth, m, 0, n);
+        }
+    }
+
+    // Computes the rows [from, to) of C = A * B^T. Within each tile, blocks of four rows by four columns of C are
+    // computed at once as sixteen independent dot products, so each value loaded from A or B is used four times. Each
+    // value of C carries its sum from one depth tile to the next.
+    private static void gemmNTRows(double[] a, double[] b, double[] c, int depth, int m, int from, int to) {
+        Arrays.fill(c, from * m, to * m, 0);
+        for (int p0 = 0; p0 < depth; p0 += TILE_DEPTH) {
+            int p1 = Math.min(p0 + TILE_DEPTH, depth);
+            for (int i0 = from; i0 < to; i0 += TILE_SIZE) {
+                int i1 = Math.min(i0 + TILE_SIZE, to);
+                for (int j0 = 0; j0 < m; j0 += TILE_SIZE) {
+                    int j1 = Math.min(j0 + TILE_SIZE, m);
+                    int i = i0;
+                    for (; i + 3 < i1; i += 4) {
+                        int j = j0;
+                        for (; j + 3 < j1; j += 4) {
+                            dotBlock(a, b, c, depth, m, i, j, p0, p1);
+                        }
+                        for (; j < j1; j++) {
+                            dotColumn(a, b, c, depth, m, i, j, p0, p1);
+                        }
+                    }
+                    for (; i < i1; i++) {
+                        int j = j0;
+                        for (; j + 3 < j1; j += 4) {
+                            dotRow(a, b, c, depth, m, i, j, p0, p1);
+                        }
+                        for (; j < j1; j++) {
+                            int aOffset = i * depth;
+                            int bOffset = j * depth;
+                            double sum = c[i * m + j];
+                            for (int p = p0; p < p1; p++) {
+                                sum += a[aOffset + p] * b[bOffset + p];
+                            }
+                            c[i * m + j] = sum;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Adds the dot products over [p0, p1) of rows i to i + 3 of A with rows j to j + 3 of B to the corresponding
+    // values of C. The sums start from the values of C, so each continues from the previous depth tile in order.
+    private static void dotBlock(double[] a, double[] b, double[] c, int depth, int m, int i, int j, int p0, int p1) {
+        int a0 = i * depth;
+        int a1 = a0 + depth;
+        int a2 = a1 + depth;
+        int a3 = a2 + depth;
+        int b0 = j * depth;
+        int b1 = b0 + depth;
+        int b2 = b1 + depth;
+        int b3 = b2 + depth;
+        int c0 = i * m + j;
+        int c1 = c0 + m;
+        int c2 = c1 + m;
+        int c3 = c2 + m;
+        double s00 = c[c0], s01 = c[c0 + 1], s02 = c[c0 + 2], s03 = c[c0 + 3];
+        double s10 = c[c1], s11 = c[c1 + 1], s12 = c[c1 + 2], s13 = c[c1 + 3];
+        double s20 = c[c2], s21 = c[c2 + 1], s22 = c[c2 + 2], s23 = c[c2 + 3];
+        double s30 = c[c3], s31 = c[c3 + 1], s32 = c[c3 + 2], s33 = c[c3 + 3];
+        for (int p = p0; p < p1; p++) {
+            double y0 = b[b0 + p];
+            double y1 = b[b1 + p];
+            double y2 = b[b2 + p];
+            double y3 = b[b3 + p];
+            double x = a[a0 + p];
+            s00 += x * y0;
+            s01 += x * y1;
+            s02 += x * y2;
+            s03 += x * y3;
+            x = a[a1 + p];
+            s10 += x * y0;
+            s11 += x * y1;
+            s12 += x * y2;
+            s13 += x * y3;
+            x = a[a2 + p];
+            s20 += x * y0;
+            s21 += x * y1;
+            s22 += x * y2;
+            s23 += x * y3;
+            x = a[a3 + p];
+            s30 += x * y0;
+            s31 += x * y1;
+            s32 += x * y2;
+            s33 += x * y3;
+        }
+        c[c0] = s00;
+        c[c0 + 1] = s01;
+        c[c0 + 2] = s02;
+        c[c0 + 3] = s03;
+        c[c1] = s10;
+        c[c1 + 1] = s11;
+        c[c1 + 2] = s12;
+        c[c1 + 3] = s13;
+        c[c2] = s20;
+        c[c2 + 1] = s21;
+        c[c2 + 2] = s22;
+        c[c2 + 3] = s23;
+        c[c3] = s30;
+        c[c3 + 1] = s31;
+        c[c3 + 2] = s32;
+        c[c3 + 3] = s33;
+    }
+
+    // Adds the dot products over [p0, p1) of rows i to i + 3 of A with row j of B to column j of C.
+    private static void dotColumn(double[] a, double[] b, double[] c, int depth, int m, int i, int j, int p0, int p1) {
+        int a0 = i * depth;
+        int a1 = a0 + depth;
+        int a2 = a1 + depth;
+        int a3 = a2 + depth;
+        int bOffset = j * depth;
+        int offset = i * m + j;
+        double s0 = c[offset], s1 = c[offset + m], s2 = c[offset + 2 * m], s3 = c[offset + 3 * m];
+        for (int p = p0; p < p1; p++) {
+            double y = b[bOffset + p];
+            s0 += a[a0 + p] * y;
+            s1 += a[a1 + p] * y;
+            s2 += a[a2 + p] * y;
+            s3 += a[a3 + p] * y;
+        }
+        c[offset] = s0;
+        c[offset + m] = s1;
+        c[offset + 2 * m] = s2;
+        c[offset + 3 * m] = s3;
+    }
+
+    // Adds the dot products over [p0, p1) of row i of A with rows j to j + 3 of B to row i of C.
+    private static void dotRow(double[] a, double[] b, double[] c, int depth, int m, int i, int j, int p0, int p1) {
+        int aOffset = i * depth;
+        int b0 = j * depth;
+        int b1 = b0 + depth;
+        int b2 = b1 + depth;
+        int b3 = b2 + depth;
+        int offset = i * m + j;
+        double s0 = c[offset], s1 = c[offset + 1], s2 = c[offset + 2], s3 = c[offset + 3];
+        for (int p = p0; p < p1; p++) {
+            double x = a[aOffset + p];
+            s0 += x * b[b0 + p];
+            s1 += x * b[b1 + p];
+            s2 += x * b[b2 + p];
+            s3 += x * b[b3 + p];
+        }
+        c[offset] = s0;
+        c[offset + 1] = s1;
+        c[offset + 2] = s2;
+        c[offset + 3] = s3;
+    }
+
+    /**
+     * Computes the matrix product C = A * B over the first n rows of A and C.
+     *
+     * @param n the number of rows of A to multiply.
+     * @param a the matrix A, of size n x k or larger.
+     * @param b the matrix B, of size k x m.
+     * @param c the matrix to write the result to, of size n x m or larger.
+     */
+    public static void gemm(int n, Matrix a, Matrix b, Matrix c) {
+        gemm(n, a, b, c, true);
+    }
+
+    /**
+     * Computes the matrix product C = A * B over the first n rows of A and C.
+     *
+     * @param n        the number of rows of A to multiply.
+     * @param a        the matrix A, of size n x k or larger.
+     * @param b        the matrix B, of size k x m.
+     * @param c        the matrix to write the result to, of size n x m or larger.
+     * @param parallel false to compute the product on the calling thread whatever its size.
+     */
+    public static void gemm(int n, Matrix a, Matrix b, Matrix c, boolean parallel) {
+        int depth = a.cols();
+        int m = b.cols();
+        double[] aValues = a.data();
+        double[] bValues = b.data();
+        double[] cValues = c.data();
+        if (parallel && RangeTask.isParallel(n, (long) n * m * depth)) {
+            RangeTask.invoke(n, (from, to) -> gemmRows(aValues, bValues, cValues, depth, m, from, to));
+        } else {
+            gemmRows(aValues, bValues, cValues, depth, m, 0, n);
+        }
+    }
+
+    // Computes the rows [from, to) of C = A * B. Within each tile, pairs of rows of C are updated with four rows of B
+    // at a time, so each value loaded from B is used twice and each value of C is loaded and stored once per four
+    // terms.
+    private static void gemmRows(double[] a, double[] b, double[] c, int depth, int m, int from, int to) {
+        Arrays.fill(c, from * m, to * m, 0);
+        for (int i0 = from; i0 < to; i0 += TILE_SIZE) {
+            int i1 = Math.min(i0 + TILE_SIZE, to);
+            for (int p0 = 0; p0 < depth; p0 += TILE_SIZE) {
+                int p1 = Math.min(p0 + TILE_SIZE, depth);
+                for (int j0 = 0; j0 < m; j0 += TILE_DEPTH) {
+                    int j1 = Math.min(j0 + TILE_DEPTH, m);
+                    int i = i0;
+                    for (; i + 1 < i1; i += 2) {
+                        int a0 = i * depth;
+                        int a1 = a0 + depth;
+                        int p = p0;
+                        for (; p + 3 < p1; p += 4) {
+                            addRows(b, p * m, m, a[a0 + p], a[a0 + p + 1], a[a0 + p + 2], a[a0 + p + 3],
+                                    a[a1 + p], a[a1 + p + 1], a[a1 + p + 2], a[a1 + p + 3], c, i * m, j0, j1);
+                        }
+                        for (; p < p1; p++) {
+                            axpy(j1 - j0, a[a0 + p], b, p * m + j0, c, i * m + j0);
+                            axpy(j1 - j0, a[a1 + p], b, p * m + j0, c, (i + 1) * m + j0);
+                        }
+                    }
+                    for (; i < i1; i++) {
+                        int a0 = i * depth;
+                        int p = p0;
+                        for (; p + 3 < p1; p += 4) {
+                            addRows(b, p * m, m, a[a0 + p], a[a0 + p + 1], a[a0 + p + 2], a[a0 + p + 3], c, i * m,
+                                    j0, j1);
+                        }
+                        for (; p < p1; p++) {
+                            axpy(j1 - j0, a[a0 + p], b, p * m + j0, c, i * m + j0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the rank-n update C = C + alpha * A^T * B over the first n rows of A and B. This is the batched form of
+     * {@link #ger(double, double[], double[], Matrix)}: each row of A and B contributes one outer product to C.
+     *
+     * @param n     the number of rows of A and B to use.
+     * @param alpha the scalar multiplier.
+     * @param a     the matrix A, of size n x m or larger.
+     * @param b     the matrix B, of size n x k or larger.
+     * @param c     the matrix C, of size m x k, which is updated in place.
+     */
+    public static void gemmTN(int n, double alpha, Matrix a, Matrix b, Matrix c) {
+        gemmTN(n, alpha, a, b, c, true);
+    }
+
+    /**
+     * Performs the rank-n update C = C + alpha * A^T * B over the first n rows of A and B.
+     *
+     * @param n        the number of rows of A and B to use.
+     * @param alpha    the scalar multiplier.
+     * @param a        the matrix A, of size n x m or larger.
+     * @param b        the matrix B, of size n x k or larger.
+     * @param c        the matrix C, of size m x k, which is updated in place.
+     * @param parallel false to compute the product on the calling thread whatever its size.
+     */
+    public static void gemmTN(int n, double alpha, Matrix a, Matrix b, Matrix c, boolean parallel) {
+        int m = a.cols();
+        int k = b.cols();
+        double[] aValues = a.data();
+        double[] bValues = b.data();
+        double[] cValues = c.data();
+        if (parallel && RangeTask.isParallel(m, (long) n * m * k)) {
+            RangeTask.invoke(m, (from, to) -> gemmTNRows(n, alpha, aValues, bValues, cValues, m, k, from, to));
+        } else {
+            gemmTNRows(n, alpha, aValues, bValues, cValues, m, k, 0, m);
+        }
+    }
+
+    // Updates the rows [from, to) of C = C + alpha * A^T * B. Row r of C receives the rows of B scaled by column r of
+    // A, so pairs of rows of C are updated with four rows of B at a time as in gemmRows.
+    private static void gemmTNRows(int n, double alpha, double[] a, double[] b, double[] c, int m, int k, int from,
+                                   int to) {
+        for (int s0 = 0; s0 < n; s0 += TILE_SIZE) {
+            int s1 = Math.min(s0 + TILE_SIZE, n);
+            for (int r0 = from; r0 < to; r0 += TILE_SIZE) {
+                int r1 = Math.min(r0 + TILE_SIZE, to);
+                for (int j0 = 0; j0 < k; j0 += TILE_DEPTH) {
+                    int j1 = Math.min(j0 + TILE_DEPTH, k);
+                    int r = r0;
+                    for (; r + 1 < r1; r += 2) {
+                        int s = s0;
+                        for (; s + 3 < s1; s += 4) {
+                            int a0 = s * m + r;
+                            addRows(b, s * k, k, alpha * a[a0], alpha * a[a0 + m], alpha * a[a0 + 2 * m],
+                                    alpha * a[a0 + 3 * m], alpha * a[a0 + 1], alpha * a[a0 + m + 1],
+                                    alpha * a[a0 + 2 * m + 1], alpha * a[a0 + 3 * m + 1], c, r * k, j0, j1);
+                        }
+                        for (; s < s1; s++) {
+                            axpy(j1 - j0, alpha * a[s * m + r], b, s * k + j0, c, r * k + j0);
+                            axpy(j1 - j0, alpha * a[s * m + r + 1], b, s * k + j0, c, (r + 1) * k + j0);
+                        }
+                    }
+                    for (; r < r1; r++) {
+                        int s = s0;
+                        for (; s + 3 < s1; s += 4) {
+                            int a0 = s * m + r;
+                            addRows(b, s * k, k, alpha * a[a0], alpha * a[a0 + m], alpha * a[a0 + 2 * m],
+                                    alpha * a[a0 + 3 * m], c, r * k, j0, j1);
+                        }
+                        for (; s < s1; s++) {
+                            axpy(j1 - j0, alpha * a[s * m + r], b, s * k + j0, c, r * k + j0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Adds x0 to x3 times four consecutive rows of B, the first beginning at bOffset and each stride values apart, to
+    // the values [j0, j1) of the row of C beginning at cOffset. The rows are added in order, so the result is the same
+    // as four separate axpy calls.
+    private static void addRows(double[] b, int bOffset, int stride, double x0, double x1, double x2, double x3,
+                                double[] c, int cOffset, int j0, int j1) {
+        if (x0 == 0 && x1 == 0 && x2 == 0 && x3 == 0) {
+            // Common for rectified activations.
+            return;
+        }
+        int b0 = bOffset;
+        int b1 = b0 + stride;
+        int b2 = b1 + stride;
+        int b3 = b2 + stride;
+        for (int j = j0; j < j1; j++) {
+            c[cOffset + j] = c[cOffset + j] + x0 * b[b0 + j] + x1 * b[b1 + j] + x2 * b[b2 + j] + x3 * b[b3 + j];
+        }
+    }
+
+    // Adds x0 to x3 times four consecutive rows of B to the row of C beginning at cOffset, and y0 to y3 times the same
+    // rows to the next row of C, as in the single-row addRows. Each value loaded from B is used for both rows.
+    private static void addRows(double[] b, int bOffset, int stride, double x0, double x1, double x2, double x3,
+                                double y0, double y1, double y2, double y3, double[] c, int cOffset, int j0, int j1) {
+        int b0 = bOffset;
+        int b1 = b0 + stride;
+        int b2 = b1 + stride;
+        int b3 = b2 + stride;
+        int c0 = cOffset;
+        int c1 = cOffset + stride;
+        for (int j = j0; j < j1; j++) {
+            double v0 = b[b0 + j];
+            double v1 = b[b1 + j];
+            double v2 = b[b2 + j];
+            double v3 = b[b3 + j];
+            c[c0 + j] = c[c0 + j] + x0 * v0 + x1 * v1 + x2 * v2 + x3 * v3;
+            c[c1 + j] = c[c1 + j] + y0 * v0 + y1 * v1 + y2 * v2 + y3 * v3;
+        }
+    }
+
+    /**
+     * Computes the single-precision matrix-vector product y = A * x.
+     *
+     * @param a the matrix A, of size m x n.
+     * @param x the vector x, of at least size n.
+     * @param y the vector to write the result to, of at least size m.
+     */
+    public static void gemv(FloatMatrix a, float[] x, float[] y) {
+        int rows = a.rows();
+        int cols = a.cols();
+        float[] values = a.data();
+        if (RangeTask.isParallel(rows, (long) rows * cols)) {
+            RangeTask.invoke(rows, (from, to) -> gemvRows(values, cols, x, y, from, to));
+        } else {
+            gemvRows(values, cols, x, y, 0, rows);
+        }
+    }
+
+    // The single-precision form of gemvRows.
+    private static void gemvRows(float[] values, int cols, float[] x, float[] y, int from, int to) {
+        int r = from;
+        for (; r + 3 < to; r += 4) {
+            int offset0 = r * cols;
+            int offset1 = offset0 + cols;
+            int offset2 = offset1 + cols;
+            int offset3 = offset2 + cols;
+            float sum0 = 0;
+            float sum1 = 0;
+            float sum2 = 0;
+            float sum3 = 0;
+            for (int c = 0; c < cols; c++) {
+                float value = x[c];
+                sum0 += values[offset0 + c] * value;
+                sum1 += values[offset1 + c] * value;
+                sum2 += values[offset2 + c] * value;
+                sum3 += values[offset3 + c] * value;
+            }
+            y[r] = sum0;
+            y[r + 1] = sum1;
+            y[r + 2] = sum2;
+            y[r + 3] = sum3;
+        }
+        for (; r < to; r++) {
+            int offset = r * cols;
+            float sum = 0;
+            for (int c = 0; c < cols; c++) {
+                sum += values[offset + c] * x[c];
+            }
+            y[r] = sum;
+        }
+    }
+
+    /**
+     * Computes y = y + alpha * x in single precision over n values, starting at the given offsets.
+     *
+     * @param n       the number of values to update.
+     * @param alpha   the scalar multiplier.
+     * @param x       the vector x.
+     * @param xOffset the index of the first value of x.
+     * @param y       the vector y, which is updated in place.
+     * @param yOffset the index of the first value of y.
+     */
+    public static void axpy(int n, float alpha, float[] x, int xOffset, float[] y, int yOffset) {
+        for (int i = 0; i < n; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Computes the single-precision matrix product C = A * B^T over the first n rows of A and C.
+     *
+     * @param n the number of rows of A to multiply.
+     * @param a the matrix A, of size n x k or larger.
+     * @param b the matrix B, of size m x k.
+     * @param c the matrix to write the result to, of size n x m or larger.
+     */
+    public static void gemmNT(int n, FloatMatrix a, FloatMatrix b, FloatMatrix c) {
+        int depth = a.cols();
+        int m = b.rows();
+        float[] aValues = a.data();
+        float[] bValues = b.data();
+        float[] cValues = c.data();
+        if (RangeTask.isParallel(n, (long) n * m * depth)) {
+            RangeTask.invoke(n, (from, to) -> gemmNTRows(aValues, bValues, cValues, depth, m, from, to));
+        } else {
+            gemmNTRows(aValues, bValues, cValues, depth, m, 0, n);
+        }
+    }
+
+    // The single-precision form of gemmNTRows.
+    private static void gemmNTRows(float[] a, float[] b, float[] c, int depth, int m, int from, int to) {
+        Arrays.fill(c, from * m, to * m, 0);
+        for (int p0 = 0; p0 < depth; p0 += TILE_DEPTH) {
+            int p1 = Math.min(p0 + TILE_DEPTH, depth);
+            for (int i0 = from; i0 < to; i0 += TILE_SIZE) {
+                int i1 = Math.min(i0 + TILE_SIZE, to);
+                for (int j0 = 0; j0 < m; j0 += TILE_SIZE) {
+                    int j1 = Math.min(j0 + TILE_SIZE, m);
+                    int i = i0;
+                    for (; i + 3 < i1; i += 4) {
+                        int j = j0;
+                        for (; j + 3 < j1; j += 4) {
+                            dotBlock(a, b, c, depth, m, i, j, p0, p1);
+                        }
+                        for (; j < j1; j++) {
+                            dotColumn(a, b, c, depth, m, i, j, p0, p1);
+                        }
+                    }
+                    for (; i < i1; i++) {
+                        int j = j0;
+                        for (; j + 3 < j1; j += 4) {
+                            dotRow(a, b, c, depth, m, i, j, p0, p1);
+                        }
+                        for (; j < j1; j++) {
+                            int aOffset = i * depth;
+                            int bOffset = j * depth;
+                            float sum = c[i * m + j];
+                            for (int p = p0; p < p1; p++) {
+                                sum += a[aOffset + p] * b[bOffset + p];
+                            }
+                            c[i * m + j] = sum;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // The single-precision form of dotBlock.
+    private static void dotBlock(float[] a, float[] b, float[] c, int depth, int m, int i, int j, int p0, int p1) {
+        int a0 = i * depth;
+        int a1 = a0 + depth;
+        int a2 = a1 + depth;
+        int a3 = a2 + depth;
+        int b0 = j * depth;
+        int b1 = b0 + depth;
+        int b2 = b1 + depth;
+        int b3 = b2 + depth;
+        int c0 = i * m + j;
+        int c1 = c0 + m;
+        int c2 = c1 + m;
+        int c3 = c2 + m;
+        float s00 = c[c0], s01 = c[c0 + 1], s02 = c[c0 + 2], s03 = c[c0 + 3];
+        float s10 = c[c1], s11 = c[c1 + 1], s12 = c[c1 + 2], s13 = c[c1 + 3];
+        float s20 = c[c2], s21 = c[c2 + 1], s22 = c[c2 + 2], s23 = c[c2 + 3];
+        float s30 = c[c3], s31 = c[c3 + 1], s32 = c[c3 + 2], s33 = c[c3 + 3];
+        for (int p = p0; p < p1; p++) {
+            float y0 = b[b0 + p];
+            float y1 = b[b1 + p];
+            float y2 = b[b2 + p];
+            float y3 = b[b3 + p];
+            float x = a[a0 + p];
+            s00 += x * y0;
+            s01 += x * y1;
+            s02 += x * y2;
+            s03 += x * y3;
+            x = a[a1 + p];
+            s10 += x * y0;
+            s11 += x * y1;
+            s12 += x * y2;
+            s13 += x * y3;
+            x = a[a2 + p];
+            s20 += x * y0;
+            s21 += x * y1;
+            s22 += x * y2;
+            s23 += x * y3;
+            x = a[a3 + p];
+            s30 += x * y0;
+            s31 += x * y1;
+            s32 += x * y2;
+            s33 += x * y3;
+        }
+        c[c0] = s00;
+        c[c0 + 1] = s01;
+        c[c0 + 2] = s02;
+        c[c0 + 3] = s03;
+        c[c1] = s10;
+        c[c1 + 1] = s11;
+        c[c1 + 2] = s12;
+        c[c1 + 3] = s13;
+        c[c2] = s20;
+        c[c2 + 1] = s21;
+        c[c2 + 2] = s22;
+        c[c2 + 3] = s23;
+        c[c3] = s30;
+        c[c3 + 1] = s31;
+        c[c3 + 2] = s32;
+        c[c3 + 3] = s33;
+    }
+
+    // The single-precision form of dotColumn.
+    private static void dotColumn(float[] a, float[] b, float[] c, int depth, int m, int i, int j, int p0, int p1) {
+        int a0 = i * depth;
+        int a1 = a0 + depth;
+        int a2 = a1 + depth;
+        int a3 = a2 + depth;
+        int bOffset = j * depth;
+        int offset = i * m + j;
+        float s0 = c[offset], s1 = c[offset + m], s2 = c[offset + 2 * m], s3 = c[offset + 3 * m];
+        for (int p = p0; p < p1; p++) {
+            float y = b[bOffset + p];
+            s0 += a[a0 + p] * y;
+            s1 += a[a1 + p] * y;
+            s2 += a[a2 + p] * y;
+            s3 += a[a3 + p] * y;
+        }
+        c[offset] = s0;
+        c[offset + m] = s1;
+        c[offset + 2 * m] = s2;
+        c[offset + 3 * m] = s3;
+    }
+
+    // The single-precision form of dotRow.
+    private static void dotRow(float[] a, float[] b, float[] c, int depth, int m, int i, int j, int p0, int p1) {
+        int aOffset = i * depth;
+        int b0 = j * depth;
+        int b1 = b0 + depth;
+        int b2 = b1 + depth;
+        int b3 = b2 + depth;
+        int offset = i * m + j;
+        float s0 = c[offset], s1 = c[offset + 1], s2 = c[offset + 2], s3 = c[offset + 3];
+        for (int p = p0; p < p1; p++) {
+            float x = a[aOffset + p];
+            s0 += x * b[b0 + p];
+            s1 += x * b[b1 + p];
+            s2 += x * b[b2 + p];
+            s3 += x * b[b3 + p];
+        }
+        c[offset] = s0;
+        c[offset + 1] = s1;
+        c[offset + 2] = s2;
+        c[offset + 3] = s3;
+    }
+
+    /**
+     * Computes the single-precision matrix product C = A * B over the first n rows of A and C.
+     *
+     * @param n the number of rows of A to multiply.
+     * @param a the matrix A, of size n x k or larger.
+     * @param b the matrix B, of size k x m.
+     * @param c the matrix to write the result to, of size n x m or larger.
+     */
+    public static void gemm(int n, FloatMatrix a, FloatMatrix b, FloatMatrix c) {
+        int depth = a.cols();
+        int m = b.cols();
+        float[] aValues = a.data();
+        float[] bValues = b.data();
+        float[] cValues = c.data();
+        if (RangeTask.isParallel(n, (long) n * m * depth)) {
+            RangeTask.invoke(n, (from, to) -> gemmRows(aValues, bValues, cValues, depth, m, from, to));
+        } else {
+            gemmRows(aValues, bValues, cValues, depth, m, 0, n);
+        }
+    }
+
+    // The single-precision form of gemmRows.
+    private static void gemmRows(float[] a, float[] b, float[] c, int depth, int m, int from, int to) {
+        Arrays.fill(c, from * m, to * m, 0);
+        for (int i0 = from; i0 < to; i0 += TILE_SIZE) {
+            int i1 = Math.min(i0 + TILE_SIZE, to);
+            for (int p0 = 0; p0 < depth; p0 += TILE_SIZE) {
+                int p1 = Math.min(p0 + TILE_SIZE, depth);
+                for (int j0 = 0; j0 < m; j0 += TILE_DEPTH) {
+                    int j1 = Math.min(j0 + TILE_DEPTH, m);
+                    int i = i0;
+                    for (; i + 1 < i1; i += 2) {
+                        int a0 = i * depth;
+                        int a1 = a0 + depth;
+                        int p = p0;
+                        for (; p + 3 < p1; p += 4) {
+                            addRows(b, p * m, m, a[a0 + p], a[a0 + p + 1], a[a0 + p + 2], a[a0 + p + 3],
+                                    a[a1 + p], a[a1 + p + 1], a[a1 + p + 2], a[a1 + p + 3], c, i * m, j0, j1);
+                        }
+                        for (; p < p1; p++) {
+                            axpy(j1 - j0, a[a0 + p], b, p * m + j0, c, i * m + j0);
+                            axpy(j1 - j0, a[a1 + p], b, p * m + j0, c, (i + 1) * m + j0);
+                        }
+                    }
+                    for (; i < i1; i++) {
+                        int a0 = i * depth;
+                        int p = p0;
+                        for (; p + 3 < p1; p += 4) {
+                            addRows(b, p * m, m, a[a0 + p], a[a0 + p + 1], a[a0 + p + 2], a[a0 + p + 3], c, i * m,
+                                    j0, j1);
+                        }
+                        for (; p < p1; p++) {
+                            axpy(j1 - j0, a[a0 + p], b, p * m + j0, c, i * m + j0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the single-precision rank-n update C = C + alpha * A^T * B over the first n rows of A and B.
+     *
+     * @param n     the number of rows of A and B to use.
+     * @param alpha the scalar multiplier.
+     * @param a     the matrix A, of size n x m or larger.
+     * @param b     the matrix B, of size n x k or larger.
+     * @param c     the matrix C, of size m x k, which is updated in place.
+     */
+    public static void gemmTN(int n, float alpha, FloatMatrix a, FloatMatrix b, FloatMatrix c) {
+        int m = a.cols();
+        int k = b.cols();
+        float[] aValues = a.data();
+        float[] bValues = b.data();
+        float[] cValues = c.data();
+        if (RangeTask.isParallel(m, (long) n * m * k)) {
+            RangeTask.invoke(m, (from, to) -> gemmTNRows(n, alpha, aValues, bValues, cValues, m, k, from, to));
+        } else {
+            gemmTNRows(n, alpha, aValues, bValues, cValues, m, k, 0, m);
+        }
+    }
+
+    // The single-precision form of gemmTNRows.
+    private static void gemmTNRows(int n, float alpha, float[] a, float[] b, float[] c, int m, int k, int from,
+                                   int to) {
+        for (int s0 = 0; s0 < n; s0 += TILE_SIZE) {
+            int s1 = Math.min(s0 + TILE_SIZE, n);
+            for (int r0 = from; r0 < to; r0 += TILE_SIZE) {
+                int r1 = Math.min(r0 + TILE_SIZE, to);
+                for (int j0 = 0; j0 < k; j0 += TILE_DEPTH) {
+                    int j1 = Math.min(j0 + TILE_DEPTH, k);
+                    int r = r0;
+                    for (; r + 1 < r1; r += 2) {
+                        int s = s0;
+                        for (; s + 3 < s1; s += 4) {
+                            int a0 = s * m + r;
+                            addRows(b, s * k, k, alpha * a[a0], alpha * a[a0 + m], alpha * a[a0 + 2 * m],
+                                    alpha * a[a0 + 3 * m], alpha * a[a0 + 1], alpha * a[a0 + m + 1],
+                                    alpha * a[a0 + 2 * m + 1], alpha * a[a0 + 3 * m + 1], c, r * k, j0, j1);
+                        }
+                        for (; s < s1; s++) {
+                            axpy(j1 - j0, alpha * a[s * m + r], b, s * k + j0, c, r * k + j0);
+                            axpy(j1 - j0, alpha * a[s * m + r + 1], b, s * k + j0, c, (r + 1) * k + j0);
+                        }
+                    }
+                    for (; r < r1; r++) {
+                        int s = s0;
+                        for (; s + 3 < s1; s += 4) {
+                            int a0 = s * m + r;
+                            addRows(b, s * k, k, alpha * a[a0], alpha * a[a0 + m], alpha * a[a0 + 2 * m],
+                                    alpha * a[a0 + 3 * m], c, r * k, j0, j1);
+                        }
+                        for (; s < s1; s++) {
+                            axpy(j1 - j0, alpha * a[s * m + r], b, s * k + j0, c, r * k + j0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // The single-precision form of addRows.
+    private static void addRows(float[] b, int bOffset, int stride, float x0, float x1, float x2, float x3,
+                                float[] c, int cOffset, int j0, int j1) {
+        if (x0 == 0 && x1 == 0 && x2 == 0 && x3 == 0) {
+            // Common for rectified activations.
+            return;
+        }
+        int b0 = bOffset;
+        int b1 = b0 + stride;
+        int b2 = b1 + stride;
+        int b3 = b2 + stride;
+        for (int j = j0; j < j1; j++) {
+            c[cOffset + j] = c[cOffset + j] + x0 * b[b0 + j] + x1 * b[b1 + j] + x2 * b[b2 + j] + x3 * b[b3 + j];
+        }
+    }
+
+    // The single-precision form of addRows.
+    private static void addRows(float[] b, int bOffset, int stride, float x0, float x1, float x2, float x3,
+                                float y0, float y1, float y2, float y3, float[] c, int cOffset, int j0, int j1) {
+        int b0 = bOffset;
+        int b1 = b0 + stride;
+        int b2 = b1 + stride;
+        int b3 = b2 + stride;
+        int c0 = cOffset;
+        int c1 = cOffset + stride;
+        for (int j = j0; j < j1; j++) {
+            float v0 = b[b0 + j];
+            float v1 = b[b1 + j];
+            float v2 = b[b2 + j];
+            float v3 = b[b3 + j];
+            c[c0 + j] = c[c0 + j] + x0 * v0 + x1 * v1 + x2 * v2 + x3 * v3;
+            c[c1 + j] = c[c1 + j] + y0 * v0 + y1 * v1 + y2 * v2 + y3 * v3;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.jordanpottruff.neural.tensor;
+
+import java.util.Arrays;
+
+/**
+ * A dense matrix of doubles stored contiguously in row-major order. Unlike the immutable matrices of the Java Graphics
+ * Math Library, a matrix is mutable and is intended to be allocated once and then reused as a buffer by the kernels in
+ * {@link Blas}.
+ */
+public final class Matrix {
+
+    private final int rows;
+    private final int cols;
+    private final double[] data;
+
+    /**
+     * Creates a new matrix of zeros.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     */
+    public Matrix(int rows, int cols) {
+        this(rows, cols, new double[rows * cols]);
+    }
+
+    /**
+     * Creates a matrix backed by the given row-major array. The array is not copied.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     * @param data the values of the matrix, where the value at (row, col) is stored at index row * cols + col.
+     */
+    public Matrix(int rows, int cols, double[] data) {
+        if (data.length != rows * cols) {
+            throw new IllegalArgumentException("Expected " + rows * cols + " values but received " + data.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    /**
+     * Returns the number of rows in the matrix.
+     *
+     * @return the number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in the matrix.
+     *
+     * @return the number of columns.
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the value at the given position.
+     *
+     * @param row the row of the value.
+     * @param col the column of the value.
+     * @return the value at (row, col).
+     */
+    public double get(int row, int col) {
+        return data[row * cols + col];
+    }
+
+    /**
+     * Sets the value at the given position.
+     *
+     * @param row   the row of the value.
+     * @param col   the column of the value.
+     * @param value the new value.
+     */
+    public void set(int row, int col, double value) {
+        data[row * cols + col] = value;
+    }
+
+    /**
+     * Returns the row-major array backing the matrix. Changes to the array are reflected in the matrix.
+     *
+     * @return the backing array.
+     */
+    public double[] data() {
+        return data;
+    }
+
+    /**
+     * Sets every value of the matrix to the given value.
+     *
+     * @param value the value to fill the matrix with.
+     */
+    public void fill(double value) {
+        Arrays.fill(data, value);
+    }
+
+    /**
+     * Returns a deep copy of the matrix.
+     *
+     * @return a new matrix with the same values.
+     */
+    public Matrix copy() {
+        return new Matrix(rows, cols, data.clone());
+    }
+}
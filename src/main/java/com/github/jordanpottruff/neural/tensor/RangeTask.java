@@ -0,0 +1,98 @@
+package com.github.jordanpottruff.neural.tensor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes a range of independent output rows of a kernel in parallel, splitting the range in half until each piece
+ * is small enough to compute directly on one thread. Ranges are split on multiples of the kernels' register block
+ * size, so every piece but the last keeps its blocks full.
+ * <p>
+ * A kernel called from a thread of a fork-join pool runs its pieces in that pool; any other caller uses the common
+ * pool and waits for the pieces to finish.
+ */
+final class RangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // The number of rows the kernels compute at once, which every split point is a multiple of.
+    private static final int BLOCK = 4;
+    // The number of pieces each thread of the pool receives, so that threads that finish early can steal work.
+    private static final int PIECES_PER_THREAD = 4;
+
+    /**
+     * Computes the output rows in a range.
+     */
+    interface Body {
+
+        /**
+         * Computes the output rows in the range [from, to).
+         *
+         * @param from the first row, inclusive.
+         * @param to   the last row, exclusive.
+         */
+        void compute(int from, int to);
+    }
+
+    private final Body body;
+    private final int from;
+    private final int to;
+    private final int grain;
+
+    private RangeTask(Body body, int from, int to, int grain) {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+    }
+
+    /**
+     * Returns whether a kernel should split its output among several threads. Small products are computed on the
+     * calling thread, since dividing them costs more than it saves.
+     *
+     * @param rows         the number of output rows the kernel would divide.
+     * @param multiplyAdds the number of multiply-adds in the product.
+     * @return true if the rows should be computed with {@link #invoke(int, Body)}.
+     */
+    static boolean isParallel(int rows, long multiplyAdds) {
+        return multiplyAdds >= Blas.getParallelThreshold() && rows >= 2 * BLOCK && currentPool().getParallelism() > 1;
+    }
+
+    /**
+     * Computes the rows in the range [0, rows) in parallel and waits until every row is done.
+     *
+     * @param rows the number of output rows.
+     * @param body the computation of a range of rows.
+     */
+    static void invoke(int rows, Body body) {
+        int pieces = PIECES_PER_THREAD * currentPool().getParallelism();
+        int grain = roundUp(Math.max(BLOCK, (rows + pieces - 1) / pieces));
+        RangeTask task = new RangeTask(body, 0, rows, grain);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    // Returns the pool that the pieces of a kernel called from the current thread run in.
+    private static ForkJoinPool currentPool() {
+        return ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+    }
+
+    // Rounds a number of rows up to a multiple of the block size.
+    private static int roundUp(int rows) {
+        return (rows + BLOCK - 1) / BLOCK * BLOCK;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            body.compute(from, to);
+            return;
+        }
+        int middle = from + roundUp((to - from) / 2);
+        invokeAll(new RangeTask(body, from, middle, grain), new RangeTask(body, middle, to, grain));
+    }
+}
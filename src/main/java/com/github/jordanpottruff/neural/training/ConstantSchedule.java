@@ -0,0 +1,26 @@
+package com.github.jordanpottruff.neural.training;
+
+/**
+ * A schedule that uses the same learning rate for every step.
+ */
+public class ConstantSchedule implements LearningRateSchedule {
+
+    private final double learningRate;
+
+    /**
+     * Creates a constant schedule.
+     *
+     * @param learningRate the learning rate.
+     */
+    public ConstantSchedule(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double getLearningRate(long step, long totalSteps) {
+        return learningRate;
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.jordanpottruff.neural.training;
+
+/**
+ * A schedule that anneals the learning rate from a maximum to a minimum along half a cosine wave, decaying slowly at
+ * first, fastest in the middle of the run and slowly again at the end.
+ */
+public class CosineSchedule implements LearningRateSchedule {
+
+    private final double maxLearningRate;
+    private final double minLearningRate;
+
+    /**
+     * Creates a cosine schedule.
+     *
+     * @param maxLearningRate the learning rate of the first step.
+     * @param minLearningRate the learning rate reached at the end of the run.
+     */
+    public CosineSchedule(double maxLearningRate, double minLearningRate) {
+        this.maxLearningRate = maxLearningRate;
+        this.minLearningRate = minLearningRate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double getLearningRate(long step, long totalSteps) {
+        return anneal(maxLearningRate, minLearningRate, (double) step / Math.max(totalSteps, 1));
+    }
+
+    // Returns the point the given fraction of the way from start to end along half a cosine wave.
+    static double anneal(double start, double end, double fraction) {
+        double clamped = Math.min(Math.max(fraction, 0.0), 1.0);
+        return end + (start - end) * (1 + Math.cos(Math.PI * clamped)) / 2;
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.jordanpottruff.neural.training;
+
+/**
+ * Defines how the learning rate changes over the course of training. Schedules are evaluated once per mini-batch, so
+ * the learning rate can change within an epoch.
+ */
+public interface LearningRateSchedule {
+
+    /**
+     * Returns the learning rate for a given step of training.
+     *
+     * @param step       the number of mini-batch updates made before this one.
+     * @param totalSteps the number of mini-batch updates in the whole run.
+     * @return the learning rate.
+     */
+    double getLearningRate(long step, long totalSteps);
+}
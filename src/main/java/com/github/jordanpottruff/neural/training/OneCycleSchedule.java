@@ -0,0 +1,55 @@
+package com.github.jordanpottruff.neural.training;
+
+/**
+ * The one-cycle schedule of Smith and Topin (2017). The learning rate rises linearly from a fraction of its maximum
+ * during the first part of the run, then anneals along a cosine to far below where it started. The high learning
+ * rates in the middle of the run act as a regularizer, and the run ends with small steps that settle into a minimum.
+ */
+public class OneCycleSchedule implements LearningRateSchedule {
+
+    private final double maxLearningRate;
+    private final double initialLearningRate;
+    private final double finalLearningRate;
+    private final double rampFraction;
+
+    /**
+     * Creates a one-cycle schedule that starts at a 25th of the maximum learning rate, reaches the maximum after 30% of
+     * the run and ends at a 10,000th of the maximum.
+     *
+     * @param maxLearningRate the highest learning rate.
+     */
+    public OneCycleSchedule(double maxLearningRate) {
+        this(maxLearningRate, 25, 1e4, 0.3);
+    }
+
+    /**
+     * Creates a one-cycle schedule.
+     *
+     * @param maxLearningRate the highest learning rate.
+     * @param initialDivisor  the maximum learning rate divided by the learning rate of the first step.
+     * @param finalDivisor    the maximum learning rate divided by the learning rate of the last step.
+     * @param rampFraction    the fraction of the run over which the learning rate rises to its maximum.
+     */
+    public OneCycleSchedule(double maxLearningRate, double initialDivisor, double finalDivisor, double rampFraction) {
+        if (rampFraction < 0 || rampFraction > 1) {
+            throw new IllegalArgumentException("The ramp fraction must be between 0 and 1");
+        }
+        this.maxLearningRate = maxLearningRate;
+        this.initialLearningRate = maxLearningRate / initialDivisor;
+        this.finalLearningRate = maxLearningRate / finalDivisor;
+        this.rampFraction = rampFraction;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double getLearningRate(long step, long totalSteps) {
+        double rampSteps = rampFraction * totalSteps;
+        if (step < rampSteps) {
+            return initialLearningRate + (maxLearningRate - initialLearningRate) * step / rampSteps;
+        }
+        double annealSteps = Math.max(totalSteps - rampSteps, 1);
+        return CosineSchedule.anneal(maxLearningRate, finalLearningRate, (step - rampSteps) / annealSteps);
+    }
+}
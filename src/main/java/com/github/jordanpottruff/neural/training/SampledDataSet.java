@@ -0,0 +1,128 @@
+package com.github.jordanpottruff.neural.training;
+
+import com.github.jordanpottruff.neural.common.Pair;
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+import com.github.jordanpottruff.neural.data.NetworkObservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A view of some of the observations of another data set, given by their indices. No observations are copied, so a
+ * sample can be drawn from a large data set cheaply.
+ */
+class SampledDataSet implements NetworkDataSet {
+
+    private final NetworkDataSet dataSet;
+    private final int[] indices;
+    private final int size;
+
+    /**
+     * Creates a view of the observations of the data set at the first indices.
+     *
+     * @param dataSet the data set to sample.
+     * @param indices the indices of the observations in the sample, which the view reads on every access.
+     * @param size    the number of indices in the sample.
+     */
+    SampledDataSet(NetworkDataSet dataSet, int[] indices, int size) {
+        this.dataSet = dataSet;
+        this.indices = indices;
+        this.size = size;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String[] getClasses() {
+        return dataSet.getClasses();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public NetworkObservation getObservation(int i) {
+        return dataSet.getObservation(indices[i]);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<NetworkObservation> getAllObservations() {
+        List<NetworkObservation> observations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            observations.add(getObservation(i));
+        }
+        return observations;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Pair<SampledDataSet, SampledDataSet> split(double percentage) {
+        int cutoff = (int) Math.ceil(size * percentage - 1);
+        int leftSize = Math.max(0, Math.min(size, cutoff + 1));
+        int[] left = Arrays.copyOfRange(indices, 0, leftSize);
+        int[] right = Arrays.copyOfRange(indices, leftSize, size);
+        return new Pair<>(new SampledDataSet(dataSet, left, left.length),
+                new SampledDataSet(dataSet, right, right.length));
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle() {
+        shuffle(new Random());
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void shuffle(Random random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indices[i];
+            indices[i] = indices[j];
+            indices[j] = swap;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void copyAttributes(int i, double[] destination, int offset) {
+        dataSet.copyAttributes(indices[i], destination, offset);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void copyAttributes(int i, float[] destination, int offset) {
+        dataSet.copyAttributes(indices[i], destination, offset);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int getClassIndex(int i) {
+        return dataSet.getClassIndex(indices[i]);
+    }
+}
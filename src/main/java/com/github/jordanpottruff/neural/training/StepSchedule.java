@@ -0,0 +1,35 @@
+package com.github.jordanpottruff.neural.training;
+
+/**
+ * A schedule that multiplies the learning rate by a constant factor after every fixed number of steps.
+ */
+public class StepSchedule implements LearningRateSchedule {
+
+    private final double initialLearningRate;
+    private final double factor;
+    private final long stepSize;
+
+    /**
+     * Creates a step schedule.
+     *
+     * @param initialLearningRate the learning rate of the first steps.
+     * @param factor              the factor the learning rate is multiplied by at each decay, typically 0.1 to 0.5.
+     * @param stepSize            the number of steps between decays.
+     */
+    public StepSchedule(double initialLearningRate, double factor, long stepSize) {
+        if (stepSize <= 0) {
+            throw new IllegalArgumentException("The step size must be positive");
+        }
+        this.initialLearningRate = initialLearningRate;
+        this.factor = factor;
+        this.stepSize = stepSize;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double getLearningRate(long step, long totalSteps) {
+        return initialLearningRate * Math.pow(factor, step / stepSize);
+    }
+}
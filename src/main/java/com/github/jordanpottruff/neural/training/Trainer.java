@@ -0,0 +1,327 @@
+package com.github.jordanpottruff.neural.training;
+
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+import com.github.jordanpottruff.neural.models.BackPropNetwork;
+import com.github.jordanpottruff.neural.models.TrainingController;
+
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a multi-epoch training session for a network. The learning rate of every mini-batch is taken from a
+ * {@link LearningRateSchedule}, and the network can be evaluated on a validation set as it trains, either on the whole
+ * set after every epoch or on a random sample every given number of mini-batches. With early stopping enabled,
+ * training ends once the validation error has stopped improving, even partway through an epoch.
+ */
+public class Trainer {
+
+    private final Random random = new Random();
+    private final BackPropNetwork network;
+    private final int miniBatchSize;
+    private final LearningRateSchedule schedule;
+    private int threads = 1;
+
+    private NetworkDataSet validationSet;
+    private int evaluationInterval = 0;
+    private int sampleSize = 0;
+    // The indices of the validation set, the first sampleSize of which form the current sample.
+    private int[] sampleIndices;
+
+    private int patience = 0;
+    private double minImprovement = 0;
+    private double bestError = Double.POSITIVE_INFINITY;
+    private int evaluationsSinceImprovement = 0;
+    private boolean stopped = false;
+
+    private Consumer<Evaluation> evaluationHook;
+    private IntConsumer epochHook;
+
+    /**
+     * Creates a trainer for a network.
+     *
+     * @param network       the network to train.
+     * @param miniBatchSize the number of observations in each mini-batch.
+     * @param schedule      the schedule giving the learning rate of each mini-batch.
+     */
+    public Trainer(BackPropNetwork network, int miniBatchSize, LearningRateSchedule schedule) {
+        this.network = network;
+        this.miniBatchSize = miniBatchSize;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Sets the number of threads each mini-batch is divided among, as in
+     * {@link BackPropNetwork#trainConcurrent(NetworkDataSet, int, double, int)}. Training uses a single thread by
+     * default.
+     *
+     * @param threads the number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the data set the network is evaluated on after every epoch, such as the second half of
+     * {@code dataSet.split(0.9)}.
+     *
+     * @param validationSet the validation set, which must not be empty or overlap the training set.
+     */
+    public void setValidation(NetworkDataSet validationSet) {
+        setValidation(validationSet, 0, validationSet.size());
+    }
+
+    /**
+     * Sets the data set the network is evaluated on every given number of mini-batches. Each evaluation uses a fresh
+     * random sample of the validation set, which gives frequent feedback on a large validation set at a fraction of
+     * the cost of testing on all of it.
+     *
+     * @param validationSet      the validation set, which must not be empty or overlap the training set.
+     * @param evaluationInterval the number of mini-batches between evaluations, or 0 to evaluate on the whole
+     *                           validation set after every epoch.
+     * @param sampleSize         the number of observations in each sample.
+     */
+    public void setValidation(NetworkDataSet validationSet, int evaluationInterval, int sampleSize) {
+        if (validationSet.size() == 0) {
+            throw new IllegalArgumentException("The validation set must not be empty");
+        }
+        if (evaluationInterval < 0 || sampleSize <= 0) {
+            throw new IllegalArgumentException("The evaluation interval and sample size must be positive");
+        }
+        this.validationSet = validationSet;
+        this.evaluationInterval = evaluationInterval;
+        this.sampleSize = Math.min(sampleSize, validationSet.size());
+        this.sampleIndices = new int[validationSet.size()];
+        for (int i = 0; i < sampleIndices.length; i++) {
+            sampleIndices[i] = i;
+        }
+    }
+
+    /**
+     * Enables early stopping, which ends training once a number of consecutive evaluations have failed to improve on
+     * the lowest validation error so far. A validation set must also be set.
+     *
+     * @param patience       the number of evaluations without improvement after which training stops.
+     * @param minImprovement the amount by which the validation error must fall to count as an improvement.
+     */
+    public void setEarlyStopping(int patience, double minImprovement) {
+        if (patience <= 0) {
+            throw new IllegalArgumentException("The patience must be positive");
+        }
+        this.patience = patience;
+        this.minImprovement = minImprovement;
+    }
+
+    /**
+     * Sets a hook that is called with the result of every evaluation on the validation set.
+     *
+     * @param hook the hook to call.
+     */
+    public void setEvaluationHook(Consumer<Evaluation> hook) {
+        this.evaluationHook = hook;
+    }
+
+    /**
+     * Sets a hook that is called with the number of each epoch as it completes, for example to take a checkpoint. The
+     * hook is not called for an epoch that is cut short by early stopping.
+     *
+     * @param hook the hook to call.
+     */
+    public void setEpochHook(IntConsumer hook) {
+        this.epochHook = hook;
+    }
+
+    /**
+     * Trains the network for the given number of epochs, or until early stopping ends training.
+     *
+     * @param trainingSet the data set to train the network on.
+     * @param epochs      the number of epochs.
+     * @return the number of epochs that were completed.
+     */
+    public int train(NetworkDataSet trainingSet, int epochs) {
+        return train(trainingSet, 0, epochs);
+    }
+
+    /**
+     * Trains the network from the given epoch until the given number of epochs have been completed, or until early
+     * stopping ends training. Starting from a later epoch resumes the learning rate schedule where it left off, for
+     * example after restoring a checkpoint. The early stopping state is reset at the start of every call, so each run
+     * starts with no best error and counts evaluations without improvement from zero. If the calling thread is
+     * interrupted, training ends after the current mini-batch and the thread's interrupt status is left set.
+     *
+     * @param trainingSet the data set to train the network on.
+     * @param firstEpoch  the number of the first epoch to run.
+     * @param epochs      the total number of epochs in the run, including those before the first epoch.
+     * @return the number of epochs that were completed, including those before the first epoch.
+     */
+    public int train(NetworkDataSet trainingSet, int firstEpoch, int epochs) {
+        if (patience > 0 && validationSet == null) {
+            throw new IllegalStateException("Early stopping requires a validation set");
+        }
+        long batchesPerEpoch = (trainingSet.size() + miniBatchSize - 1) / miniBatchSize;
+        long totalSteps = batchesPerEpoch * epochs;
+        bestError = Double.POSITIVE_INFINITY;
+        evaluationsSinceImprovement = 0;
+        stopped = false;
+        for (int epoch = firstEpoch; epoch < epochs; epoch++) {
+            EpochController controller = new EpochController(epoch, epoch * batchesPerEpoch, totalSteps);
+            if (threads == 1) {
+                network.train(trainingSet, miniBatchSize, controller);
+            } else {
+                network.trainConcurrent(trainingSet, miniBatchSize, controller, threads);
+            }
+            if (!stopped && validationSet != null && evaluationInterval == 0) {
+                evaluate(epoch, controller.batchCount);
+            }
+            boolean completed = controller.batchCount == batchesPerEpoch;
+            if (completed && epochHook != null) {
+                epochHook.accept(epoch);
+            }
+            if (stopped || Thread.currentThread().isInterrupted()) {
+                return completed ? epoch + 1 : epoch;
+            }
+        }
+        return epochs;
+    }
+
+    // Tests the network on the validation set, or a sample of it when evaluating within epochs, and records whether
+    // the error has improved.
+    private void evaluate(int epoch, int batch) {
+        NetworkDataSet dataSet = validationSet;
+        boolean sampled = evaluationInterval > 0 && sampleSize < validationSet.size();
+        if (sampled) {
+            drawSample();
+            dataSet = new SampledDataSet(validationSet, sampleIndices, sampleSize);
+        }
+        BackPropNetwork.Result result = network.test(dataSet, false);
+
+        if (result.getError() < bestError - minImprovement) {
+            bestError = result.getError();
+            evaluationsSinceImprovement = 0;
+        } else {
+            evaluationsSinceImprovement++;
+            stopped = patience > 0 && evaluationsSinceImprovement >= patience;
+        }
+        if (evaluationHook != null) {
+            evaluationHook.accept(new Evaluation(epoch, batch, sampled, result));
+        }
+    }
+
+    // Moves a uniform random sample of the validation set's indices to the front of the index array, with a partial
+    // Fisher-Yates shuffle.
+    private void drawSample() {
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(sampleIndices.length - i);
+            int swap = sampleIndices[i];
+            sampleIndices[i] = sampleIndices[j];
+            sampleIndices[j] = swap;
+        }
+    }
+
+    /**
+     * Returns the lowest validation error seen during the current or last call to train.
+     *
+     * @return the lowest error, or positive infinity if the network has not been evaluated.
+     */
+    public double getBestError() {
+        return bestError;
+    }
+
+    /**
+     * Returns whether the last call to train ended early because the validation error stopped improving.
+     *
+     * @return whether training was stopped early.
+     */
+    public boolean hasStoppedEarly() {
+        return stopped;
+    }
+
+    /**
+     * Supplies the scheduled learning rate of each mini-batch of an epoch and evaluates the network when due.
+     */
+    private class EpochController implements TrainingController {
+
+        private final int epoch;
+        private final long firstStep;
+        private final long totalSteps;
+        private int batchCount = 0;
+
+        EpochController(int epoch, long firstStep, long totalSteps) {
+            this.epoch = epoch;
+            this.firstStep = firstStep;
+            this.totalSteps = totalSteps;
+        }
+
+        @Override
+        public double getLearningRate(int batch) {
+            return schedule.getLearningRate(firstStep + batch, totalSteps);
+        }
+
+        @Override
+        public boolean batchCompleted(int batch) {
+            batchCount = batch + 1;
+            if (validationSet != null && evaluationInterval > 0 && batchCount % evaluationInterval == 0) {
+                evaluate(epoch, batchCount);
+            }
+            return !stopped;
+        }
+    }
+
+    /**
+     * The result of evaluating the network on the validation set during training.
+     */
+    public static class Evaluation {
+
+        private final int epoch;
+        private final int batch;
+        private final boolean sampled;
+        private final BackPropNetwork.Result result;
+
+        // Records an evaluation made after the given number of mini-batches of an epoch.
+        private Evaluation(int epoch, int batch, boolean sampled, BackPropNetwork.Result result) {
+            this.epoch = epoch;
+            this.batch = batch;
+            this.sampled = sampled;
+            this.result = result;
+        }
+
+        /**
+         * Returns the number of the epoch during which the evaluation was made.
+         *
+         * @return the epoch.
+         */
+        public int getEpoch() {
+            return epoch;
+        }
+
+        /**
+         * Returns the number of mini-batches of the epoch that had been trained on when the evaluation was made.
+         *
+         * @return the number of mini-batches.
+         */
+        public int getBatch() {
+            return batch;
+        }
+
+        /**
+         * Returns whether the evaluation used a sample of the validation set rather than all of it.
+         *
+         * @return whether the validation set was sampled.
+         */
+        public boolean isSampled() {
+            return sampled;
+        }
+
+        /**
+         * Returns the result of testing the network.
+         *
+         * @return the result.
+         */
+        public BackPropNetwork.Result getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.jordanpottruff.neural.training;
+
+/**
+ * A schedule that raises the learning rate linearly from zero over a number of warmup steps before handing over to
+ * another schedule. Small early steps keep the large, noisy gradients of a freshly initialized network from
+ * destabilizing training.
+ */
+public class WarmupSchedule implements LearningRateSchedule {
+
+    private final long warmupSteps;
+    private final LearningRateSchedule schedule;
+
+    /**
+     * Creates a warmup schedule.
+     *
+     * @param warmupSteps the number of steps over which the learning rate rises.
+     * @param schedule    the schedule followed after the warmup, which sees steps counted from the end of the warmup.
+     */
+    public WarmupSchedule(long warmupSteps, LearningRateSchedule schedule) {
+        this.warmupSteps = warmupSteps;
+        this.schedule = schedule;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public double getLearningRate(long step, long totalSteps) {
+        long remainingSteps = Math.max(totalSteps - warmupSteps, 1);
+        if (step < warmupSteps) {
+            return schedule.getLearningRate(0, remainingSteps) * (step + 1) / warmupSteps;
+        }
+        return schedule.getLearningRate(step - warmupSteps, remainingSteps);
+    }
+}
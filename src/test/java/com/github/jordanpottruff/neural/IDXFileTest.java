@@ -0,0 +1,141 @@
+package com.github.jordanpottruff.neural;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IDXFileTest {
+
+    private static final double EPSILON = 0.000001;
+
+    // Writes an unsigned byte IDX file of two 2x2 images, along with a label file for them.
+    private static Path[] writeImages() throws IOException {
+        ByteBuffer images = ByteBuffer.allocate(16 + 8);
+        images.putInt(0x00000803).putInt(2).putInt(2).putInt(2);
+        images.put(new byte[]{0, (byte) 255, 51, (byte) 204, 102, 0, 0, (byte) 153});
+        ByteBuffer labels = ByteBuffer.allocate(8 + 2);
+        labels.putInt(0x00000801).putInt(2).put(new byte[]{7, 3});
+
+        Path imageFile = Files.createTempFile("images", ".idx3-ubyte");
+        Path labelFile = Files.createTempFile("labels", ".idx1-ubyte");
+        Files.write(imageFile, images.array());
+        Files.write(labelFile, labels.array());
+        imageFile.toFile().deleteOnExit();
+        labelFile.toFile().deleteOnExit();
+        return new Path[]{imageFile, labelFile};
+    }
+
+    @Test
+    public void testHeader() throws IOException {
+        IDXFile images = IDXFile.open(writeImages()[0].toString());
+
+        assertArrayEquals(new int[]{2, 2, 2}, images.getDimensions());
+        assertEquals(2, images.size());
+        assertEquals(4, images.getRecordLength());
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        IDXFile images = IDXFile.open(writeImages()[0].toString());
+
+        assertEquals(255, images.get(0, 1), EPSILON);
+        assertEquals(153, images.get(1, 3), EPSILON);
+        assertEquals(0.2, images.getNormalized(0, 2), EPSILON);
+        assertEquals(0.4, images.getNormalized(1, 0), EPSILON);
+    }
+
+    @Test
+    public void testReadNormalized() throws IOException {
+        IDXFile images = IDXFile.open(writeImages()[0].toString());
+        double[] values = new double[5];
+        images.readNormalized(1, values, 1);
+
+        assertArrayEquals(new double[]{0, 0.4, 0, 0, 0.6}, values, EPSILON);
+    }
+
+    @Test
+    public void testGetRecordBuffer() throws IOException {
+        IDXFile images = IDXFile.open(writeImages()[0].toString());
+        ByteBuffer record = images.getRecordBuffer(1);
+
+        assertEquals(4, record.remaining());
+        assertEquals(102, record.get(0) & 0xFF);
+        assertEquals(153, record.get(3) & 0xFF);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenInvalidFile() throws IOException {
+        Path file = Files.createTempFile("invalid", ".idx");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5});
+        IDXFile.open(file.toString());
+    }
+
+    // Writes an unsigned byte IDX file with the given dimensions and a few bytes of data.
+    private static String writeHeader(int... dimensions) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 * dimensions.length + 16);
+        header.putInt(0x00000800 | dimensions.length);
+        for (int dimension : dimensions) {
+            header.putInt(dimension);
+        }
+        Path file = Files.createTempFile("header", ".idx");
+        file.toFile().deleteOnExit();
+        Files.write(file, header.array());
+        return file.toString();
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativeDimension() throws IOException {
+        IDXFile.open(writeHeader(-1, 2, 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOverflowingRecordLength() throws IOException {
+        // 65536 * 65536 wraps around to 0 in int arithmetic, which would make the file look complete.
+        IDXFile.open(writeHeader(1, 65536, 65536));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetRecordOutOfRange() throws IOException {
+        IDXFile.open(writeImages()[0].toString()).get(2, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetIndexOutOfRange() throws IOException {
+        // Reading past the end of the first record must not silently return a value of the second.
+        IDXFile.open(writeImages()[0].toString()).get(0, 4);
+    }
+
+    @Test
+    public void testMNISTReader() throws IOException {
+        Path[] files = writeImages();
+        List<MNISTReader.MNISTImage> images = new MNISTReader(files[0].toString(), files[1].toString()).getImages();
+
+        assertEquals(2, images.size());
+        assertEquals(7, images.get(0).getLabel());
+        assertEquals(3, images.get(1).getLabel());
+        assertArrayEquals(new double[]{0, 1, 0.2, 0.8}, images.get(0).toVecN().toArray(), EPSILON);
+        assertEquals("3", images.get(1).toObservation().getClassification());
+    }
+
+    @Test
+    public void testMNISTLabels() throws IOException {
+        IDXFile labels = IDXFile.open("src/main/resources/test-labels.idx1-ubyte");
+
+        assertEquals(10000, labels.size());
+        assertEquals(1, labels.getRecordLength());
+        for (int i = 0; i < labels.size(); i++) {
+            double label = labels.get(i, 0);
+            assertEquals(Math.rint(label), label, 0);
+            assertTrue(label >= 0 && label <= 9);
+        }
+    }
+}
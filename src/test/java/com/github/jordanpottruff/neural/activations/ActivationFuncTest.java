@@ -0,0 +1,94 @@
+package com.github.jordanpottruff.neural.activations;
+
+import com.github.jordanpottruff.jgml.VecN;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ActivationFuncTest {
+
+    private static final double[] VALUES = {-3.0, -0.25, 0.0, 0.5, 2.0, -1.0, 4.0, 0.75, -0.5};
+    private static final double[] BIAS = {0.25, -0.5, 1.0};
+
+    // An activation function that only implements the vector methods, so every other method uses its default.
+    private static class Square implements ActivationFunc {
+
+        @Override
+        public VecN applyFunc(VecN input) {
+            double[] values = input.toArray();
+            for (int i = 0; i < values.length; i++) {
+                values[i] *= values[i];
+            }
+            return new VecN(values);
+        }
+
+        @Override
+        public VecN applyPrime(VecN input) {
+            return input.scale(2);
+        }
+    }
+
+    // Applies the bias, function and derivative to three rows with separate passes.
+    private static void applySeparately(ActivationFunc func, double[] values, double[] derivatives) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] += BIAS[i % BIAS.length];
+        }
+        func.applyFunc(values, values, values.length);
+        func.applyPrime(values, derivatives, values.length);
+    }
+
+    private static void assertFusedMatchesSeparate(ActivationFunc func) {
+        double[] expected = VALUES.clone();
+        double[] expectedDerivatives = new double[VALUES.length];
+        applySeparately(func, expected, expectedDerivatives);
+
+        double[] values = VALUES.clone();
+        double[] derivatives = new double[VALUES.length];
+        func.applyBiasAndFunc(values, BIAS, 3, 3, derivatives);
+        assertArrayEquals(expected, values, 1e-12);
+        assertArrayEquals(expectedDerivatives, derivatives, 1e-12);
+
+        values = VALUES.clone();
+        func.applyBiasAndFunc(values, BIAS, 3, 3, null);
+        assertArrayEquals(expected, values, 1e-12);
+
+        float[] floatValues = new float[VALUES.length];
+        float[] floatBias = new float[BIAS.length];
+        for (int i = 0; i < VALUES.length; i++) {
+            floatValues[i] = (float) VALUES[i];
+        }
+        for (int i = 0; i < BIAS.length; i++) {
+            floatBias[i] = (float) BIAS[i];
+        }
+        float[] floatDerivatives = new float[VALUES.length];
+        func.applyBiasAndFunc(floatValues, floatBias, 3, 3, floatDerivatives);
+        for (int i = 0; i < VALUES.length; i++) {
+            assertArrayEquals(new double[]{expected[i], expectedDerivatives[i]},
+                    new double[]{floatValues[i], floatDerivatives[i]}, 1e-6);
+        }
+    }
+
+    @Test
+    public void testReLUBiasAndFunc() {
+        assertFusedMatchesSeparate(new ReLU());
+    }
+
+    @Test
+    public void testLogisticBiasAndFunc() {
+        assertFusedMatchesSeparate(new Logistic());
+    }
+
+    @Test
+    public void testDefaultBiasAndFunc() {
+        assertFusedMatchesSeparate(new Square());
+    }
+
+    @Test
+    public void testBiasAndFuncLeavesRestOfArray() {
+        double[] values = {1.0, -2.0, 5.0, -7.0};
+        double[] derivatives = {9.0, 9.0, 9.0, 9.0};
+        new ReLU().applyBiasAndFunc(values, new double[]{1.0, 1.0}, 1, 2, derivatives);
+        assertArrayEquals(new double[]{2.0, 0.0, 5.0, -7.0}, values, 0.0);
+        assertArrayEquals(new double[]{1.0, 0.0, 9.0, 9.0}, derivatives, 0.0);
+    }
+}
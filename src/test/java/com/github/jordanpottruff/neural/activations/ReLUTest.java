@@ -0,0 +1,60 @@
+package com.github.jordanpottruff.neural.activations;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ReLUTest {
+
+    @Test
+    public void testApplyFunc() {
+        double[] input = {-3.0, -0.0, 0.0, 1e-300, 0.5, 7.0};
+        double[] output = new double[input.length];
+        new ReLU().applyFunc(input, output, input.length);
+        assertArrayEquals(new double[]{0.0, 0.0, 0.0, 1e-300, 0.5, 7.0}, output, 0.0);
+    }
+
+    @Test
+    public void testApplyPrime() {
+        double[] input = {-3.0, -0.0, 0.0, Double.MIN_VALUE, 0.5, 1.0, 7.0};
+        double[] output = new double[input.length];
+        new ReLU().applyPrime(input, output, input.length);
+        assertArrayEquals(new double[]{0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 1.0}, output, 0.0);
+    }
+
+    @Test
+    public void testApplyPrimeInPlace() {
+        double[] values = {-1.0, 2.0, -5.0};
+        new ReLU().applyPrime(values, values, 2);
+        assertArrayEquals(new double[]{0.0, 1.0, -5.0}, values, 0.0);
+    }
+
+    @Test
+    public void testApplyPrimeMasksNaNAndNegativeZero() {
+        double[] input = {Double.NaN, -0.0, 2.0};
+        double[] output = new double[input.length];
+        new ReLU().applyPrime(input, output, input.length);
+        assertArrayEquals(new double[]{0.0, 0.0, 1.0}, output, 0.0);
+    }
+
+    @Test
+    public void testFloatApplyPrimeMasksNaNAndNegativeZero() {
+        float[] input = {Float.NaN, -0.0f, 2.0f};
+        float[] output = new float[input.length];
+        new ReLU().applyPrime(input, output, input.length);
+        assertArrayEquals(new float[]{0.0f, 0.0f, 1.0f}, output, 0.0f);
+    }
+
+    @Test
+    public void testFusedDerivativeMasksNaNAndNegativeZero() {
+        double[] values = {Double.NaN, -0.0, 1.0};
+        double[] derivatives = new double[values.length];
+        new ReLU().applyBiasAndFunc(values, new double[]{0.0, -0.0, 1.0}, 1, 3, derivatives);
+        assertArrayEquals(new double[]{0.0, 0.0, 1.0}, derivatives, 0.0);
+
+        float[] floatValues = {Float.NaN, -0.0f, 1.0f};
+        float[] floatDerivatives = new float[floatValues.length];
+        new ReLU().applyBiasAndFunc(floatValues, new float[]{0.0f, -0.0f, 1.0f}, 1, 3, floatDerivatives);
+        assertArrayEquals(new float[]{0.0f, 0.0f, 1.0f}, floatDerivatives, 0.0f);
+    }
+}
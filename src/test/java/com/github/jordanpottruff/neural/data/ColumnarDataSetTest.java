@@ -0,0 +1,92 @@
+package com.github.jordanpottruff.neural.data;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.common.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ColumnarDataSetTest {
+
+    private final String[] CLASSES = {"ClassA", "ClassB", "ClassC"};
+
+    private final DataSet DATA_SET = new DataSet(Arrays.asList(
+            new Observation(new Vec2(1.0, 2.0), "ClassA"),
+            new Observation(new Vec2(0.0, -1.0), "ClassB"),
+            new Observation(new Vec2(1.0, -3.0), "ClassB"),
+            new Observation(new Vec2(5.0, 10.0), "ClassC")), CLASSES);
+
+    @Test
+    public void testCopyOfDataSet() {
+        ColumnarDataSet columnar = new ColumnarDataSet(DATA_SET);
+        assertEquals(4, columnar.size());
+        assertEquals(2, columnar.getAttributeCount());
+        assertArrayEquals(CLASSES, columnar.getClasses());
+        for (int i = 0; i < DATA_SET.size(); i++) {
+            Observation expected = DATA_SET.getObservation(i);
+            Observation actual = columnar.getObservation(i);
+            assertArrayEquals(expected.getAttributes().toArray(), actual.getAttributes().toArray(), 0.0);
+            assertEquals(expected.getClassification(), actual.getClassification());
+            assertEquals(DATA_SET.getClassIndex(i), columnar.getClassIndex(i));
+        }
+    }
+
+    @Test
+    public void testCopyAttributes() {
+        ColumnarDataSet columnar = new ColumnarDataSet(DATA_SET);
+        double[] destination = new double[5];
+        columnar.copyAttributes(3, destination, 2);
+        assertArrayEquals(new double[]{0, 0, 5.0, 10.0, 0}, destination, 0.0);
+    }
+
+    @Test
+    public void testShuffleKeepsObservationsTogether() {
+        float[] attributes = new float[200];
+        int[] labels = new int[100];
+        for (int i = 0; i < labels.length; i++) {
+            attributes[2 * i] = i;
+            attributes[2 * i + 1] = -i;
+            labels[i] = i % 3;
+        }
+        ColumnarDataSet columnar = new ColumnarDataSet(attributes, labels, 2, CLASSES);
+        columnar.shuffle();
+
+        Set<Integer> seen = new HashSet<>();
+        double[] row = new double[2];
+        for (int i = 0; i < columnar.size(); i++) {
+            columnar.copyAttributes(i, row, 0);
+            int original = (int) row[0];
+            assertEquals(-original, row[1], 0.0);
+            assertEquals(original % 3, columnar.getClassIndex(i));
+            seen.add(original);
+        }
+        assertEquals(100, seen.size());
+        // The stored arrays are left untouched by shuffling.
+        assertEquals(1.0f, attributes[2], 0.0f);
+    }
+
+    @Test
+    public void testSplit() {
+        ColumnarDataSet columnar = new ColumnarDataSet(DATA_SET);
+        Pair<ColumnarDataSet, ColumnarDataSet> split = columnar.split(0.75);
+        assertEquals(3, split.getKey().size());
+        assertEquals(1, split.getValue().size());
+        assertArrayEquals(new double[]{5.0, 10.0}, split.getValue().getObservation(0).getAttributes().toArray(), 0.0);
+        assertEquals("ClassC", split.getValue().getObservation(0).getClassification());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClass() {
+        DataSet data = new DataSet(Arrays.asList(new Observation(new Vec2(1.0, 2.0), "ClassD")), CLASSES);
+        new ColumnarDataSet(data);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedLengths() {
+        new ColumnarDataSet(new float[5], new int[2], 2, CLASSES);
+    }
+}
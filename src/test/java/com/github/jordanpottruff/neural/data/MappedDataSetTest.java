@@ -0,0 +1,123 @@
+package com.github.jordanpottruff.neural.data;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.common.Pair;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MappedDataSetTest {
+
+    private final String[] CLASSES = {"ClassA", "ClassB", "ClassC"};
+
+    private final DataSet DATA_SET = new DataSet(Arrays.asList(
+            new Observation(new Vec2(0.5, 0.25), "ClassA"),
+            new Observation(new Vec2(0.0, -1.5), "ClassB"),
+            new Observation(new Vec2(1.0, -3.0), "ClassB"),
+            new Observation(new Vec2(5.0, 10.0), "ClassC")), CLASSES);
+
+    // Returns the name of a new temporary file that is deleted when the tests finish.
+    private static String tempFile() throws IOException {
+        Path file = Files.createTempFile("data", ".nds");
+        file.toFile().deleteOnExit();
+        return file.toString();
+    }
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        String filename = tempFile();
+        MappedDataSet.write(filename, DATA_SET, MappedDataSet.Encoding.FLOAT);
+        MappedDataSet mapped = MappedDataSet.open(filename);
+
+        assertEquals(4, mapped.size());
+        assertEquals(2, mapped.getAttributeCount());
+        assertArrayEquals(CLASSES, mapped.getClasses());
+        for (int i = 0; i < DATA_SET.size(); i++) {
+            Observation expected = DATA_SET.getObservation(i);
+            Observation actual = mapped.getObservation(i);
+            assertArrayEquals(expected.getAttributes().toArray(), actual.getAttributes().toArray(), 0.0);
+            assertEquals(expected.getClassification(), actual.getClassification());
+        }
+    }
+
+    @Test
+    public void testUnsignedByteEncoding() throws IOException {
+        String filename = tempFile();
+        try (MappedDataSet.Writer writer = new MappedDataSet.Writer(filename, MappedDataSet.Encoding.UNSIGNED_BYTE,
+                3, CLASSES)) {
+            writer.add(new double[]{0.0, 0.2, 1.0}, 2);
+            writer.add(new double[]{-1.0, 0.5, 3.0}, 0);
+        }
+        MappedDataSet mapped = MappedDataSet.open(filename);
+
+        double[] destination = new double[4];
+        mapped.copyAttributes(0, destination, 1);
+        assertArrayEquals(new double[]{0, 0.0, 51 / 255.0, 1.0}, destination, 0.0);
+        mapped.copyAttributes(1, destination, 0);
+        assertArrayEquals(new double[]{0.0, 128 / 255.0, 1.0}, Arrays.copyOf(destination, 3), 0.0);
+        assertEquals(2, mapped.getClassIndex(0));
+        assertEquals(0, mapped.getClassIndex(1));
+    }
+
+    @Test
+    public void testObservationsSpanSegments() throws IOException {
+        String filename = tempFile();
+        try (MappedDataSet.Writer writer = new MappedDataSet.Writer(filename, MappedDataSet.Encoding.FLOAT, 2,
+                CLASSES)) {
+            for (int i = 0; i < 100; i++) {
+                writer.add(new double[]{i, -i}, i % 3);
+            }
+        }
+        // Each record is 12 bytes, so 50-byte segments hold 4 records each.
+        MappedDataSet mapped = MappedDataSet.open(filename, 50);
+        mapped.shuffle();
+
+        Set<Integer> seen = new HashSet<>();
+        double[] row = new double[2];
+        for (int i = 0; i < mapped.size(); i++) {
+            mapped.copyAttributes(i, row, 0);
+            int original = (int) row[0];
+            assertEquals(-original, row[1], 0.0);
+            assertEquals(original % 3, mapped.getClassIndex(i));
+            seen.add(original);
+        }
+        assertEquals(100, seen.size());
+    }
+
+    @Test
+    public void testSplit() throws IOException {
+        String filename = tempFile();
+        MappedDataSet.write(filename, DATA_SET, MappedDataSet.Encoding.FLOAT);
+        Pair<MappedDataSet, MappedDataSet> split = MappedDataSet.open(filename).split(0.5);
+
+        assertEquals(2, split.getKey().size());
+        assertEquals(2, split.getValue().size());
+        assertArrayEquals(new double[]{1.0, -3.0}, split.getValue().getObservation(0).getAttributes().toArray(), 0.0);
+        assertEquals("ClassC", split.getValue().getObservation(1).getClassification());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        String filename = tempFile();
+        MappedDataSet.write(filename, DATA_SET, MappedDataSet.Encoding.FLOAT);
+        byte[] bytes = Files.readAllBytes(Paths.get(filename));
+        Files.write(Paths.get(filename), Arrays.copyOf(bytes, bytes.length - 1));
+        MappedDataSet.open(filename);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClassIndex() throws IOException {
+        try (MappedDataSet.Writer writer = new MappedDataSet.Writer(tempFile(), MappedDataSet.Encoding.FLOAT, 2,
+                CLASSES)) {
+            writer.add(new double[]{1.0, 2.0}, 3);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.github.jordanpottruff.neural.data.DataSet;
 import com.github.jordanpottruff.neural.data.Observation;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -29,8 +30,8 @@ public class BackPropNetworkTest {
         MatMN expectedWeights1 = new MatMN(new double[][]{{0.0, 1.0, 0.0}, {1.0, 0.0, 1.0}});
         MatMN expectedWeights2 = new MatMN(new double[][]{{0.0, 1.0, 0.0}, {1.0, 0.0, 1.0}, {0.0, 1.0, 0.0}});
 
-        assertTrue(expectedWeights1.equals(NET_1.weights.get(0), EPSILON));
-        assertTrue(expectedWeights2.equals(NET_1.weights.get(1), EPSILON));
+        assertTrue(expectedWeights1.equals(Util.toMatMN(NET_1.weights[0]), EPSILON));
+        assertTrue(expectedWeights2.equals(Util.toMatMN(NET_1.weights[1]), EPSILON));
 
     }
 
@@ -39,8 +40,8 @@ public class BackPropNetworkTest {
         VecN expectedBiases1 = new VecN(new double[]{0.0, 0.0, 0.0});
         VecN expectedBiases2 = new VecN(new double[]{0.0, 0.0, 0.0});
 
-        assertTrue(expectedBiases1.equals(NET_1.biases.get(0), EPSILON));
-        assertTrue(expectedBiases2.equals(NET_1.biases.get(1), EPSILON));
+        assertTrue(expectedBiases1.equals(new VecN(NET_1.biases[0]), EPSILON));
+        assertTrue(expectedBiases2.equals(new VecN(NET_1.biases[1]), EPSILON));
 
     }
 
@@ -99,6 +100,16 @@ public class BackPropNetworkTest {
         assertEquals("A", classification2); // Technically a tie between A and C, but the first is taken.
     }
 
+    @Test
+    public void testPredict() {
+        BackPropNetwork.Prediction prediction = NET_1.predict(new VecN(new double[]{1.0, 2.0}));
+        VecN expectedOutput = new VecN(new double[]{0.675038, 0.853409, 0.675038});
+
+        assertEquals("B", prediction.getClassification());
+        assertEquals(1, prediction.getClassIndex());
+        assertTrue(expectedOutput.equals(prediction.getOutput(), EPSILON));
+    }
+
     @Test
     public void testTest() {
         Observation obs1 = new Observation(new Vec2(1, 10), "B");
@@ -111,4 +122,89 @@ public class BackPropNetworkTest {
         assertThat(result.correct(), hasItem(obs1));
         assertThat(result.incorrect(), hasItem(obs2));
     }
+
+    @Test
+    public void testTestInParallel() {
+        String[] classes = {"A", "B", "C"};
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            observations.add(new Observation(new Vec2(i % 7 - 3, i % 11 - 5), classes[i % 3]));
+        }
+        DataSet data = new DataSet(observations, classes);
+
+        // Tally the expected outcome one observation at a time.
+        int[] correctByClass = new int[3];
+        int[] incorrectByClass = new int[3];
+        List<Observation> correct = new ArrayList<>();
+        for (int i = 0; i < observations.size(); i++) {
+            Observation obs = observations.get(i);
+            if (NET_1.classify(obs.getAttributes()).equals(obs.getClassification())) {
+                correctByClass[i % 3]++;
+                correct.add(obs);
+            } else {
+                incorrectByClass[i % 3]++;
+            }
+        }
+
+        BackPropNetwork.Result result = NET_1.test(data);
+        assertEquals(correct, result.correct());
+        assertEquals(correct.size(), result.getCorrectCount());
+        assertEquals(correct.size() / 1000.0, result.getAccuracy(), EPSILON);
+        for (int c = 0; c < 3; c++) {
+            assertEquals(correctByClass[c], (int) result.getCorrectCounts().get(classes[c]));
+            assertEquals(incorrectByClass[c], (int) result.getIncorrectCounts().get(classes[c]));
+        }
+
+        BackPropNetwork.Result countsOnly = NET_1.test(data, false);
+        assertEquals(result.getCorrectCount(), countsOnly.getCorrectCount());
+        assertEquals(result.getError(), countsOnly.getError(), EPSILON);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTestWithoutObservations() {
+        DataSet data = new DataSet(Arrays.asList(new Observation(new Vec2(1, 10), "B")), new String[]{"A", "B", "C"});
+        NET_2.test(data, false).correct();
+    }
+
+    @Test
+    public void testTrainHogwild() {
+        // With a single observation, Hogwild! training makes the same update as a mini-batch of size one.
+        DataSet data = new DataSet(Arrays.asList(new Observation(new Vec2(1.0, 2.0), "A")), new String[]{"A", "B", "C"});
+        BackPropNetwork expected = new BackPropNetwork(2, new int[]{3}, new String[]{"A", "B", "C"}, new Logistic(), new Logistic(), new InitializerStub(Arrays.asList(0.0, 1.0)));
+        BackPropNetwork lockFree = new BackPropNetwork(2, new int[]{3}, new String[]{"A", "B", "C"}, new Logistic(), new Logistic(), new InitializerStub(Arrays.asList(0.0, 1.0)));
+        BackPropNetwork striped = new BackPropNetwork(2, new int[]{3}, new String[]{"A", "B", "C"}, new Logistic(), new Logistic(), new InitializerStub(Arrays.asList(0.0, 1.0)));
+
+        expected.train(data, 1, 0.5);
+        BackPropNetwork.HogwildResult result = lockFree.trainHogwild(data, 0.5, 1);
+        striped.trainHogwild(data, 0.5, 1, 2);
+
+        for (int l = 0; l < expected.weights.length; l++) {
+            assertArrayEquals(expected.weights[l].data(), lockFree.weights[l].data(), EPSILON);
+            assertArrayEquals(expected.biases[l], lockFree.biases[l], EPSILON);
+            assertArrayEquals(expected.weights[l].data(), striped.weights[l].data(), EPSILON);
+            assertArrayEquals(expected.biases[l], striped.biases[l], EPSILON);
+        }
+        assertEquals(1, result.getWorkerCount());
+        lockFree.shutdown();
+        striped.shutdown();
+    }
+
+    @Test
+    public void testTrainHogwildReportsEachWorker() {
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            observations.add(new Observation(new Vec2(i % 3, -i % 5), new String[]{"A", "B", "C"}[i % 3]));
+        }
+        DataSet data = new DataSet(observations, new String[]{"A", "B", "C"});
+        BackPropNetwork network = new BackPropNetwork(2, new int[]{3}, new String[]{"A", "B", "C"}, new Logistic(), new Logistic(), new InitializerStub(Arrays.asList(0.0, 1.0)));
+
+        BackPropNetwork.HogwildResult result = network.trainHogwild(data, 0.1, 4, 2);
+        network.shutdown();
+
+        assertEquals(4, result.getWorkerCount());
+        for (int t = 0; t < 4; t++) {
+            assertTrue(result.getObservationsPerSecond(t) >= 0);
+        }
+        assertTrue(result.getTotalObservationsPerSecond() > 0);
+    }
 }
@@ -0,0 +1,121 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.NetworkDataSet;
+import com.github.jordanpottruff.neural.data.NetworkObservation;
+import com.github.jordanpottruff.neural.data.Observation;
+import com.github.jordanpottruff.neural.common.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchPrefetcherTest {
+
+    private static final String[] CLASSES = {"A", "B", "C"};
+
+    private static final DataSet DATA = new DataSet(Arrays.asList(
+            new Observation(new Vec2(1.0, 2.0), "A"),
+            new Observation(new Vec2(2.0, 4.0), "B"),
+            new Observation(new Vec2(3.0, 6.0), "C"),
+            new Observation(new Vec2(4.0, 8.0), "A"),
+            new Observation(new Vec2(5.0, 10.0), "D")), CLASSES);
+
+    @Test
+    public void testBatchesInOrder() throws InterruptedException {
+        try (BatchPrefetcher prefetcher = new BatchPrefetcher(DATA, new int[]{0, 1, 2}, 2, 2, 1)) {
+            BatchPrefetcher.Batch batch = prefetcher.take();
+            assertEquals(2, batch.size);
+            assertArrayEquals(new double[]{1.0, 2.0, 2.0, 4.0}, batch.attributes, 0.0);
+            assertArrayEquals(new int[]{0, 1}, batch.classes);
+            prefetcher.release(batch);
+
+            batch = prefetcher.take();
+            assertEquals(2, batch.size);
+            assertArrayEquals(new double[]{3.0, 6.0, 4.0, 8.0}, batch.attributes, 0.0);
+            assertArrayEquals(new int[]{2, 0}, batch.classes);
+            prefetcher.release(batch);
+
+            // The last batch is smaller, and the unknown class is marked with -1.
+            batch = prefetcher.take();
+            assertEquals(1, batch.size);
+            assertArrayEquals(new double[]{5.0, 10.0}, Arrays.copyOf(batch.attributes, 2), 0.0);
+            assertEquals(-1, batch.classes[0]);
+            prefetcher.release(batch);
+
+            assertNull(prefetcher.take());
+            assertNull(prefetcher.take());
+        }
+    }
+
+    @Test
+    public void testClassMap() throws InterruptedException {
+        try (BatchPrefetcher prefetcher = new BatchPrefetcher(DATA, new int[]{2, 0, 1}, 2, 5, 2)) {
+            assertArrayEquals(new int[]{2, 0, 1, 2, -1}, prefetcher.take().classes);
+            assertNull(prefetcher.take());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadingFailure() throws InterruptedException {
+        NetworkDataSet failing = new NetworkDataSet() {
+            public int size() {
+                return 3;
+            }
+
+            public String[] getClasses() {
+                return CLASSES;
+            }
+
+            public NetworkObservation getObservation(int i) {
+                throw new UnsupportedOperationException();
+            }
+
+            public List<? extends NetworkObservation> getAllObservations() {
+                throw new UnsupportedOperationException();
+            }
+
+            public Pair<DataSet, DataSet> split(double percentage) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void shuffle() {
+            }
+        };
+        try (BatchPrefetcher prefetcher = new BatchPrefetcher(failing, new int[]{0, 1, 2}, 2, 2, 2)) {
+            prefetcher.take();
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForLoader() throws InterruptedException {
+        AtomicInteger copying = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        DataSet slow = new DataSet(DATA.getAllObservations(), CLASSES) {
+            @Override
+            public void copyAttributes(int i, double[] destination, int offset) {
+                copying.incrementAndGet();
+                started.countDown();
+                // A copy that does not respond to interrupts, such as one reading from a file.
+                long end = System.nanoTime() + 20_000_000L;
+                while (System.nanoTime() < end) {
+                    Thread.yield();
+                }
+                super.copyAttributes(i, destination, offset);
+                copying.decrementAndGet();
+            }
+        };
+        try (BatchPrefetcher prefetcher = new BatchPrefetcher(slow, new int[]{0, 1, 2}, 2, 1, 2)) {
+            prefetcher.take();
+            // Close while the loader is in the middle of copying the second observation.
+            started.await();
+        }
+        // The caller may now shuffle the data set, so the loader must no longer be reading it.
+        assertEquals(0, copying.get());
+    }
+}
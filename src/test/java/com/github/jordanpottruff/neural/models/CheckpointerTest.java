@@ -0,0 +1,224 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import com.github.jordanpottruff.neural.optimizers.Adam;
+import com.github.jordanpottruff.neural.optimizers.Momentum;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class CheckpointerTest {
+
+    private static final String[] CLASSES = {"A", "B", "C"};
+    private static final DataSet DATA = new DataSet(Arrays.asList(
+            new Observation(new Vec2(1.0, 2.0), "A"),
+            new Observation(new Vec2(-1.0, 0.5), "B"),
+            new Observation(new Vec2(0.5, -2.0), "C"),
+            new Observation(new Vec2(2.0, 1.0), "B"),
+            new Observation(new Vec2(0.0, -1.0), "A")), CLASSES);
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.3, -0.2, 0.1, -0.4, 0.25));
+        return new BackPropNetwork(2, new int[]{3}, CLASSES, new Logistic(), new Logistic(), init);
+    }
+
+    // Returns the name of a new temporary file that is deleted when the tests finish.
+    private static String tempFile() throws IOException {
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        return file.toString();
+    }
+
+    private static void assertSameParameters(BackPropNetwork expected, BackPropNetwork actual) {
+        for (int l = 0; l < expected.weights.length; l++) {
+            assertArrayEquals(expected.weights[l].data(), actual.weights[l].data(), 0.0);
+            assertArrayEquals(expected.biases[l], actual.biases[l], 0.0);
+        }
+    }
+
+    @Test
+    public void testRestore() throws IOException {
+        BackPropNetwork network = createNetwork();
+        network.random = new Random(42);
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(network, filename)) {
+            for (int epoch = 0; epoch < 5; epoch++) {
+                network.train(DATA, 2, 0.5);
+                checkpointer.checkpoint(epoch);
+            }
+        }
+
+        BackPropNetwork restored = createNetwork();
+        assertEquals(4, Checkpointer.restore(restored, filename));
+        assertSameParameters(network, restored);
+        assertEquals(network.random.nextLong(), restored.random.nextLong());
+    }
+
+    @Test
+    public void testResumedRunMatchesUninterruptedRun() throws IOException {
+        BackPropNetwork uninterrupted = createNetwork();
+        uninterrupted.random = new Random(7);
+        BackPropNetwork interrupted = createNetwork();
+        interrupted.random = new Random(7);
+        String filename = tempFile();
+
+        DataSet uninterruptedData = new DataSet(DATA.getAllObservations(), CLASSES);
+        DataSet interruptedData = new DataSet(DATA.getAllObservations(), CLASSES);
+        for (int epoch = 0; epoch < 3; epoch++) {
+            uninterrupted.train(uninterruptedData, 2, 0.5);
+            interrupted.train(interruptedData, 2, 0.5);
+        }
+        try (Checkpointer checkpointer = new Checkpointer(interrupted, filename)) {
+            checkpointer.checkpoint(2);
+        }
+
+        // The resumed run starts from a fresh network. Shuffles permute the current order, so the data set must be in
+        // the order it had when the checkpoint was taken.
+        BackPropNetwork resumed = createNetwork();
+        DataSet resumedData = new DataSet(interruptedData.getAllObservations(), CLASSES);
+        int start = Checkpointer.restore(resumed, filename) + 1;
+        for (int epoch = start; epoch < 6; epoch++) {
+            uninterrupted.train(uninterruptedData, 2, 0.5);
+            resumed.train(resumedData, 2, 0.5);
+        }
+        assertSameParameters(uninterrupted, resumed);
+    }
+
+    @Test
+    public void testCheckpointIsAModelFile() throws IOException {
+        BackPropNetwork network = createNetwork();
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(network, filename)) {
+            checkpointer.checkpoint(0);
+        }
+        assertSameParameters(network, BackPropNetwork.load(filename));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreRejectsDifferentNetwork() throws IOException {
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(createNetwork(), filename)) {
+            checkpointer.checkpoint(0);
+        }
+        BackPropNetwork other = new BackPropNetwork(2, new int[]{4}, CLASSES, new Logistic(), new Logistic(),
+                new InitializerStub(Arrays.asList(0.0, 1.0)));
+        Checkpointer.restore(other, filename);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreRejectsModelWithoutState() throws IOException {
+        String filename = tempFile();
+        createNetwork().save(filename);
+        Checkpointer.restore(createNetwork(), filename);
+    }
+
+    @Test
+    public void testRestoresOptimizerState() throws IOException {
+        BackPropNetwork network = createNetwork();
+        network.setOptimizer(new Adam());
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(network, filename)) {
+            network.train(DATA, 2, 0.1);
+            checkpointer.checkpoint(0);
+        }
+
+        BackPropNetwork restored = createNetwork();
+        restored.setOptimizer(new Adam());
+        Checkpointer.restore(restored, filename);
+        double[][] expected = network.getOptimizer().getState();
+        double[][] actual = restored.getOptimizer().getState();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i], 0.0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreRejectsDifferentOptimizer() throws IOException {
+        BackPropNetwork network = createNetwork();
+        network.setOptimizer(new Adam());
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(network, filename)) {
+            checkpointer.checkpoint(0);
+        }
+        BackPropNetwork other = createNetwork();
+        other.setOptimizer(new Momentum(0.9));
+        Checkpointer.restore(other, filename);
+    }
+
+    @Test
+    public void testTruncatedCheckpointLeavesNetworkUnchanged() throws IOException {
+        BackPropNetwork network = createNetwork();
+        network.setOptimizer(new Adam());
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(network, filename)) {
+            network.train(DATA, 2, 0.1);
+            checkpointer.checkpoint(0);
+        }
+        Path file = Paths.get(filename);
+        byte[] contents = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(contents, contents.length - Double.BYTES));
+
+        BackPropNetwork restored = createNetwork();
+        restored.setOptimizer(new Adam());
+        BackPropNetwork original = createNetwork();
+        original.setOptimizer(new Adam());
+        try {
+            Checkpointer.restore(restored, filename);
+            fail("Expected the truncated checkpoint to be rejected");
+        } catch (IOException e) {
+            assertSameParameters(original, restored);
+            double[][] expected = original.getOptimizer().getState();
+            double[][] actual = restored.getOptimizer().getState();
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], actual[i], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testRestoreRejectsOtherRandomClasses() throws IOException {
+        BackPropNetwork network = createNetwork();
+        network.random = new RecordingRandom();
+        String filename = tempFile();
+        try (Checkpointer checkpointer = new Checkpointer(network, filename)) {
+            checkpointer.checkpoint(0);
+        }
+
+        RecordingRandom.deserialized = false;
+        try {
+            Checkpointer.restore(createNetwork(), filename);
+            fail("Expected a generator other than java.util.Random to be rejected");
+        } catch (IOException e) {
+            assertFalse(RecordingRandom.deserialized);
+        }
+    }
+
+    // A serializable class that records whether an instance was ever deserialized.
+    private static class RecordingRandom extends Random {
+
+        private static final long serialVersionUID = 1L;
+
+        static volatile boolean deserialized;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            deserialized = true;
+            in.defaultReadObject();
+        }
+    }
+}
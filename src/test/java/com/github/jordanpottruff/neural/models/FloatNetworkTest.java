@@ -0,0 +1,133 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.activations.ReLU;
+import com.github.jordanpottruff.neural.data.ColumnarDataSet;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import com.github.jordanpottruff.neural.optimizers.Adam;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FloatNetworkTest {
+
+    private static final String[] CLASSES = {"A", "B", "C"};
+
+    private static DataSet createData() {
+        Random random = new Random(5);
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            double x = random.nextDouble() * 2 - 1;
+            double y = random.nextDouble() * 2 - 1;
+            observations.add(new Observation(new Vec2(x, y), CLASSES[x < 0 ? 0 : (y < 0 ? 1 : 2)]));
+        }
+        return new DataSet(observations, CLASSES);
+    }
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.3, -0.2, 0.1, -0.4, 0.25, 0.15, -0.35));
+        return new BackPropNetwork(2, new int[]{4, 3}, CLASSES, new ReLU(), new Logistic(), init);
+    }
+
+    private static void assertSameParameters(BackPropNetwork expected, BackPropNetwork actual, double delta) {
+        for (int l = 0; l < expected.weights.length; l++) {
+            assertArrayEquals(expected.weights[l].data(), actual.weights[l].data(), delta);
+            assertArrayEquals(expected.biases[l], actual.biases[l], delta);
+        }
+    }
+
+    @Test
+    public void testConversion() {
+        BackPropNetwork network = createNetwork();
+        FloatNetwork floatNetwork = new FloatNetwork(network);
+        assertEquals(3, floatNetwork.weights.length);
+        assertSameParameters(network, floatNetwork.toBackPropNetwork(), 1e-7);
+    }
+
+    @Test
+    public void testTrainingMatchesDoublePrecision() {
+        BackPropNetwork network = createNetwork();
+        FloatNetwork floatNetwork = new FloatNetwork(network);
+        network.random = new Random(9);
+        floatNetwork.random = new Random(9);
+        DataSet data = createData();
+        DataSet floatData = new DataSet(data.getAllObservations(), CLASSES);
+        for (int epoch = 0; epoch < 5; epoch++) {
+            network.train(data, 4, 0.5);
+            floatNetwork.train(floatData, 4, 0.5);
+        }
+        assertSameParameters(network, floatNetwork.toBackPropNetwork(), 1e-4);
+    }
+
+    @Test
+    public void testTrainsWithOptimizer() {
+        BackPropNetwork network = createNetwork();
+        FloatNetwork floatNetwork = new FloatNetwork(network);
+        network.setOptimizer(new Adam());
+        floatNetwork.setOptimizer(new Adam());
+        network.random = new Random(3);
+        floatNetwork.random = new Random(3);
+        ColumnarDataSet data = new ColumnarDataSet(createData());
+        ColumnarDataSet floatData = new ColumnarDataSet(createData());
+        for (int epoch = 0; epoch < 3; epoch++) {
+            network.train(data, 5, 0.01);
+            floatNetwork.train(floatData, 5, 0.01);
+        }
+        assertSameParameters(network, floatNetwork.toBackPropNetwork(), 1e-4);
+    }
+
+    @Test
+    public void testMatchesDoublePrecisionInference() {
+        BackPropNetwork network = createNetwork();
+        network.train(createData(), 3, 0.5);
+        FloatNetwork floatNetwork = new FloatNetwork(network);
+        DataSet data = createData();
+
+        BackPropNetwork.Result expected = network.test(data);
+        BackPropNetwork.Result actual = floatNetwork.test(data);
+        assertEquals(expected.getAccuracy(), actual.getAccuracy(), 0.0);
+        assertEquals(expected.getError(), actual.getError(), 1e-5);
+        assertEquals(expected.correct().size(), actual.correct().size());
+        for (Observation obs : data.getAllObservations()) {
+            assertEquals(network.classify(obs.getAttributes()), floatNetwork.classify(obs.getAttributes()));
+        }
+    }
+
+    @Test
+    public void testClassifyDoesNotAllocate() {
+        FloatNetwork floatNetwork = new FloatNetwork(createNetwork());
+        List<Observation> observations = createData().getAllObservations();
+        Runnable classify = () -> {
+            for (int i = 0; i < 1000; i++) {
+                floatNetwork.classify(observations.get(i % observations.size()).getAttributes());
+            }
+        };
+        // The first run creates this thread's buffers and compiles the inference path.
+        classify.run();
+
+        long before = TrainingWorkspaceTest.allocatedBytes();
+        classify.run();
+        long allocated = TrainingWorkspaceTest.allocatedBytes() - before;
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1000);
+    }
+
+    @Test
+    public void testInterruptStopsTraining() {
+        FloatNetwork floatNetwork = new FloatNetwork(createNetwork());
+        Thread.currentThread().interrupt();
+        floatNetwork.train(createData(), 4, 0.5);
+
+        // No mini-batch was trained, and the interrupt is left for the caller to see.
+        assertTrue(Thread.interrupted());
+        assertSameParameters(createNetwork(), floatNetwork.toBackPropNetwork(), 1e-7);
+    }
+}
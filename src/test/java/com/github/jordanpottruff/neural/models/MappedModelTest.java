@@ -0,0 +1,76 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.activations.ReLU;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MappedModelTest {
+
+    private static final double EPSILON = 0.000001;
+
+    // Saves a network to a temporary file that is deleted when the tests finish, returning the file's name.
+    private static String save(BackPropNetwork network) throws IOException {
+        Path file = Files.createTempFile("network", ".bin");
+        file.toFile().deleteOnExit();
+        network.save(file.toString());
+        return file.toString();
+    }
+
+    @Test
+    public void testMatchesNetwork() throws IOException {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.5, -1.25, 2.0, 0.125, -0.75));
+        BackPropNetwork network = new BackPropNetwork(2, new int[]{4, 3}, new String[]{"A", "B", "C"}, new ReLU(),
+                new Logistic(), init);
+        network.biases[0][1] = 0.25;
+        network.biases[2][0] = -0.5;
+        MappedModel model = MappedModel.open(save(network));
+
+        assertArrayEquals(new String[]{"A", "B", "C"}, model.getClasses());
+        assertEquals(2, model.getInputSize());
+        double[][] inputs = {{1.0, -2.0}, {0.5, 0.5}, {-3.0, 1.0}};
+        for (double[] input : inputs) {
+            BackPropNetwork.Prediction expected = network.predict(new Vec2(input[0], input[1]));
+            double[] output = new double[3];
+            assertEquals(expected.getClassIndex(), model.predict(input, output));
+            assertArrayEquals(expected.getOutput().toArray(), output, EPSILON);
+            assertEquals(expected.getClassIndex(), model.classify(input));
+            assertEquals(expected.getClassification(), model.classify(new Vec2(input[0], input[1])));
+        }
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.3, -0.2, 0.1, -0.4, 0.25));
+        BackPropNetwork network = new BackPropNetwork(2, new int[]{5}, new String[]{"A", "B"}, new Logistic(),
+                new Logistic(), init);
+        MappedModel model = MappedModel.open(save(network));
+        int expected = network.predict(new Vec2(0.7, -0.1)).getClassIndex();
+
+        int[] results = new int[4];
+        Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    results[index] = model.classify(new double[]{0.7, -0.1});
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int result : results) {
+            assertEquals(expected, result);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.activations.ReLU;
+import com.github.jordanpottruff.neural.initializers.GaussianInitializer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MicroBatcherTest {
+
+    private static final BackPropNetwork NETWORK = new BackPropNetwork(4, new int[]{6, 5}, new String[]{"A", "B", "C"},
+            new ReLU(), new Logistic(), new GaussianInitializer());
+
+    private static double[][] randomInputs(int count) {
+        Random random = new Random(7);
+        double[][] inputs = new double[count][4];
+        for (double[] input : inputs) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextGaussian();
+            }
+        }
+        return inputs;
+    }
+
+    @Test
+    public void testClassifyBatch() {
+        Predictor predictor = new Predictor(NETWORK);
+        double[][] inputs = randomInputs(100);
+        int[] expected = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = predictor.classify(inputs[i]);
+        }
+
+        assertArrayEquals(expected, predictor.classifyBatch(inputs));
+        assertArrayEquals(expected, NETWORK.classifyBatch(inputs));
+    }
+
+    @Test
+    public void testMicroBatcherGathersRequests() throws InterruptedException, ExecutionException {
+        Predictor predictor = new Predictor(NETWORK);
+        double[][] inputs = randomInputs(200);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        try (MicroBatcher batcher = new MicroBatcher(predictor, 16, 1000)) {
+            for (double[] input : inputs) {
+                results.add(batcher.classify(input));
+            }
+            for (int i = 0; i < inputs.length; i++) {
+                assertEquals(predictor.classify(inputs[i]), (int) results.get(i).get());
+            }
+            assertTrue(batcher.getBatchCount() >= inputs.length / 16);
+            assertTrue(batcher.getBatchCount() < inputs.length);
+        }
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testClosedMicroBatcherRejectsRequests() throws InterruptedException, ExecutionException {
+        MicroBatcher batcher = new MicroBatcher(new Predictor(NETWORK), 16, 1000);
+        batcher.close();
+        batcher.classify(new double[4]).get();
+    }
+
+    @Test
+    public void testRequestQueuedAfterCloseIsRejected() throws InterruptedException {
+        // A queue that closes the batcher just before a request is added, as if close() ran between the closed check
+        // and the add in classify().
+        MicroBatcher[] batcher = new MicroBatcher[1];
+        LinkedBlockingQueue<MicroBatcher.Request> queue = new LinkedBlockingQueue<MicroBatcher.Request>() {
+            @Override
+            public boolean add(MicroBatcher.Request request) {
+                batcher[0].close();
+                return super.add(request);
+            }
+        };
+        batcher[0] = new MicroBatcher(new Predictor(NETWORK), 16, 100, queue);
+
+        CompletableFuture<Integer> result = batcher[0].classify(randomInputs(1)[0]);
+        assertTrue(result.isCompletedExceptionally());
+        assertTrue(queue.isEmpty());
+    }
+}
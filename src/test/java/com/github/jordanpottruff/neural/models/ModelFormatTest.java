@@ -0,0 +1,191 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.activations.ReLU;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModelFormatTest {
+
+    // Set when NotAnActivation is initialized. This is kept outside that class so that checking it does not itself
+    // initialize the class.
+    private static volatile boolean notAnActivationInitialized = false;
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.5, -1.25, 2.0, 0.125, -0.75));
+        return new BackPropNetwork(2, new int[]{4, 3}, new String[]{"A", "B\u00e9", "C"}, new ReLU(), new Logistic(), init);
+    }
+
+    // Returns the name of a new temporary file that is deleted when the tests finish.
+    private static String tempFile() throws IOException {
+        Path file = Files.createTempFile("network", ".bin");
+        file.toFile().deleteOnExit();
+        return file.toString();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        BackPropNetwork network = createNetwork();
+        network.biases[1][2] = 0.375;
+        String filename = tempFile();
+        network.save(filename);
+        BackPropNetwork loaded = BackPropNetwork.load(filename);
+
+        assertEquals(network.layerSizes, loaded.layerSizes);
+        assertArrayEquals(network.classes, loaded.classes);
+        assertTrue(loaded.hiddenActFunc instanceof ReLU);
+        assertTrue(loaded.outputActFunc instanceof Logistic);
+        for (int l = 0; l < network.weights.length; l++) {
+            assertArrayEquals(network.weights[l].data(), loaded.weights[l].data(), 0.0);
+            assertArrayEquals(network.biases[l], loaded.biases[l], 0.0);
+        }
+        assertArrayEquals(network.predict(new Vec2(1.0, -2.0)).getOutput().toArray(),
+                loaded.predict(new Vec2(1.0, -2.0)).getOutput().toArray(), 0.0);
+    }
+
+    @Test
+    public void testParametersAreAligned() throws IOException {
+        String filename = tempFile();
+        createNetwork().save(filename);
+        ModelFormat.Header header = new ModelFormat.Header(ModelFormat.map(filename), filename);
+
+        assertEquals(0, header.parameterOffset % 8);
+        assertEquals(4 * 2 + 4 + 3 * 4 + 3 + 3 * 3 + 3, header.parameterCount);
+        assertEquals(header.parameterOffset + header.parameterCount * 8, Files.size(Paths.get(filename)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        String filename = tempFile();
+        createNetwork().save(filename);
+        byte[] bytes = Files.readAllBytes(Paths.get(filename));
+        Files.write(Paths.get(filename), Arrays.copyOf(bytes, bytes.length - 8));
+        BackPropNetwork.load(filename);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAModelFile() throws IOException {
+        String filename = tempFile();
+        Files.write(Paths.get(filename), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        BackPropNetwork.load(filename);
+    }
+
+    // Writes a header holding the given integers after the magic number and version.
+    private static String writeHeader(int... values) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8 + 4 * values.length + 64).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x4D424E4E).putInt(1);
+        for (int value : values) {
+            header.putInt(value);
+        }
+        String filename = tempFile();
+        Files.write(Paths.get(filename), header.array());
+        return filename;
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativeLayerSize() throws IOException {
+        BackPropNetwork.load(writeHeader(2, 4, -3, -3));
+    }
+
+    @Test(expected = IOException.class)
+    public void testHugeLayerCount() throws IOException {
+        BackPropNetwork.load(writeHeader(Integer.MAX_VALUE, 2, 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testHugeClassCount() throws IOException {
+        BackPropNetwork.load(writeHeader(2, 1, 1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSaveKeepsMappedModelValid() throws IOException {
+        BackPropNetwork network = createNetwork();
+        String filename = tempFile();
+        network.save(filename);
+        MappedModel model = MappedModel.open(filename);
+        double[] input = {1.0, -2.0};
+        double[] expected = new double[3];
+        model.predict(input, expected);
+
+        // Replacing the file must not change what the model that has the old file mapped reads.
+        network.biases[2][0] = 10.0;
+        network.save(filename);
+        double[] actual = new double[3];
+        model.predict(input, actual);
+        assertArrayEquals(expected, actual, 0.0);
+        assertEquals(10.0, BackPropNetwork.load(filename).biases[2][0], 0.0);
+    }
+
+    @Test
+    public void testNonActivationClassIsNotInitialized() throws IOException {
+        // A valid model with one input and one output whose hidden activation function names another class.
+        String[] strings = {NotAnActivation.class.getName(), Logistic.class.getName(), "A"};
+        ByteBuffer file = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(0x4D424E4E).putInt(1).putInt(2).putInt(1).putInt(1).putInt(1);
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            file.putShort((short) bytes.length).put(bytes);
+        }
+        file.position((file.position() + 7) & ~7);
+        file.putDouble(0.5).putDouble(0.25);
+        String filename = tempFile();
+        Files.write(Paths.get(filename), Arrays.copyOf(file.array(), file.position()));
+
+        try {
+            BackPropNetwork.load(filename);
+            fail("Expected a class that is not an activation function to be rejected");
+        } catch (IOException e) {
+            assertFalse(notAnActivationInitialized);
+        }
+    }
+
+    // A class that records when it is initialized, which must never happen while loading a model.
+    private static class NotAnActivation {
+        static {
+            notAnActivationInitialized = true;
+        }
+    }
+
+    @Test
+    public void testSaveIgnoresStaleTemporaryFile() throws IOException {
+        // A leftover file at the old fixed temporary name must not stop the network from being saved.
+        String filename = tempFile();
+        Path stale = Files.createDirectory(Paths.get(filename + ".tmp"));
+        try {
+            createNetwork().save(filename);
+            assertEquals(createNetwork().layerSizes, BackPropNetwork.load(filename).layerSizes);
+        } finally {
+            Files.delete(stale);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testFileTooLargeToMap() throws IOException {
+        String filename = tempFile();
+        // The file is sparse, so this does not use any disk space.
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            file.setLength(Integer.MAX_VALUE + 1L);
+        }
+        try {
+            BackPropNetwork.load(filename);
+        } finally {
+            Files.delete(Paths.get(filename));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PredictorTest {
+
+    private static final double EPSILON = 0.01;
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.0, 1.0));
+        return new BackPropNetwork(2, new int[]{3}, new String[]{"A", "B", "C"}, new Logistic(), new Logistic(), init);
+    }
+
+    @Test
+    public void testPredict() {
+        Predictor predictor = new Predictor(createNetwork());
+        double[] output = new double[3];
+        int classIndex = predictor.predict(new double[]{1.0, 2.0}, output);
+
+        assertEquals(1, classIndex);
+        assertEquals("B", predictor.getClass(classIndex));
+        assertArrayEquals(new double[]{0.675038, 0.853409, 0.675038}, output, EPSILON);
+    }
+
+    @Test
+    public void testClassifyMatchesNetwork() {
+        BackPropNetwork network = createNetwork();
+        Predictor predictor = new Predictor(network);
+        double[][] inputs = {{1, 10}, {1000, -1000}, {-3, 2}, {0, 0}};
+
+        for (double[] input : inputs) {
+            VecN attributes = new VecN(input);
+            assertEquals(network.classify(attributes), predictor.classify(attributes));
+            assertEquals(network.classify(attributes), predictor.getClass(predictor.classify(input)));
+        }
+    }
+
+    @Test
+    public void testPredictorIsSnapshot() {
+        BackPropNetwork network = createNetwork();
+        Predictor predictor = new Predictor(network);
+        double[] before = new double[3];
+        predictor.predict(new double[]{1.0, 2.0}, before);
+
+        DataSet data = new DataSet(Arrays.asList(new Observation(new Vec2(1.0, 2.0), "A")), new String[]{"A", "B", "C"});
+        network.train(data, 1, 5.0);
+
+        double[] after = new double[3];
+        predictor.predict(new double[]{1.0, 2.0}, after);
+        assertArrayEquals(before, after, 0);
+    }
+
+    @Test
+    public void testConcurrentClassification() throws Exception {
+        Predictor predictor = new Predictor(createNetwork());
+        double[][] inputs = {{1, 10}, {1000, -1000}, {-3, 2}, {0, 0}};
+        int[] expected = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = predictor.classify(inputs[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                int[] actual = new int[inputs.length];
+                for (int repeat = 0; repeat < 1000; repeat++) {
+                    for (int i = 0; i < inputs.length; i++) {
+                        actual[i] = predictor.classify(inputs[i]);
+                    }
+                }
+                return actual;
+            }));
+        }
+        for (Future<int[]> future : futures) {
+            assertArrayEquals(expected, future.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testPredictorDoesNotRetainNetwork() throws Exception {
+        BackPropNetwork network = createNetwork();
+        Predictor predictor = new Predictor(network);
+        int expected = predictor.classify(new double[]{1.0, 2.0});
+        WeakReference<BackPropNetwork> reference = new WeakReference<>(network);
+        network = null;
+
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        // A new thread's buffers are created after the network is gone, and must still be the right size.
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(expected, (int) executor.submit(() -> predictor.classify(new double[]{1.0, 2.0})).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
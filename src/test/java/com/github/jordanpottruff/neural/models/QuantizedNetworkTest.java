@@ -0,0 +1,93 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.jgml.VecN;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.activations.ReLU;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantizedNetworkTest {
+
+    private static final String[] CLASSES = {"A", "B", "C"};
+
+    private static DataSet createData(int seed, int size) {
+        Random random = new Random(seed);
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            double x = random.nextDouble() * 2 - 1;
+            double y = random.nextDouble() * 2 - 1;
+            observations.add(new Observation(new Vec2(x, y), CLASSES[x < 0 ? 0 : (y < 0 ? 1 : 2)]));
+        }
+        return new DataSet(observations, CLASSES);
+    }
+
+    private static BackPropNetwork createTrainedNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.3, -0.2, 0.1, -0.4, 0.25, 0.15, -0.35));
+        BackPropNetwork network = new BackPropNetwork(2, new int[]{8}, CLASSES, new ReLU(), new Logistic(), init);
+        network.random = new Random(3);
+        DataSet data = createData(1, 200);
+        for (int epoch = 0; epoch < 50; epoch++) {
+            network.train(data, 10, 0.5);
+        }
+        return network;
+    }
+
+    @Test
+    public void testClassifyMatchesOriginal() {
+        BackPropNetwork network = createTrainedNetwork();
+        QuantizedNetwork quantized = QuantizedNetwork.quantize(network, createData(2, 50));
+        Predictor predictor = new Predictor(network);
+
+        DataSet data = createData(4, 100);
+        int agreed = 0;
+        for (int i = 0; i < data.size(); i++) {
+            VecN attributes = data.getObservation(i).getAttributes();
+            double[] input = {attributes.get(0), attributes.get(1)};
+            int expected = predictor.classify(input);
+            // Observations near the boundary between two classes may flip, but most must not.
+            if (quantized.classify(input) == expected) {
+                agreed++;
+            }
+            assertEquals(CLASSES[quantized.classify(input)], quantized.classify(attributes));
+        }
+        assertTrue(agreed >= 95);
+    }
+
+    @Test
+    public void testCompare() {
+        BackPropNetwork network = createTrainedNetwork();
+        DataSet testData = createData(4, 200);
+        for (QuantizedNetwork.Granularity granularity : QuantizedNetwork.Granularity.values()) {
+            QuantizedNetwork quantized = QuantizedNetwork.quantize(network, createData(2, 50), granularity);
+            QuantizedNetwork.Comparison comparison = quantized.compare(network, testData);
+
+            assertEquals(network.test(testData, false).getAccuracy(), comparison.getOriginal().getAccuracy(), 0);
+            assertEquals(quantized.test(testData, false).getAccuracy(), comparison.getQuantized().getAccuracy(), 0);
+            assertEquals(comparison.getQuantized().getAccuracy() - comparison.getOriginal().getAccuracy(),
+                    comparison.getAccuracyDifference(), 1e-12);
+            assertTrue(Math.abs(comparison.getAccuracyDifference()) <= 0.05);
+        }
+    }
+
+    @Test
+    public void testWeightsAreOneBytePerParameter() {
+        BackPropNetwork network = createTrainedNetwork();
+        QuantizedNetwork quantized = QuantizedNetwork.quantize(network, createData(2, 50));
+        assertEquals(2 * 8 + 8 * 3, quantized.getWeightBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyCalibrationSet() {
+        QuantizedNetwork.quantize(createTrainedNetwork(), new DataSet(new ArrayList<>(), CLASSES));
+    }
+}
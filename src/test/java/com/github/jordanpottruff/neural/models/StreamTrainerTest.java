@@ -0,0 +1,84 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class StreamTrainerTest {
+
+    private static final double EPSILON = 0.000001;
+    private static final String[] CLASSES = {"A", "B", "C"};
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.0, 1.0));
+        return new BackPropNetwork(2, new int[]{3}, CLASSES, new Logistic(), new Logistic(), init);
+    }
+
+    @Test
+    public void testUnbufferedStreamMatchesBatchTraining() {
+        List<Observation> observations = Arrays.asList(
+                new Observation(new Vec2(1.0, 2.0), "A"),
+                new Observation(new Vec2(-1.0, 0.5), "B"),
+                new Observation(new Vec2(0.5, -2.0), "C"),
+                new Observation(new Vec2(2.0, 1.0), "B"));
+        BackPropNetwork batched = createNetwork();
+        // A single batch makes the result independent of the shuffled order.
+        batched.train(new DataSet(observations, CLASSES), 4, 0.5);
+
+        BackPropNetwork streamed = createNetwork();
+        StreamTrainer trainer = new StreamTrainer(streamed, 4, 0.5, 0);
+        assertEquals(4, trainer.train(observations.iterator()));
+        assertEquals(1, trainer.getUpdateCount());
+
+        for (int l = 0; l < batched.weights.length; l++) {
+            assertArrayEquals(batched.weights[l].data(), streamed.weights[l].data(), EPSILON);
+            assertArrayEquals(batched.biases[l], streamed.biases[l], EPSILON);
+        }
+    }
+
+    @Test
+    public void testShuffleBufferTrainsOnEveryObservation() {
+        BackPropNetwork network = createNetwork();
+        StreamTrainer trainer = new StreamTrainer(network, 3, 0.5, 4);
+        List<Long> checkpoints = new ArrayList<>();
+        trainer.setCheckpointHook(2, n -> checkpoints.add(trainer.getUpdateCount()));
+
+        Stream<Observation> stream = Stream.generate(() -> new Observation(new Vec2(1.0, 2.0), "A")).limit(10);
+        assertEquals(10, trainer.train(stream.spliterator()));
+        // Four observations are still held in the buffer, so only two batches have been trained.
+        assertEquals(2, trainer.getUpdateCount());
+
+        trainer.flush();
+        assertEquals(4, trainer.getUpdateCount());
+        assertEquals(Arrays.asList(2L, 4L), checkpoints);
+    }
+
+    @Test
+    public void testStreamLearnsSeparableClasses() {
+        Random random = new Random(7);
+        BackPropNetwork network = new BackPropNetwork(2, new int[]{8}, new String[]{"left", "right"}, new Logistic(),
+                new Logistic(), new InitializerStub(Arrays.asList(0.3, -0.2, 0.1, -0.4, 0.25)));
+        StreamTrainer trainer = new StreamTrainer(network, 8, 1.0, 64);
+        Stream<Observation> stream = Stream.generate(() -> {
+            double x = random.nextDouble() * 2 - 1;
+            return new Observation(new Vec2(x, random.nextDouble()), x < 0 ? "left" : "right");
+        }).limit(20000);
+        trainer.train(stream.iterator());
+        trainer.flush();
+
+        assertEquals("left", network.classify(new Vec2(-0.8, 0.5)));
+        assertEquals("right", network.classify(new Vec2(0.8, 0.5)));
+        assertEquals(20000, trainer.getObservationCount());
+    }
+}
@@ -0,0 +1,266 @@
+package com.github.jordanpottruff.neural.models;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import com.sun.management.ThreadMXBean;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrainingWorkspaceTest {
+
+    private static final double EPSILON = 0.000001;
+    private static final String[] CLASSES = {"A", "B", "C"};
+
+    private static final int EPOCH_SIZE = 8000;
+    private static final int BATCH_SIZE = 400;
+    private static final int WARM_UP_EPOCHS = 40;
+    // The bytes that the threads of a warmed-up training epoch may allocate between them per mini-batch. This covers
+    // the queue nodes of the blocking hand-offs between threads and the tasks that concurrent training submits to its
+    // executor, but not a single object per observation, which would take at least 16 * BATCH_SIZE bytes.
+    private static final long BATCH_ALLOWANCE = 2048;
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.0, 1.0));
+        return new BackPropNetwork(2, new int[]{3}, CLASSES, new Logistic(), new Logistic(), init);
+    }
+
+    private static DataSet createEpochData() {
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < EPOCH_SIZE; i++) {
+            observations.add(new Observation(new Vec2(i % 7 - 3.0, i % 5 - 2.0), CLASSES[i % CLASSES.length]));
+        }
+        return new DataSet(observations, CLASSES);
+    }
+
+    // Returns the bean that reports the bytes allocated by each thread, skipping the test if the JVM cannot.
+    static ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof ThreadMXBean && ((ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        ThreadMXBean allocationBean = (ThreadMXBean) bean;
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+
+    // Returns the number of bytes the current thread has allocated so far, skipping the test if the JVM cannot tell.
+    static long allocatedBytes() {
+        return allocationBean().getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void testTrainingEpochDoesNotAllocatePerObservation() {
+        ThreadMXBean bean = allocationBean();
+        BackPropNetwork network = createNetwork();
+        DataSet data = createEpochData();
+        // The first epochs load and compile the training path, which allocates.
+        for (int i = 0; i < WARM_UP_EPOCHS; i++) {
+            network.train(data, BATCH_SIZE, 0.1);
+        }
+
+        AllocationMeter meter = new AllocationMeter(bean, Collections.emptyList());
+        network.train(data, BATCH_SIZE, meter);
+        assertTrue("Allocated " + meter.perBatch() + " bytes per batch", meter.perBatch() < BATCH_ALLOWANCE);
+    }
+
+    @Test
+    public void testConcurrentTrainingEpochDoesNotAllocatePerObservation() {
+        ThreadMXBean bean = allocationBean();
+        BackPropNetwork network = createNetwork();
+        DataSet data = createEpochData();
+        List<Thread> workers = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable);
+            workers.add(thread);
+            return thread;
+        });
+        network.setTrainingExecutor(executor);
+        try {
+            for (int i = 0; i < WARM_UP_EPOCHS; i++) {
+                network.trainConcurrent(data, BATCH_SIZE, 0.1, 2);
+            }
+
+            AllocationMeter meter = new AllocationMeter(bean, workers);
+            network.trainConcurrent(data, BATCH_SIZE, meter, 2);
+            assertTrue("Allocated " + meter.perBatch() + " bytes per batch", meter.perBatch() < BATCH_ALLOWANCE);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAccumulateGradientSumsObservations() {
+        BackPropNetwork network = createNetwork();
+        Observation obs = new Observation(new Vec2(1.0, 2.0), "A");
+        TrainingWorkspace once = new TrainingWorkspace(network.layerSizes);
+        TrainingWorkspace twice = new TrainingWorkspace(network.layerSizes);
+
+        network.accumulateGradient(obs, once);
+        network.accumulateGradient(obs, twice);
+        network.accumulateGradient(obs, twice);
+        once.addGradient(once);
+
+        for (int l = 0; l < network.weights.length; l++) {
+            assertArrayEquals(once.weightGradient[l].data(), twice.weightGradient[l].data(), EPSILON);
+            assertArrayEquals(once.biasGradient[l], twice.biasGradient[l], EPSILON);
+        }
+    }
+
+    @Test
+    public void testAccumulateBatchGradientMatchesObservations() {
+        BackPropNetwork network = createNetwork();
+        List<Observation> batch = Arrays.asList(
+                new Observation(new Vec2(1.0, 2.0), "A"),
+                new Observation(new Vec2(-1.0, 0.5), "B"),
+                new Observation(new Vec2(0.5, -2.0), "C"));
+        TrainingWorkspace observations = new TrainingWorkspace(network.layerSizes);
+        TrainingWorkspace batched = new TrainingWorkspace(network.layerSizes, 4);
+
+        for (Observation obs : batch) {
+            network.accumulateGradient(obs, observations);
+        }
+        network.accumulateBatchGradient(batch, batched);
+
+        for (int l = 0; l < network.weights.length; l++) {
+            assertArrayEquals(observations.weightGradient[l].data(), batched.weightGradient[l].data(), EPSILON);
+            assertArrayEquals(observations.biasGradient[l], batched.biasGradient[l], EPSILON);
+        }
+    }
+
+    @Test
+    public void testClearGradient() {
+        BackPropNetwork network = createNetwork();
+        TrainingWorkspace workspace = new TrainingWorkspace(network.layerSizes);
+        network.accumulateGradient(new Observation(new Vec2(1.0, 2.0), "B"), workspace);
+        workspace.clearGradient();
+
+        for (int l = 0; l < network.weights.length; l++) {
+            double[] weightGradient = workspace.weightGradient[l].data();
+            assertArrayEquals(new double[weightGradient.length], weightGradient, 0);
+            assertArrayEquals(new double[workspace.biasGradient[l].length], workspace.biasGradient[l], 0);
+        }
+    }
+
+    @Test
+    public void testTrainingMatchesAcrossThreadCounts() {
+        DataSet data = new DataSet(Arrays.asList(
+                new Observation(new Vec2(1.0, 2.0), "A"),
+                new Observation(new Vec2(-1.0, 0.5), "B"),
+                new Observation(new Vec2(0.5, -2.0), "C"),
+                new Observation(new Vec2(2.0, 1.0), "B"),
+                new Observation(new Vec2(0.0, -1.0), "A")), CLASSES);
+        BackPropNetwork serial = createNetwork();
+        // A single batch makes the result independent of the shuffled order.
+        serial.train(data, 5, 0.5);
+
+        for (int threads = 1; threads <= 5; threads++) {
+            BackPropNetwork concurrent = createNetwork();
+            concurrent.trainConcurrent(data, 5, 0.5, threads);
+            concurrent.shutdown();
+
+            for (int l = 0; l < serial.weights.length; l++) {
+                assertArrayEquals(serial.weights[l].data(), concurrent.weights[l].data(), EPSILON);
+                assertArrayEquals(serial.biases[l], concurrent.biases[l], EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void testTrainConcurrentUsesInjectedExecutor() {
+        BackPropNetwork network = createNetwork();
+        DataSet data = new DataSet(Arrays.asList(
+                new Observation(new Vec2(1.0, 2.0), "A"),
+                new Observation(new Vec2(-1.0, 0.5), "B")), CLASSES);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+        network.setTrainingExecutor(executor);
+
+        network.trainConcurrent(data, 1, 0.5, 2);
+        network.trainConcurrent(data, 1, 0.5, 2);
+        network.shutdown();
+
+        assertTrue(executor.getCompletedTaskCount() > 0);
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    /**
+     * Trains at a constant learning rate while measuring the bytes allocated between two mini-batches in the middle of
+     * the epoch, which leaves out the workspace and prefetcher created at its start. The count covers the training
+     * thread, the prefetcher's loader and the given worker threads.
+     */
+    private static class AllocationMeter implements TrainingController {
+
+        private static final int FIRST_BATCH = 2;
+        // Far enough from the end that the loader, which runs only a few batches ahead, has not yet finished.
+        private static final int LAST_BATCH = EPOCH_SIZE / BATCH_SIZE - 6;
+
+        private final ThreadMXBean bean;
+        private final List<Thread> workers;
+        private Thread loader;
+        private long allocated;
+
+        AllocationMeter(ThreadMXBean bean, List<Thread> workers) {
+            this.bean = bean;
+            this.workers = workers;
+        }
+
+        @Override
+        public double getLearningRate(int batch) {
+            return 0.1;
+        }
+
+        @Override
+        public boolean batchCompleted(int batch) {
+            // Reading the count of another thread allocates on this one, so this thread is read after the others at
+            // the start and before them at the end.
+            if (batch == FIRST_BATCH) {
+                loader = findLoader();
+                allocated = -otherThreadBytes() - bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            } else if (batch == LAST_BATCH) {
+                allocated += bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                allocated += otherThreadBytes();
+            }
+            return true;
+        }
+
+        // Returns the average number of bytes allocated per mini-batch.
+        long perBatch() {
+            return allocated / (LAST_BATCH - FIRST_BATCH);
+        }
+
+        // Returns the bytes allocated so far by the loader and the workers.
+        private long otherThreadBytes() {
+            long bytes = bean.getThreadAllocatedBytes(loader.getId());
+            for (Thread worker : workers) {
+                bytes += bean.getThreadAllocatedBytes(worker.getId());
+            }
+            return bytes;
+        }
+
+        // Returns the prefetcher's loader thread of the current epoch.
+        private static Thread findLoader() {
+            Thread[] threads = new Thread[Thread.activeCount() + 1];
+            int count = Thread.enumerate(threads);
+            for (int i = 0; i < count; i++) {
+                if (threads[i].getName().equals("batch-prefetcher")) {
+                    return threads[i];
+                }
+            }
+            throw new IllegalStateException("The prefetcher is not running");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.jordanpottruff.neural.optimizers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class OptimizerTest {
+
+    private static final double DELTA = 1e-12;
+
+    // Applies one step to a single parameter array, as a network does after each mini-batch.
+    private static void step(Optimizer optimizer, double[] parameters, double[] gradient, double scale, double lr) {
+        optimizer.beginStep();
+        optimizer.update(0, parameters, gradient, scale, lr);
+    }
+
+    @Test
+    public void testSGD() {
+        Optimizer optimizer = new SGD();
+        optimizer.initialize(new int[]{2});
+        double[] parameters = {1.0, -2.0};
+        step(optimizer, parameters, new double[]{4.0, -2.0}, 0.5, 0.1);
+        assertArrayEquals(new double[]{0.8, -1.9}, parameters, DELTA);
+        assertEquals(0, optimizer.getState().length);
+    }
+
+    @Test
+    public void testMomentum() {
+        Optimizer optimizer = new Momentum(0.5);
+        optimizer.initialize(new int[]{1});
+        double[] parameters = {1.0};
+        step(optimizer, parameters, new double[]{2.0}, 1.0, 0.1);
+        // v = 2, w = 1 - 0.2
+        assertArrayEquals(new double[]{0.8}, parameters, DELTA);
+        step(optimizer, parameters, new double[]{2.0}, 1.0, 0.1);
+        // v = 0.5 * 2 + 2 = 3, w = 0.8 - 0.3
+        assertArrayEquals(new double[]{0.5}, parameters, DELTA);
+        assertArrayEquals(new double[]{3.0}, optimizer.getState()[0], DELTA);
+    }
+
+    @Test
+    public void testNesterov() {
+        Optimizer optimizer = new Nesterov(0.5);
+        optimizer.initialize(new int[]{1});
+        double[] parameters = {1.0};
+        step(optimizer, parameters, new double[]{2.0}, 1.0, 0.1);
+        // v = 2, w = 1 - 0.1 * (2 + 0.5 * 2)
+        assertArrayEquals(new double[]{0.7}, parameters, DELTA);
+        step(optimizer, parameters, new double[]{2.0}, 1.0, 0.1);
+        // v = 3, w = 0.7 - 0.1 * (2 + 0.5 * 3)
+        assertArrayEquals(new double[]{0.35}, parameters, DELTA);
+    }
+
+    @Test
+    public void testRMSProp() {
+        Optimizer optimizer = new RMSProp(0.9, 0.0);
+        optimizer.initialize(new int[]{1});
+        double[] parameters = {1.0};
+        step(optimizer, parameters, new double[]{2.0}, 1.0, 0.1);
+        // s = 0.1 * 4 = 0.4, w = 1 - 0.1 * 2 / sqrt(0.4)
+        assertArrayEquals(new double[]{1.0 - 0.2 / Math.sqrt(0.4)}, parameters, DELTA);
+        assertArrayEquals(new double[]{0.4}, optimizer.getState()[0], DELTA);
+    }
+
+    @Test
+    public void testAdam() {
+        Optimizer optimizer = new Adam(0.9, 0.999, 0.0);
+        optimizer.initialize(new int[]{2});
+        double[] parameters = {1.0, 1.0};
+        step(optimizer, parameters, new double[]{3.0, -0.5}, 1.0, 0.1);
+        // After bias correction the first step is the learning rate in the direction of the gradient's sign.
+        assertArrayEquals(new double[]{0.9, 1.1}, parameters, DELTA);
+        step(optimizer, parameters, new double[]{3.0, -0.5}, 1.0, 0.1);
+        assertArrayEquals(new double[]{0.8, 1.2}, parameters, DELTA);
+    }
+
+    @Test
+    public void testAdamStateIncludesStepCount() {
+        Optimizer optimizer = new Adam();
+        optimizer.initialize(new int[]{3, 2});
+        step(optimizer, new double[3], new double[3], 1.0, 0.1);
+        double[][] state = optimizer.getState();
+        assertEquals(5, state.length);
+        assertEquals(3, state[0].length);
+        assertEquals(2, state[2].length);
+        assertArrayEquals(new double[]{1.0}, state[4], 0.0);
+    }
+}
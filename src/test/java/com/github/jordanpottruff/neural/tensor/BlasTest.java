@@ -0,0 +1,237 @@
+package com.github.jordanpottruff.neural.tensor;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BlasTest {
+
+    private static final double EPSILON = 0.001;
+
+    // The 2 x 3 matrix [[1, 2, 3], [4, 5, 6]].
+    private static Matrix matrix() {
+        return new Matrix(2, 3, new double[]{1, 2, 3, 4, 5, 6});
+    }
+
+    @Test
+    public void testGemv() {
+        double[] result = new double[2];
+        Blas.gemv(matrix(), new double[]{1, 0, -1}, result);
+        assertArrayEquals(new double[]{-2, -2}, result, EPSILON);
+    }
+
+    @Test
+    public void testGemvFromBuffer() {
+        double[] result = new double[2];
+        Blas.gemv(2, 3, DoubleBuffer.wrap(matrix().data()), new double[]{1, 0, -1}, result);
+        assertArrayEquals(new double[]{-2, -2}, result, EPSILON);
+    }
+
+    @Test
+    public void testGemvTransposed() {
+        double[] result = {9, 9, 9};
+        Blas.gemvTransposed(matrix(), new double[]{1, 2}, result);
+        assertArrayEquals(new double[]{9, 12, 15}, result, EPSILON);
+    }
+
+    @Test
+    public void testGer() {
+        Matrix matrix = matrix();
+        Blas.ger(2.0, new double[]{1, 0}, new double[]{1, 2, 3}, matrix);
+        assertArrayEquals(new double[]{3, 6, 9, 4, 5, 6}, matrix.data(), EPSILON);
+    }
+
+    @Test
+    public void testAxpy() {
+        double[] y = {1, 1, 1};
+        Blas.axpy(2, -0.5, new double[]{2, 4, 6}, y);
+        assertArrayEquals(new double[]{0, -1, 1}, y, EPSILON);
+    }
+
+    @Test
+    public void testAxpyFromBuffer() {
+        double[] y = {1, 1, 1};
+        Blas.axpy(2, -0.5, DoubleBuffer.wrap(new double[]{2, 4, 6}), y);
+        assertArrayEquals(new double[]{0, -1, 1}, y, EPSILON);
+    }
+
+    // Matrices larger than a single tile, so that every edge case of the tiling is exercised. The kernels accumulate
+    // every value in the same order as the plain loops below, so their results are compared exactly.
+    private static Matrix randomMatrix(Random random, int rows, int cols) {
+        Matrix matrix = new Matrix(rows, cols);
+        for (int i = 0; i < matrix.data().length; i++) {
+            matrix.data()[i] = random.nextGaussian();
+        }
+        return matrix;
+    }
+
+    @Test
+    public void testGemmNT() {
+        Random random = new Random(1);
+        Matrix a = randomMatrix(random, 70, 300);
+        Matrix b = randomMatrix(random, 65, 300);
+        Matrix c = new Matrix(80, 65);
+        c.fill(1);
+        Blas.gemmNT(70, a, b, c);
+
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 65; j++) {
+                double expected = 0;
+                for (int p = 0; p < 300; p++) {
+                    expected += a.get(i, p) * b.get(j, p);
+                }
+                assertEquals(expected, c.get(i, j), 0.0);
+            }
+        }
+        // Rows past n are left untouched.
+        assertEquals(1, c.get(70, 0), EPSILON);
+    }
+
+    @Test
+    public void testGemm() {
+        Random random = new Random(2);
+        Matrix a = randomMatrix(random, 70, 65);
+        Matrix b = randomMatrix(random, 65, 300);
+        Matrix c = new Matrix(70, 300);
+        c.fill(1);
+        Blas.gemm(70, a, b, c);
+
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 300; j++) {
+                double expected = 0;
+                for (int p = 0; p < 65; p++) {
+                    expected += a.get(i, p) * b.get(p, j);
+                }
+                assertEquals(expected, c.get(i, j), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testGemmTN() {
+        Random random = new Random(3);
+        Matrix a = randomMatrix(random, 70, 65);
+        Matrix b = randomMatrix(random, 70, 300);
+        Matrix c = new Matrix(65, 300);
+        c.fill(1);
+        Blas.gemmTN(70, 0.5, a, b, c);
+
+        for (int i = 0; i < 65; i++) {
+            for (int j = 0; j < 300; j++) {
+                double expected = 1;
+                for (int s = 0; s < 70; s++) {
+                    expected += 0.5 * a.get(s, i) * b.get(s, j);
+                }
+                assertEquals(expected, c.get(i, j), 0.0);
+            }
+        }
+    }
+
+    // Computes every matrix product on the given operands, returning the results in one array.
+    private static double[] computeProducts(Matrix a, Matrix b, Matrix c) {
+        Matrix nt = new Matrix(a.rows(), b.rows());
+        Matrix nn = new Matrix(a.rows(), c.cols());
+        Matrix tn = new Matrix(a.cols(), b.rows());
+        double[] gemv = new double[a.rows()];
+        double[] transposed = new double[a.cols()];
+        Matrix outer = new Matrix(a.rows(), a.cols());
+        Blas.gemmNT(a.rows(), a, b, nt);
+        Blas.gemm(a.rows(), nt, c, nn);
+        Blas.gemmTN(a.rows(), 0.5, a, nt, tn);
+        Blas.gemv(a, b.data(), gemv);
+        Blas.gemvTransposed(a, gemv, transposed);
+        Blas.ger(2.0, gemv, transposed, outer);
+
+        double[][] parts = {nt.data(), nn.data(), tn.data(), gemv, transposed, outer.data()};
+        int length = 0;
+        for (double[] part : parts) {
+            length += part.length;
+        }
+        double[] result = new double[length];
+        int offset = 0;
+        for (double[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        Random random = new Random(4);
+        Matrix a = randomMatrix(random, 37, 23);
+        Matrix b = randomMatrix(random, 29, 23);
+        Matrix c = randomMatrix(random, 29, 31);
+        double[] expected = computeProducts(a, b, c);
+
+        long threshold = Blas.getParallelThreshold();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Blas.setParallelThreshold(0);
+            double[] actual = pool.submit(() -> computeProducts(a, b, c)).get();
+            // Each value is accumulated in the same order however the rows are divided, so the results are identical.
+            assertArrayEquals(expected, actual, 0.0);
+        } finally {
+            Blas.setParallelThreshold(threshold);
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeParallelThreshold() {
+        Blas.setParallelThreshold(-1);
+    }
+
+    // Returns a single-precision copy of a matrix.
+    private static FloatMatrix toFloat(Matrix matrix) {
+        FloatMatrix result = new FloatMatrix(matrix.rows(), matrix.cols());
+        for (int i = 0; i < matrix.data().length; i++) {
+            result.data()[i] = (float) matrix.data()[i];
+        }
+        return result;
+    }
+
+    @Test
+    public void testFloatKernelsMatchDouble() {
+        Random random = new Random(3);
+        Matrix a = randomMatrix(random, 20, 30);
+        Matrix b = randomMatrix(random, 25, 30);
+        Matrix c = new Matrix(20, 25);
+        FloatMatrix floatC = new FloatMatrix(20, 25);
+        Blas.gemmNT(20, a, b, c);
+        Blas.gemmNT(20, toFloat(a), toFloat(b), floatC);
+        for (int i = 0; i < c.data().length; i++) {
+            assertEquals(c.data()[i], floatC.data()[i], EPSILON);
+        }
+
+        Matrix d = new Matrix(20, 30);
+        FloatMatrix floatD = new FloatMatrix(20, 30);
+        Blas.gemm(20, c, b, d);
+        Blas.gemm(20, floatC, toFloat(b), floatD);
+        for (int i = 0; i < d.data().length; i++) {
+            assertEquals(d.data()[i], floatD.data()[i], EPSILON * Math.max(1, Math.abs(d.data()[i])));
+        }
+
+        Matrix e = new Matrix(25, 30);
+        FloatMatrix floatE = new FloatMatrix(25, 30);
+        Blas.gemmTN(20, 0.5, c, a, e);
+        Blas.gemmTN(20, 0.5f, floatC, toFloat(a), floatE);
+        for (int i = 0; i < e.data().length; i++) {
+            assertEquals(e.data()[i], floatE.data()[i], EPSILON * Math.max(1, Math.abs(e.data()[i])));
+        }
+    }
+
+    @Test
+    public void testFloatGemvAndAxpy() {
+        float[] result = new float[2];
+        Blas.gemv(toFloat(matrix()), new float[]{1, 0, -1}, result);
+        assertArrayEquals(new float[]{-2, -2}, result, 0.0f);
+        Blas.axpy(2, 0.5f, new float[]{9, 2, 4}, 1, result, 0);
+        assertArrayEquals(new float[]{-1, 0}, result, 0.0f);
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.jordanpottruff.neural.training;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LearningRateScheduleTest {
+
+    private static final double DELTA = 1e-12;
+
+    @Test
+    public void testConstantSchedule() {
+        LearningRateSchedule schedule = new ConstantSchedule(0.05);
+        assertEquals(0.05, schedule.getLearningRate(0, 100), DELTA);
+        assertEquals(0.05, schedule.getLearningRate(99, 100), DELTA);
+    }
+
+    @Test
+    public void testStepSchedule() {
+        LearningRateSchedule schedule = new StepSchedule(0.1, 0.5, 10);
+        assertEquals(0.1, schedule.getLearningRate(0, 100), DELTA);
+        assertEquals(0.1, schedule.getLearningRate(9, 100), DELTA);
+        assertEquals(0.05, schedule.getLearningRate(10, 100), DELTA);
+        assertEquals(0.025, schedule.getLearningRate(25, 100), DELTA);
+    }
+
+    @Test
+    public void testCosineSchedule() {
+        LearningRateSchedule schedule = new CosineSchedule(0.1, 0.01);
+        assertEquals(0.1, schedule.getLearningRate(0, 100), DELTA);
+        assertEquals(0.055, schedule.getLearningRate(50, 100), DELTA);
+        assertEquals(0.01, schedule.getLearningRate(100, 100), DELTA);
+    }
+
+    @Test
+    public void testWarmupSchedule() {
+        LearningRateSchedule schedule = new WarmupSchedule(4, new ConstantSchedule(0.2));
+        assertEquals(0.05, schedule.getLearningRate(0, 100), DELTA);
+        assertEquals(0.15, schedule.getLearningRate(2, 100), DELTA);
+        assertEquals(0.2, schedule.getLearningRate(3, 100), DELTA);
+        assertEquals(0.2, schedule.getLearningRate(50, 100), DELTA);
+    }
+
+    @Test
+    public void testWarmupCountsStepsFromEndOfWarmup() {
+        LearningRateSchedule schedule = new WarmupSchedule(10, new CosineSchedule(0.1, 0.0));
+        assertEquals(0.1, schedule.getLearningRate(10, 110), DELTA);
+        assertEquals(0.05, schedule.getLearningRate(60, 110), DELTA);
+    }
+
+    @Test
+    public void testOneCycleSchedule() {
+        LearningRateSchedule schedule = new OneCycleSchedule(1.0, 10, 100, 0.5);
+        assertEquals(0.1, schedule.getLearningRate(0, 100), DELTA);
+        assertEquals(0.55, schedule.getLearningRate(25, 100), DELTA);
+        assertEquals(1.0, schedule.getLearningRate(50, 100), DELTA);
+        assertEquals(0.505, schedule.getLearningRate(75, 100), DELTA);
+        assertEquals(0.01, schedule.getLearningRate(100, 100), DELTA);
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.jordanpottruff.neural.training;
+
+import com.github.jordanpottruff.jgml.Vec2;
+import com.github.jordanpottruff.neural.activations.Logistic;
+import com.github.jordanpottruff.neural.data.DataSet;
+import com.github.jordanpottruff.neural.data.Observation;
+import com.github.jordanpottruff.neural.models.BackPropNetwork;
+import com.github.jordanpottruff.neural.models.InitializerStub;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrainerTest {
+
+    private static final String[] CLASSES = {"A", "B"};
+
+    private static DataSet createData() {
+        List<Observation> observations = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            double x = i / 10.0 - 1.0;
+            observations.add(new Observation(new Vec2(x, 1.0 - x), x < 0 ? "A" : "B"));
+        }
+        return new DataSet(observations, CLASSES);
+    }
+
+    private static BackPropNetwork createNetwork() {
+        InitializerStub init = new InitializerStub(Arrays.asList(0.3, -0.2, 0.1, -0.4, 0.25));
+        return new BackPropNetwork(2, new int[]{3}, CLASSES, new Logistic(), new Logistic(), init);
+    }
+
+    @Test
+    public void testRunsEveryEpoch() {
+        Trainer trainer = new Trainer(createNetwork(), 4, new ConstantSchedule(0.5));
+        List<Integer> epochs = new ArrayList<>();
+        trainer.setEpochHook(epochs::add);
+        assertEquals(3, trainer.train(createData(), 3));
+        assertEquals(Arrays.asList(0, 1, 2), epochs);
+        assertFalse(trainer.hasStoppedEarly());
+    }
+
+    @Test
+    public void testResumesFromLaterEpoch() {
+        Trainer trainer = new Trainer(createNetwork(), 4, new ConstantSchedule(0.5));
+        List<Integer> epochs = new ArrayList<>();
+        trainer.setEpochHook(epochs::add);
+        assertEquals(4, trainer.train(createData(), 2, 4));
+        assertEquals(Arrays.asList(2, 3), epochs);
+    }
+
+    @Test
+    public void testInterruptStopsTraining() {
+        Trainer trainer = new Trainer(createNetwork(), 4, new ConstantSchedule(0.5));
+        List<Integer> epochs = new ArrayList<>();
+        trainer.setEpochHook(epochs::add);
+        Thread.currentThread().interrupt();
+        int completed = trainer.train(createData(), 3);
+
+        assertTrue(Thread.interrupted());
+        assertEquals(0, completed);
+        assertTrue(epochs.isEmpty());
+        assertFalse(trainer.hasStoppedEarly());
+    }
+
+    @Test
+    public void testStopsEarlyWithoutImprovement() {
+        // With a learning rate of zero the validation error never changes, so only the first evaluation counts as an
+        // improvement.
+        Trainer trainer = new Trainer(createNetwork(), 4, new ConstantSchedule(0.0));
+        trainer.setValidation(createData());
+        trainer.setEarlyStopping(2, 0.0);
+        List<Trainer.Evaluation> evaluations = new ArrayList<>();
+        trainer.setEvaluationHook(evaluations::add);
+
+        assertEquals(3, trainer.train(createData(), 50));
+        assertTrue(trainer.hasStoppedEarly());
+        assertEquals(3, evaluations.size());
+        assertFalse(evaluations.get(0).isSampled());
+        assertEquals(evaluations.get(0).getResult().getError(), trainer.getBestError(), 0.0);
+    }
+
+    @Test
+    public void testEarlyStoppingStateResetsBetweenRuns() {
+        Trainer trainer = new Trainer(createNetwork(), 4, new ConstantSchedule(0.0));
+        trainer.setValidation(createData());
+        trainer.setEarlyStopping(2, 0.0);
+        List<Trainer.Evaluation> evaluations = new ArrayList<>();
+        trainer.setEvaluationHook(evaluations::add);
+        assertEquals(3, trainer.train(createData(), 50));
+
+        // The second run starts with no best error, so it again needs one improvement and two evaluations without.
+        evaluations.clear();
+        assertEquals(3, trainer.train(createData(), 50));
+        assertTrue(trainer.hasStoppedEarly());
+        assertEquals(3, evaluations.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyValidationSet() {
+        Trainer trainer = new Trainer(createNetwork(), 4, new ConstantSchedule(0.5));
+        trainer.setValidation(new DataSet(new ArrayList<>(), CLASSES), 3, 5);
+    }
+
+    @Test
+    public void testStopsWithinEpoch() {
+        Trainer trainer = new Trainer(createNetwork(), 2, new ConstantSchedule(0.0));
+        trainer.setValidation(createData(), 3, 5);
+        trainer.setEarlyStopping(1, 0.0);
+        List<Trainer.Evaluation> evaluations = new ArrayList<>();
+        trainer.setEvaluationHook(evaluations::add);
+
+        // Samples differ in their error, so training stops as soon as one sample does not improve on the best.
+        int completed = trainer.train(createData(), 50);
+        assertTrue(trainer.hasStoppedEarly());
+        Trainer.Evaluation last = evaluations.get(evaluations.size() - 1);
+        assertTrue(last.isSampled());
+        // Evaluations happen after batches 3, 6 and 9 of 10, so the epoch that stopped is incomplete.
+        assertEquals(last.getEpoch(), completed);
+        for (Trainer.Evaluation evaluation : evaluations) {
+            assertEquals(0, evaluation.getBatch() % 3);
+        }
+    }
+
+    @Test
+    public void testScheduleSetsLearningRateOfEachBatch() {
+        List<Long> steps = new ArrayList<>();
+        List<Long> totals = new ArrayList<>();
+        Trainer trainer = new Trainer(createNetwork(), 8, (step, totalSteps) -> {
+            steps.add(step);
+            totals.add(totalSteps);
+            return 0.1;
+        });
+        trainer.train(createData(), 2);
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L, 5L), steps);
+        assertEquals(Arrays.asList(6L, 6L, 6L, 6L, 6L, 6L), totals);
+    }
+}